@@ -0,0 +1,145 @@
+package pepse;
+
+import pepse.headless.HeadlessSession;
+import pepse.util.SteadyFrameRate;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Launches the game with an application class-data-sharing (AppCDS) archive, so the classes of the
+ * engine, AWT and the game are mapped from the archive instead of being loaded and verified on every
+ * start.
+ * <p>
+ * Usage:
+ * <pre>
+ *   java -cp ... pepse.CdsLauncher train   [archive]        - dump the archive from a training run
+ *   java -cp ... pepse.CdsLauncher run     [archive]        - launch the game from the archive
+ *   java -cp ... pepse.CdsLauncher compare [archive] [runs] - compare startup with and without it
+ * </pre>
+ * The comparison launches the real game, in a window, and times it until its first frame and until its
+ * frame rate is steady, at which point the game exits by itself.
+ * The archive can also be used directly with
+ * {@code java -XX:SharedArchiveFile=pepse.jsa -cp ... pepse.PepseGameManager}.
+ */
+public class CdsLauncher {
+
+    private static final String DEFAULT_ARCHIVE = "pepse.jsa";
+    private static final int DEFAULT_RUNS = 5;
+    private static final String FIRST_FRAME_LINE = "Time to first frame";
+    private static final String EXIT_WHEN_STEADY = "-Dpepse.exitWhenSteady=true";
+    private static final String TRAINING_ARG = "--training";
+    private static final double NANOS_IN_MILLI = 1e6;
+
+    /**
+     * The wall times measured in a single launch.
+     */
+    private static class Launch {
+        private double firstFrameMillis = Double.NaN;
+        private double steadyMillis = Double.NaN;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String mode = args.length > 0 ? args[0] : "run";
+        String archive = args.length > 1 ? args[1] : DEFAULT_ARCHIVE;
+        switch (mode) {
+            case "train":
+                train(archive);
+                break;
+            case "run":
+                System.exit(start(List.of("-XX:SharedArchiveFile=" + archive),
+                        PepseGameManager.class.getName()).inheritIO().start().waitFor());
+                break;
+            case "compare":
+                compare(archive, args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_RUNS);
+                break;
+            default:
+                System.err.println("usage: CdsLauncher train|run|compare [archive] [runs]");
+                System.exit(1);
+        }
+    }
+
+    /**
+     * Runs the headless training session in a child JVM which dumps the archive on exit.
+     */
+    private static void train(String archive) throws IOException, InterruptedException {
+        int exitCode = start(List.of("-XX:ArchiveClassesAtExit=" + archive),
+                HeadlessSession.class.getName(), TRAINING_ARG).inheritIO().start().waitFor();
+        if (exitCode != 0 || !new File(archive).exists()) {
+            throw new IOException("training run failed, no archive written to " + archive);
+        }
+        System.out.println("Wrote " + archive);
+    }
+
+    /**
+     * Launches the game repeatedly with and without the archive, and prints the mean wall times to the
+     * first frame and to a steady frame rate.
+     */
+    private static void compare(String archive, int runs) throws IOException, InterruptedException {
+        if (!new File(archive).exists()) {
+            train(archive);
+        }
+        List<String> withoutArchive = List.of("-Xshare:auto", EXIT_WHEN_STEADY);
+        List<String> withArchive = List.of("-XX:SharedArchiveFile=" + archive, EXIT_WHEN_STEADY);
+        double[] cold = measure(withoutArchive, runs);
+        double[] warm = measure(withArchive, runs);
+        System.out.printf("%-16s %18s %18s%n", "", "first frame (ms)", "steady rate (ms)");
+        System.out.printf("%-16s %18.1f %18.1f%n", "without archive", cold[0], cold[1]);
+        System.out.printf("%-16s %18.1f %18.1f%n", "with archive", warm[0], warm[1]);
+    }
+
+    /**
+     * @return the mean wall time to the first frame and to a steady frame rate, in milliseconds.
+     */
+    private static double[] measure(List<String> jvmOptions, int runs)
+            throws IOException, InterruptedException {
+        double firstFrame = 0;
+        double steady = 0;
+        for (int i = 0; i < runs; i++) {
+            Launch launch = launch(jvmOptions);
+            firstFrame += launch.firstFrameMillis / runs;
+            steady += launch.steadyMillis / runs;
+        }
+        return new double[]{firstFrame, steady};
+    }
+
+    /**
+     * Launches the game, and timestamps the lines it prints when it rendered its first frame and when its
+     * frame rate became steady.
+     */
+    private static Launch launch(List<String> jvmOptions) throws IOException, InterruptedException {
+        Launch launch = new Launch();
+        long start = System.nanoTime();
+        Process process = start(jvmOptions, PepseGameManager.class.getName()).redirectErrorStream(true)
+                .start();
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                double elapsed = (System.nanoTime() - start) / NANOS_IN_MILLI;
+                if (line.startsWith(FIRST_FRAME_LINE)) {
+                    launch.firstFrameMillis = elapsed;
+                } else if (line.startsWith(SteadyFrameRate.STEADY_LINE)) {
+                    launch.steadyMillis = elapsed;
+                }
+            }
+        }
+        process.waitFor();
+        return launch;
+    }
+
+    private static ProcessBuilder start(List<String> jvmOptions, String mainClass, String... args) {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass);
+        command.addAll(Arrays.asList(args));
+        return new ProcessBuilder(command);
+    }
+}
@@ -1,46 +1,176 @@
 package pepse;
 
 import danogl.GameManager;
-import danogl.GameObject;
 import danogl.collisions.GameObjectCollection;
 import danogl.collisions.Layer;
 import danogl.gui.*;
 import danogl.gui.rendering.Camera;
-import danogl.util.Counter;
 import danogl.util.Vector2;
+import pepse.trace.InputTrace;
+import pepse.trace.ScriptedInputListener;
+import pepse.trace.WorldRecorder;
+import pepse.util.AssetManager;
+import pepse.util.FrameProfiler;
+import pepse.util.StartupTimer;
+import pepse.util.SteadyFrameRate;
 import pepse.world.*;
+import pepse.world.daynight.CachedBackground;
+import pepse.world.daynight.DayNightClock;
 import pepse.world.daynight.Night;
 import pepse.world.daynight.Sun;
 import pepse.world.daynight.SunHalo;
 import pepse.world.trees.Tree;
+import pepse.world.trees.TrunkIndex;
 
 import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Random;
 
 public class PepseGameManager extends GameManager {
-    private static final float CYCLE_LENGTH = 30;
-    public static final int INIT_FLY_COUNTER_VAL = 100;
-    private static final String AVATAR_TAG = "avatar";
     private static final String LOCATION_TXT = "Location: ";
     public static final int FIRST_INDEX = 0;
     public static final int SECOND_INDEX = 1;
     private static final Color HALO_COLOR = new Color(255, 255, 0, 20);
+    private static final String LAYERED_BACKGROUND = "layered";
+    private static final boolean CACHED_BACKGROUND =
+            !LAYERED_BACKGROUND.equals(System.getProperty("pepse.background"));
+    /**
+     * The fixed time step of the simulation, in seconds. The simulation advances in whole steps
+     * regardless of the frame rate, so physics, flight power and streaming behave the same on every
+     * machine.
+     */
+    public static final float SIMULATION_STEP = 1 / 60f;
+    private static final float MAX_FRAME_TIME = 0.25f;
+    private static final int MAX_STEPS_PER_FRAME = 8;
+    private static final String MAX_FPS_PROPERTY = "pepse.maxFps";
+    private static final boolean INTERPOLATE =
+            !"false".equals(System.getProperty("pepse.interpolate"));
+    private static final boolean GOVERNOR_ENABLED = !"off".equals(System.getProperty("pepse.governor"));
+    private static final boolean CHUNK_TUNING = !"off".equals(System.getProperty("pepse.chunkTuner"));
+    private static final String WORLD_RECORDING = System.getProperty("pepse.worldRecording");
+    private static final boolean EXIT_WHEN_STEADY = Boolean.getBoolean("pepse.exitWhenSteady");
+    private static final String RECORD_ARG = "--record";
+    private static final String SNAPSHOT_ARG = "--snapshot";
+    private static final String REPLAY_ARG = "--replay";
+    private static final int OVERLAY_KEY = KeyEvent.VK_F3;
+    private static final int DIG_KEY = KeyEvent.VK_DOWN;
+    private static final int PILE_KEY = KeyEvent.VK_UP;
+    private static final float EDIT_SPEED = 4 * Block.SIZE;
+    private static final int OVERLAY_REFRESH_FRAMES = 30;
+    private static final long BYTES_IN_KB = 1024;
+    private static final String FRAME_TIMES_CSV =
+            System.getProperty("pepse.frameTimesCsv", "pepse-frame-times.csv");
+    /**
+     * The layers of the world, and their names, as reported by the diagnostics.
+     */
+    public static final int[] WORLD_LAYERS = {Layer.BACKGROUND, Tree.LEAF_LAYER, Layer.STATIC_OBJECTS,
+            Tree.TREE_LAYER, Crowd.AGENT_LAYER, Layer.DEFAULT, Layer.FOREGROUND};
+    public static final String[] WORLD_LAYER_NAMES = {"background", "leaves", "ground", "trunks", "agents",
+            "avatar", "foreground"};
 
-    private static GameObjectCollection gameObjects;
-    private static Avatar avatar;
-
-    private Terrain terrain;
+    private WorldContext world;
+    private GameObjectCollection gameObjects;
+    private Avatar avatar;
     private WindowController windowController;
-    private int horizontalWindowSize;
-    private Vector2 initAvatarPlacement;
     private FlyCounter flyCounter;
-    private final Counter currentFlightDuration = new Counter(INIT_FLY_COUNTER_VAL);
-    private CollectionManager collectionManager;
     private UIText locationPresenter;
+    private UserInputListener inputListener;
+    private final int terrainSeed;
+    private final int forestSeed;
+    private InputTrace recording;
+    private InputTrace replay;
+    private WorldSnapshot resume;
+    private WorldRecorder worldRecorder;
+    private ScriptedInputListener replayInput;
+    private int replayFrame = 0;
+    private final FrameProfiler profiler = new FrameProfiler();
+    private PerformanceOverlay performanceOverlay;
+    private boolean overlayVisible = false;
+    private long frameIndex = 0;
+    private float accumulator = 0;
+    private float previousAvatarX;
+    private float previousAvatarY;
+    private long lastRenderNanos = 0;
+    private final SteadyFrameRate steadyFrameRate = new SteadyFrameRate();
+    private long lastFrameStart = 0;
+    private com.sun.management.ThreadMXBean allocationCounter;
+    private long stepAllocatedBytes = 0;
 
+    /**
+     * Constructor for a game with random seeds.
+     */
+    public PepseGameManager() {
+        this(new Random().nextInt(), new Random().nextInt());
+    }
+
+    /**
+     * Constructor for a game with the given seeds. Two games with the same seeds and the same input
+     * generate the same world.
+     *
+     * @param terrainSeed - the seed of the terrain's height.
+     * @param forestSeed  - the seed of the trees and the leaves.
+     */
+    public PepseGameManager(int terrainSeed, int forestSeed) {
+        this.terrainSeed = terrainSeed;
+        this.forestSeed = forestSeed;
+    }
 
-    private static final Random rand = new Random();
-    private static final int forestSeed = rand.nextInt();
+    /**
+     * Creates a game which replays the given trace: it uses the trace's seeds, takes its input from the
+     * trace instead of the user, runs every frame with the trace's fixed time step, and closes its window
+     * once the trace ends.
+     *
+     * @param trace - the trace to replay.
+     * @return the new game.
+     */
+    public static PepseGameManager forReplay(InputTrace trace) {
+        PepseGameManager game = new PepseGameManager(trace.getTerrainSeed(), trace.getForestSeed());
+        game.replay = trace;
+        game.replayInput = new ScriptedInputListener();
+        return game;
+    }
+
+    /**
+     * Creates a game which resumes the world saved in the given snapshot, instead of generating a new one.
+     *
+     * @param snapshot - the saved world.
+     * @return the new game.
+     */
+    public static PepseGameManager forResume(WorldSnapshot snapshot) {
+        PepseGameManager game = new PepseGameManager(snapshot.getTerrainSeed(), snapshot.getForestSeed());
+        game.resume = snapshot;
+        return game;
+    }
+
+    /**
+     * Saves the current world to a file, from which a later game may resume. Must be called from the
+     * game's thread, while no frame is running. Does nothing if the game was never initialized.
+     *
+     * @param path - the file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void saveSnapshot(Path path) throws IOException {
+        if (world == null) {
+            return;
+        }
+        world.snapshot().write(path);
+    }
+
+    /**
+     * Starts recording the seeds and the per-frame key states of the game.
+     *
+     * @return the trace which is filled as the game runs.
+     */
+    public InputTrace startRecording() {
+        recording = new InputTrace(terrainSeed, forestSeed, SIMULATION_STEP);
+        return recording;
+    }
 
     /**
      * Initializes the game, including the avatar and the landscape.
@@ -54,33 +184,90 @@ public class PepseGameManager extends GameManager {
     public void initializeGame(ImageReader imageReader, SoundReader soundReader,
                                UserInputListener inputListener, WindowController windowController) {
         super.initializeGame(imageReader, soundReader, inputListener, windowController);
+        if (replay != null) {
+            inputListener = replayInput;
+        }
+        this.inputListener = inputListener;
         this.windowController = windowController;
-        this.horizontalWindowSize = (int) windowController.getWindowDimensions().x();
         gameObjects = gameObjects();
-//        Initialize sky:
-        Sky.create(gameObjects, windowController.getWindowDimensions(), Layer.BACKGROUND);
-//        Initialize the ground:
-        createGround();
+//        Decode the avatar's images in the background while the world is generated:
+        AssetManager assets = new AssetManager(imageReader);
+        assets.preload(AvatarFrames.IMAGES);
+//        Initialize the ground, the trees and the avatar, or restore them from the snapshot:
+        if (resume != null) {
+            world = WorldContext.restore(gameObjects, windowController.getWindowDimensions(), resume,
+                    inputListener, assets);
+        } else {
+            world = WorldContext.create(gameObjects, windowController.getWindowDimensions(), terrainSeed,
+                    forestSeed, inputListener, assets);
+        }
+        world.setChunkTuning(CHUNK_TUNING && replay == null && recording == null);
+        if (WORLD_RECORDING != null) {
+            startWorldRecording(Paths.get(WORLD_RECORDING));
+        }
+        avatar = world.getAvatar();
+        StartupTimer.mark("assets ready");
+//        Initialize sky, sun and the sun's halo:
+        createBackground();
 //        Initialize night:
-        Night.create(gameObjects, Layer.FOREGROUND, windowController.getWindowDimensions(), CYCLE_LENGTH);
-//        Initialize the sun and the sun's halo:
-        GameObject sun = Sun.create(gameObjects(), Layer.BACKGROUND, windowController.getWindowDimensions()
-                , CYCLE_LENGTH);
-        SunHalo.create(gameObjects, Layer.BACKGROUND, sun, HALO_COLOR);
-//        Initialize trees:
-        Tree tree = new Tree(gameObjects, terrain);
-        Tree.createInRange((int) initAvatarPlacement.x() - horizontalWindowSize,
-                (int) (initAvatarPlacement.x() + horizontalWindowSize));
-//        Initialize the avatar
-        avatar = Avatar.create(gameObjects, Layer.DEFAULT, initAvatarPlacement, inputListener, imageReader);
+        Night.create(gameObjects, Layer.FOREGROUND, windowController.getWindowDimensions(),
+                world.getDayNightClock());
         turnCameraOn();
-        avatar.setTag(AVATAR_TAG);
 //        Initialize Fly duration counter:
         this.flyCounter = initFlyCounter();
         this.locationPresenter = initLocationPresenter();
-//        Initialize LandscapeManager:
-        this.collectionManager = new CollectionManager(horizontalWindowSize, terrain, avatar, gameObjects);
-        collisionManagement();
+        this.performanceOverlay = new PerformanceOverlay(new Vector2(Block.SIZE,
+                Block.SIZE + 4 * UIText.TEXT_SIZE));
+        String maxFps = System.getProperty(MAX_FPS_PROPERTY);
+        if (maxFps != null) {
+            windowController.setTargetFramerate(Integer.parseInt(maxFps));
+        }
+        previousAvatarX = avatar.getTopLeftCorner().x();
+        previousAvatarY = avatar.getTopLeftCorner().y();
+    }
+
+    /**
+     * Writes the frame-time percentiles of every update phase to a CSV file, whose path is given by the
+     * pepse.frameTimesCsv property.
+     */
+    public void dumpFrameTimes() {
+        try {
+            profiler.writeCsv(Paths.get(FRAME_TIMES_CSV));
+        } catch (IOException e) {
+            System.err.println("Could not write frame times: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Shows or hides the performance overlay when its key is pressed, and refreshes its text
+     * periodically while it is shown.
+     */
+    private void updatePerformanceOverlay() {
+        if (inputListener.wasKeyPressedThisFrame(OVERLAY_KEY)) {
+            overlayVisible = !overlayVisible;
+            if (overlayVisible) {
+                gameObjects.addGameObject(performanceOverlay, Layer.UI);
+            } else {
+                gameObjects.removeGameObject(performanceOverlay, Layer.UI);
+            }
+        }
+        if (overlayVisible && frameIndex % OVERLAY_REFRESH_FRAMES == 0) {
+            String[] lines = new String[profiler.phaseCount() + WORLD_LAYERS.length + 3];
+            for (int phase = 0; phase < profiler.phaseCount(); phase++) {
+                lines[phase] = profiler.summary(phase);
+            }
+            for (int i = 0; i < WORLD_LAYERS.length; i++) {
+                lines[profiler.phaseCount() + i] = String.format("%-9s %d objects", WORLD_LAYER_NAMES[i],
+                        countObjectsInLayer(WORLD_LAYERS[i]));
+            }
+            ChunkBudget budget = world.getChunkBudget();
+            lines[lines.length - 3] = String.format("budget    %d objects %dKB in %d chunks, %d evicted, " +
+                            "chunk %dpx", budget.getLiveObjects(), budget.getEstimatedBytes() / BYTES_IN_KB,
+                    budget.getResidentChunks(), budget.getEvictions(), world.getChunkSize());
+            lines[lines.length - 2] = String.format("timers    %d pending", getPendingTimers());
+            lines[lines.length - 1] = String.format("quality   %s", world.getQualityGovernor().getTier());
+            performanceOverlay.setLines(lines);
+        }
     }
 
     /**
@@ -90,7 +277,7 @@ public class PepseGameManager extends GameManager {
      */
     private FlyCounter initFlyCounter() {
         Vector2 textPlacement = new Vector2(Block.SIZE, Block.SIZE);
-        FlyCounter counter = new FlyCounter(currentFlightDuration, textPlacement);
+        FlyCounter counter = new FlyCounter(avatar.getFlightPower(), textPlacement);
         gameObjects.addGameObject(counter, Layer.FOREGROUND);
         return counter;
     }
@@ -101,46 +288,46 @@ public class PepseGameManager extends GameManager {
      * @return a pointer to the new object.
      */
     private UIText initLocationPresenter() {
-        int location =
-                (int) ((avatar.getCenter().x() - initAvatarPlacement.x() - 0.5 * Block.SIZE) / Block.SIZE);
-
         Vector2 textPlacement = new Vector2(Block.SIZE, Block.SIZE + 2 * UIText.TEXT_SIZE);
-        UIText locationText = new UIText(textPlacement, LOCATION_TXT, location);
+        UIText locationText = new UIText(textPlacement, LOCATION_TXT, avatarLocation());
         gameObjects.addGameObject(locationText, Layer.FOREGROUND);
         return locationText;
     }
 
     /**
-     * Initializes the ground.
+     * Computes the location of the avatar, in blocks from its initial placement. The center is derived
+     * from the top-left corner, since GameObject.getCenter() creates a new vector on every call.
+     *
+     * @return the avatar's location.
      */
-    private void createGround() {
-        terrain = new Terrain(gameObjects, Layer.STATIC_OBJECTS, windowController.getWindowDimensions(),
-                rand.nextInt());
-        int AvatarXPlacement = fixAvatarAlignment();
-        this.initAvatarPlacement = new Vector2(AvatarXPlacement,
-                terrain.groundHeightAt(AvatarXPlacement) - Avatar.AVATAR_SIZE);
-        terrain.createInRange(AvatarXPlacement - horizontalWindowSize / 2,
-                (AvatarXPlacement + horizontalWindowSize));
+    private int avatarLocation() {
+        float centerX = avatar.getTopLeftCorner().x() + 0.5f * Avatar.AVATAR_SIZE;
+        return (int) ((centerX - world.getInitAvatarPlacement().x() - 0.5 * Block.SIZE) / Block.SIZE);
     }
 
     /**
-     * Fixes the placement of the avatar, so it would appear in the center of the screen.
-     *
-     * @return the new location.
+     * Initializes the sky, the sun and the sun's halo. By default they are composited into one cached
+     * image; running with -Dpepse.background=layered creates them as separate objects instead, to
+     * compare frame times between the two paths. The night stays a separate foreground object in both
+     * cases, since it also darkens the terrain and the trees.
      */
-    private int fixAvatarAlignment() {
-        int start = Block.SIZE;
-        while (start < horizontalWindowSize / 2) {
-            start += Block.SIZE;
+    private void createBackground() {
+        Vector2 windowDimensions = windowController.getWindowDimensions();
+        if (CACHED_BACKGROUND) {
+            CachedBackground.create(gameObjects, Layer.BACKGROUND, windowDimensions, world.getDayNightClock(),
+                    HALO_COLOR);
+            return;
         }
-        return start;
+        Sky.create(gameObjects, windowDimensions, Layer.BACKGROUND);
+        Sun.create(gameObjects, Layer.BACKGROUND, windowDimensions, world.getDayNightClock());
+        SunHalo.create(gameObjects, Layer.BACKGROUND, windowDimensions, world.getDayNightClock(), HALO_COLOR);
     }
 
     /**
      * Sets the camera to follow the avatar.
      */
     private void turnCameraOn() {
-        Vector2 placement = new Vector2(initAvatarPlacement.mult(-1));
+        Vector2 placement = new Vector2(world.getInitAvatarPlacement().mult(-1));
         Vector2 start = new Vector2(windowController.getWindowDimensions().mult(0.5f).add(placement));
         setCamera(new Camera(avatar,            //object to follow
                 start,    //follow the center of the object
@@ -150,67 +337,355 @@ public class PepseGameManager extends GameManager {
     }
 
     /**
-     * Checks that the avatar isn't under the surface of the terrain.
+     * Renders the frame. The avatar is drawn between its positions at the last two simulation steps, in
+     * proportion to the time left in the accumulator, so its movement stays smooth when the frame rate
+     * and the simulation rate differ. The camera, which follows the avatar, is moved by the same offset,
+     * so the avatar keeps its place on the screen and the world scrolls smoothly behind it. The simulated
+     * positions of both are restored right after the rendering.
+     *
+     * @param g - the graphics to render on.
+     */
+    @Override
+    public void render(Graphics2D g) {
+        long renderStart = System.nanoTime();
+        float alpha = accumulator / SIMULATION_STEP;
+        if (!INTERPOLATE || alpha <= 0 || avatar == null) {
+            super.render(g);
+        } else {
+            float currentX = avatar.getTopLeftCorner().x();
+            float currentY = avatar.getTopLeftCorner().y();
+            float offsetX = (previousAvatarX - currentX) * (1 - alpha);
+            float offsetY = (previousAvatarY - currentY) * (1 - alpha);
+            Camera camera = camera();
+            float cameraX = camera.getTopLeftCorner().x();
+            float cameraY = camera.getTopLeftCorner().y();
+            avatar.transform().setTopLeftCorner(currentX + offsetX, currentY + offsetY);
+            camera.transform().setTopLeftCorner(cameraX + offsetX, cameraY + offsetY);
+            super.render(g);
+            avatar.transform().setTopLeftCorner(currentX, currentY);
+            camera.transform().setTopLeftCorner(cameraX, cameraY);
+        }
+        lastRenderNanos = System.nanoTime() - renderStart;
+        StartupTimer.firstFrame();
+    }
+
+    /**
+     * Advances the game by the time passed since the last frame. The time is gathered in an accumulator
+     * and the simulation runs as many fixed steps as fit in it; the remainder is carried to the next
+     * frame. At a high frame rate most frames run no step at all, and after a long stall at most
+     * MAX_STEPS_PER_FRAME steps run, so the game slows down rather than falling further behind. A
+     * replaying game runs exactly one step of the trace's time step per frame.
+     * <p>
+     * The time spent on the frame, the update and the last rendering together, is fed to the world's
+     * quality governor. Replays and recordings are not governed, since the tier changes the world and
+     * depends on the speed of the machine; neither is a game run with -Dpepse.governor=off.
      *
-     * @return true if the avater is underground; False otherwise.
+     * @param deltaTime - the time passed since the last frame, in seconds.
      */
-    private boolean isAvatarUnderground() {
-        return avatar.getTopLeftCorner().y() > terrain.groundHeightAt(avatar.getTopLeftCorner().x() + (Block.SIZE));
+    @Override
+    public void update(float deltaTime) {
+        recordFrameInterval();
+        if (replay != null) {
+            if (replayFrame == replay.frameCount()) {
+                windowController.closeWindow();
+                return;
+            }
+            replayInput.setPressedKeys(InputTrace.keysOf(replay.maskAt(replayFrame++)));
+            step(replay.getTimestep());
+            endFrame();
+            return;
+        }
+        long frameStart = System.nanoTime();
+        accumulator += Math.min(deltaTime, MAX_FRAME_TIME);
+        int steps = 0;
+        while (accumulator >= SIMULATION_STEP && steps < MAX_STEPS_PER_FRAME) {
+            accumulator -= SIMULATION_STEP;
+            if (recording != null) {
+                recording.append(InputTrace.maskOf(inputListener));
+            }
+            step(SIMULATION_STEP);
+            steps++;
+        }
+        if (steps == MAX_STEPS_PER_FRAME) {
+            accumulator = Math.min(accumulator, SIMULATION_STEP);
+        }
+        if (GOVERNOR_ENABLED && recording == null) {
+            world.getQualityGovernor().record(System.nanoTime() - frameStart + lastRenderNanos);
+        }
+        endFrame();
     }
 
     /**
-     * Relocates the avatar back to the surface of the terrain.
+     * Feeds the wall time since the last frame to the steady frame rate detector. With
+     * -Dpepse.exitWhenSteady=true, the window is closed once the frame rate is steady.
      */
-    private void relocateAvatar() {
-        if (isAvatarUnderground()) {
-            float yValue = terrain.groundHeightAt(avatar.getTopLeftCorner().x()) - Avatar.AVATAR_SIZE;
-            Vector2 reLocation = new Vector2(avatar.getTopLeftCorner().x(), yValue);
-            avatar.setTopLeftCorner(reLocation);
+    private void recordFrameInterval() {
+        long now = System.nanoTime();
+        if (lastFrameStart > 0 && steadyFrameRate.record(now - lastFrameStart) && EXIT_WHEN_STEADY) {
+            windowController.closeWindow();
         }
+        lastFrameStart = now;
     }
 
-    @Override
-    public void update(float deltaTime) {
-        gameObjects.removeGameObject(flyCounter, Layer.FOREGROUND);
-        flyCounter = initFlyCounter();
-        gameObjects.removeGameObject(locationPresenter, Layer.FOREGROUND);
-        locationPresenter = initLocationPresenter();
+    /**
+     * Handles the per-frame work which does not belong to the simulation: the HUD shows the state after
+     * the frame's last step, however many steps the frame ran, and the performance overlay is refreshed.
+     */
+    private void endFrame() {
+        long hudStart = System.nanoTime();
+        flyCounter.setInfo(avatar.getFlightPower());
+        locationPresenter.setInfo(avatarLocation());
+        profiler.record(FrameProfiler.HUD, System.nanoTime() - hudStart);
+        updatePerformanceOverlay();
+        frameIndex++;
+    }
 
+    /**
+     * Runs a single step of the simulation. The world's origin moves first, if it moves at all, so the
+     * avatar's position before the step, from which the frame is interpolated, is in the same coordinates
+     * as its position after it. When counted, the bytes the step allocates outside the engine's update are
+     * added to the step allocation counter.
+     *
+     * @param deltaTime - the simulated time of the step, in seconds.
+     */
+    private void step(float deltaTime) {
+        long stepAllocStart = allocatedBytes();
+        world.recenter();
+        previousAvatarX = avatar.getTopLeftCorner().x();
+        previousAvatarY = avatar.getTopLeftCorner().y();
+        long stepStart = System.nanoTime();
+        long phaseStart = stepStart;
+        world.preUpdate(deltaTime);
+        long engineAllocStart = allocatedBytes();
         super.update(deltaTime);
-        collectionManager.updateLandscape();
+        long engineAllocEnd = allocatedBytes();
+        long phaseEnd = System.nanoTime();
+        profiler.record(FrameProfiler.ENGINE, phaseEnd - phaseStart);
 
-        relocateAvatar();
-        if (Avatar.getAvatarFliesFlag()) {
-            if (currentFlightDuration.value() == 0) Avatar.setAvatarFalls(true);
-            else currentFlightDuration.decrement();
-        } else {
-            currentFlightDuration.reset();
-            currentFlightDuration.increaseBy(INIT_FLY_COUNTER_VAL);
+        phaseStart = phaseEnd;
+        editGround(deltaTime);
+        world.updateLandscape();
+        phaseEnd = System.nanoTime();
+        profiler.record(FrameProfiler.LANDSCAPE, phaseEnd - phaseStart);
+
+        phaseStart = phaseEnd;
+        world.relocateAvatar();
+        phaseEnd = System.nanoTime();
+        profiler.record(FrameProfiler.RELOCATE, phaseEnd - phaseStart);
+        profiler.record(FrameProfiler.STEP, phaseEnd - stepStart);
+        if (worldRecorder != null) {
+            worldRecorder.recordFrame(world);
+        }
+        stepAllocatedBytes += allocatedBytes() - engineAllocEnd + engineAllocStart - stepAllocStart;
+    }
+
+    /**
+     * Reads the bytes allocated so far by the current thread, if the step's allocations are counted.
+     *
+     * @return the allocated bytes, or 0 if the allocations are not counted.
+     */
+    private long allocatedBytes() {
+        return allocationCounter == null ? 0 : allocationCounter.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Digs into the ground under the avatar while the dig key is held, and piles it up while the pile key
+     * is held, by EDIT_SPEED pixels per second.
+     *
+     * @param deltaTime - the simulated time of the step, in seconds.
+     */
+    private void editGround(float deltaTime) {
+        if (inputListener.isKeyPressed(DIG_KEY)) {
+            world.editGroundUnderAvatar(EDIT_SPEED * deltaTime);
         }
+        if (inputListener.isKeyPressed(PILE_KEY)) {
+            world.editGroundUnderAvatar(-EDIT_SPEED * deltaTime);
+        }
+    }
+
+    /**
+     * Starts recording the avatar, the landscape's loads and unloads and a sample of the leaves to the
+     * given file, which is flushed when the program exits. RecordingViewer plays the file back.
+     *
+     * @param path - the file to write.
+     */
+    private void startWorldRecording(Path path) {
+        try {
+            worldRecorder = WorldRecorder.open(path, world.getTerrainSeed(), world.getForestSeed(),
+                    SIMULATION_STEP);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        world.setLandscapeListener(worldRecorder);
+        WorldRecorder recorder = worldRecorder;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                recorder.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
     }
 
     /**
-     * Handles the collision of the different layers used in the game.
+     * Adds computer-controlled avatars around the user's avatar, to stress the game with a crowd.
+     *
+     * @param count - the number of agents to add.
      */
-    private static void collisionManagement() {
-//        collide leaves, tree-trucks and ground:
-        gameObjects.layers().shouldLayersCollide(Tree.LEAF_LAYER, Layer.STATIC_OBJECTS, true);
-//        collide The avatar, the ground and tree's trunks:
-        gameObjects.layers().shouldLayersCollide(Layer.DEFAULT, Layer.STATIC_OBJECTS, true);
-        gameObjects.layers().shouldLayersCollide(Layer.DEFAULT, Tree.TREE_LAYER, true);
+    public void spawnAgents(int count) {
+        world.spawnAgents(count);
     }
 
     /**
-     * Getter for the pseudo-random seed.
+     * Getter for the world run by the game.
+     *
+     * @return the world's context.
+     */
+    public WorldContext getWorld() {
+        return world;
+    }
+
+    /**
+     * Getter for the seed of the trees and the leaves.
      *
      * @return the seed as integer.
      */
-    public static int getSeed() {
+    public int getForestSeed() {
         return forestSeed;
     }
 
-    public static void main(String[] args) {
-        new PepseGameManager().run();
+    /**
+     * Getter for the seed of the terrain.
+     *
+     * @return the seed as integer.
+     */
+    public int getTerrainSeed() {
+        return terrainSeed;
+    }
+
+    /**
+     * Hashes the state of the world: the avatar, the flight power, the number of objects in each layer,
+     * the loaded trunks, the pending timers and the time of day. Two replays of the same trace end with
+     * the same hash.
+     *
+     * @return the hash of the world's state.
+     */
+    public int worldStateHash() {
+        return world.stateHash();
+    }
+
+    /**
+     * Getter for the spatial index of the loaded tree trunks, used for collision, AI and debugging
+     * queries.
+     *
+     * @return the trunk index.
+     */
+    public TrunkIndex getTrunkIndex() {
+        return world.getTrunkIndex();
+    }
+
+    /**
+     * Counts the objects currently alive in the given layer.
+     *
+     * @param layer - the layer to count.
+     * @return the number of objects in the layer.
+     */
+    public int countObjectsInLayer(int layer) {
+        return world.countObjectsInLayer(layer);
+    }
+
+    /**
+     * Starts counting the bytes the game's thread allocates in the game's own part of every step, which
+     * is the whole step except the engine's update. Used by the headless allocation check.
+     */
+    public void countStepAllocations() {
+        allocationCounter = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    }
+
+    /**
+     * Getter for the bytes allocated by the game's own part of the steps since countStepAllocations was
+     * called.
+     *
+     * @return the allocated bytes, or 0 if the allocations are not counted.
+     */
+    public long getStepAllocatedBytes() {
+        return stepAllocatedBytes;
+    }
+
+    /**
+     * Getter for the frame-time histograms of the update phases.
+     *
+     * @return the frame profiler.
+     */
+    public FrameProfiler getFrameProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Getter for the number of deferred world events waiting on the timer wheel.
+     *
+     * @return the number of pending timers.
+     */
+    public int getPendingTimers() {
+        return world.getTimers().pendingCount();
+    }
+
+    /**
+     * Getter for the day-night clock, from which every system reads the time of day.
+     *
+     * @return the day-night clock.
+     */
+    public DayNightClock getDayNightClock() {
+        return world.getDayNightClock();
+    }
+
+    /**
+     * Runs the game. With --record FILE, the session is recorded to FILE once the window is closed; with
+     * --replay FILE, the session recorded in FILE is replayed. With --snapshot FILE, the game resumes the
+     * world saved in FILE if it exists, and saves the world to FILE once the window is closed. Running with
+     * -Dpepse.maxFps=N caps the rendering at N frames per second, and -Dpepse.interpolate=false draws the
+     * avatar at its simulated position instead of interpolating it between simulation steps. The live
+     * landscape is capped at -Dpepse.maxObjects=N objects and -Dpepse.maxObjectMb=N estimated megabytes,
+     * and -Dpepse.chunkTuner=off keeps the landscape's chunk size at half the window's width. With
+     * -Dpepse.worldRecording=FILE, the world's state is recorded to FILE for RecordingViewer, and with
+     * -Dpepse.startX=N a new world starts N pixels away from the spawn point. Holding the down key digs
+     * into the ground under the avatar and holding the up key piles it up; at most -Dpepse.rebuildColumns=N
+     * edited columns are rebuilt on every step. With -Dpepse.exitWhenSteady=true, the game exits once its
+     * frame rate is steady, which is how CdsLauncher times a launch.
+     *
+     * @param args - the command line arguments.
+     */
+    public static void main(String[] args) throws IOException {
+        StartupTimer.start();
+        if (args.length == 2 && args[0].equals(REPLAY_ARG)) {
+            PepseGameManager replay = forReplay(InputTrace.read(Paths.get(args[1])));
+            Runtime.getRuntime().addShutdownHook(new Thread(replay::dumpFrameTimes));
+            replay.run();
+            return;
+        }
+        PepseGameManager game = new PepseGameManager();
+        Path snapshotPath = null;
+        if (args.length == 2 && args[0].equals(SNAPSHOT_ARG)) {
+            snapshotPath = Paths.get(args[1]);
+            if (Files.exists(snapshotPath)) {
+                game = forResume(WorldSnapshot.read(snapshotPath));
+            }
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(game::dumpFrameTimes));
+        InputTrace trace = null;
+        if (args.length == 2 && args[0].equals(RECORD_ARG)) {
+            trace = game.startRecording();
+        }
+        game.run();
+        if (snapshotPath != null) {
+            game.saveSnapshot(snapshotPath);
+        }
+        if (trace != null) {
+            trace.write(Paths.get(args[1]));
+        }
+        if (EXIT_WHEN_STEADY) {
+            System.exit(0);
+        }
     }
 
 
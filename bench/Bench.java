@@ -0,0 +1,114 @@
+package pepse.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.IntSupplier;
+
+/**
+ * A small JMH-style harness: every benchmark runs a number of timed warmup iterations, and then a number
+ * of measured iterations, for which the mean throughput and the allocation rate of the benchmark thread
+ * are reported. Results are consumed into a sink, so the JIT cannot drop the measured work.
+ */
+public class Bench {
+
+    private static final double NANOS_IN_SECOND = 1e9;
+    private static final double BYTES_IN_MB = 1024 * 1024;
+
+    private final int warmupIterations;
+    private final int measureIterations;
+    private final long iterationNanos;
+    private final String filter;
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private int sink;
+
+    /**
+     * Constructor for the Bench.
+     *
+     * @param warmupIterations  - the number of warmup iterations of every benchmark.
+     * @param measureIterations - the number of measured iterations of every benchmark.
+     * @param iterationMillis   - the duration of a single iteration, in milliseconds.
+     * @param filter            - only benchmarks whose name contains the filter are run.
+     */
+    public Bench(int warmupIterations, int measureIterations, long iterationMillis, String filter) {
+        this.warmupIterations = warmupIterations;
+        this.measureIterations = measureIterations;
+        this.iterationNanos = iterationMillis * 1_000_000;
+        this.filter = filter;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        System.out.printf("%-48s %16s %12s %14s%n", "Benchmark", "ops/s", "error", "alloc B/op");
+    }
+
+    /**
+     * Runs a benchmark and prints its result.
+     *
+     * @param name      - the name of the benchmark.
+     * @param operation - a single operation; its result is consumed.
+     */
+    public void run(String name, IntSupplier operation) {
+        if (!matches(name)) {
+            return;
+        }
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(operation);
+        }
+        double[] throughput = new double[measureIterations];
+        long operations = 0;
+        long allocated = 0;
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < measureIterations; i++) {
+            long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            long count = iteration(operation);
+            long elapsed = System.nanoTime() - start;
+            allocated += threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            operations += count;
+            throughput[i] = count * NANOS_IN_SECOND / elapsed;
+        }
+        double mean = 0;
+        for (double value : throughput) {
+            mean += value / measureIterations;
+        }
+        double variance = 0;
+        for (double value : throughput) {
+            variance += (value - mean) * (value - mean) / Math.max(measureIterations - 1, 1);
+        }
+        System.out.printf("%-48s %16.1f %12.1f %14.1f%n", name, mean, Math.sqrt(variance),
+                (double) allocated / operations);
+    }
+
+    /**
+     * Checks if a benchmark passes the filter, to skip an expensive setup of a benchmark which won't run.
+     *
+     * @param name - the name of the benchmark.
+     * @return true if the benchmark runs; False otherwise.
+     */
+    public boolean matches(String name) {
+        return name.contains(filter);
+    }
+
+    /**
+     * Getter for the allocation rate of the whole process, for the final report.
+     *
+     * @return the number of megabytes allocated by the calling thread so far.
+     */
+    public double allocatedMegabytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId()) / BYTES_IN_MB;
+    }
+
+    /**
+     * @return a value derived from all the results, which keeps them alive.
+     */
+    public int sink() {
+        return sink;
+    }
+
+    private long iteration(IntSupplier operation) {
+        long end = System.nanoTime() + iterationNanos;
+        long count = 0;
+        do {
+            sink += operation.getAsInt();
+            count++;
+        } while (System.nanoTime() < end);
+        return count;
+    }
+}
@@ -0,0 +1,72 @@
+package pepse.bench;
+
+import danogl.collisions.GameObjectCollection;
+import danogl.collisions.Layer;
+import danogl.util.Vector2;
+import pepse.util.TimerWheel;
+import pepse.world.Block;
+import pepse.world.QualityGovernor;
+import pepse.world.Terrain;
+import pepse.world.WorldOrigin;
+import pepse.world.trees.LeafPalette;
+import pepse.world.trees.Tree;
+import pepse.world.trees.TreeFactory;
+import pepse.world.trees.TrunkIndex;
+
+/**
+ * Measures the heap retained per planned tree, after a full collection, and fails if a tree keeps more than
+ * MAX_BYTES_PER_TREE bytes. A tree is plain data: its object header, its position, trunk height and leaf
+ * mask, a reference to its shared TreeType, and its slot in the array holding it. Before Tree was plain
+ * data, every tree was a game-objects collection of its own, so a regression back to per-tree objects
+ * shows up as a breach of the bound.
+ * <p>
+ * Usage: {@code java -cp ... pepse.bench.TreeHeap [trees]}
+ */
+public class TreeHeap {
+
+    private static final Vector2 WINDOW_DIMENSIONS = new Vector2(1000, 600);
+    private static final int SEED = 42;
+    private static final int DEFAULT_TREES = 100_000;
+    private static final int GC_ROUNDS = 5;
+    private static final float TIMER_TICK = 1 / 60f;
+    private static final int TIMER_WHEEL_SIZE = 512;
+    private static final long FRAME_BUDGET_NANOS = 16_600_000;
+    private static final float CYCLE_LENGTH = 30;
+    /**
+     * The most bytes a planned tree may keep: a 32 bytes object and a 4 bytes reference slot, with room for
+     * the collector's noise.
+     */
+    private static final double MAX_BYTES_PER_TREE = 48;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int treeCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TREES;
+        Terrain terrain = new Terrain(new GameObjectCollection(), Layer.STATIC_OBJECTS, WINDOW_DIMENSIONS,
+                SEED, new WorldOrigin(0));
+        TreeFactory factory = new TreeFactory(new GameObjectCollection(), terrain, SEED, new TrunkIndex(),
+                new TimerWheel(TIMER_TICK, TIMER_WHEEL_SIZE), new QualityGovernor(FRAME_BUDGET_NANOS),
+                new LeafPalette(CYCLE_LENGTH));
+
+        long before = usedHeap();
+        Tree[] trees = new Tree[treeCount];
+        for (int i = 0; i < treeCount; i++) {
+            trees[i] = factory.planTree(i * Block.SIZE);
+        }
+        double bytesPerTree = (usedHeap() - before) / (double) treeCount;
+
+        System.out.printf("trees=%d heap=%.1f B/tree (limit %.0f)%n", trees.length, bytesPerTree,
+                MAX_BYTES_PER_TREE);
+        System.exit(bytesPerTree <= MAX_BYTES_PER_TREE ? 0 : 1);
+    }
+
+    /**
+     * @return the heap in use after a few full collections, in bytes.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < GC_ROUNDS; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
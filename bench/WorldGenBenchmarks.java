@@ -0,0 +1,236 @@
+package pepse.bench;
+
+import danogl.collisions.GameObjectCollection;
+import danogl.collisions.Layer;
+import danogl.gui.rendering.RectangleRenderable;
+import danogl.util.Vector2;
+import pepse.util.TimerWheel;
+import pepse.world.Avatar;
+import pepse.world.Block;
+import pepse.world.ChunkBudget;
+import pepse.world.CollectionManager;
+import pepse.world.NoiseGenerator;
+import pepse.world.QualityGovernor;
+import pepse.world.Terrain;
+import pepse.world.TerrainEdits;
+import pepse.world.WorldOrigin;
+import pepse.world.trees.ForestManager;
+import pepse.world.trees.Leaf;
+import pepse.world.trees.LeafPalette;
+import pepse.world.trees.TreeFactory;
+import pepse.world.trees.TreeType;
+import pepse.world.trees.TrunkIndex;
+
+import java.awt.*;
+
+/**
+ * Benchmarks of the world generation hot paths: the noise and the terrain height, the location-based
+ * random draws of the forest, range rounding, per-chunk generation of ground and trees, the landscape
+ * manager's update with many live objects, range queries over the trunks of 10k trees, once through the
+ * trunk index and once by a linear scan over the trunks, continuous digging into the terrain with the
+ * rebuild of the dug columns, and the recoloring of the leaves for a season step: once through the
+ * shared palette, and once by giving every leaf a renderable of its own, as the leaves were drawn before
+ * the palette.
+ * <p>
+ * Usage: {@code java -cp ... pepse.bench.WorldGenBenchmarks [filter] [warmup] [iterations] [millis]}
+ */
+public class WorldGenBenchmarks {
+
+    private static final Vector2 WINDOW_DIMENSIONS = new Vector2(1000, 600);
+    private static final int SEED = 42;
+    private static final int[] DISTANCES = {0, 1_000, 10_000, 100_000, 1_000_000};
+    private static final int[] LIVE_OBJECTS = {1_000, 10_000, 100_000};
+    private static final int CHUNK_SIZE = (int) WINDOW_DIMENSIONS.x() / 2;
+    private static final int FOREST_DENSITY_FACTOR = 15;
+    private static final float TIMER_TICK = 1 / 60f;
+    private static final int TIMER_WHEEL_SIZE = 512;
+    private static final long FRAME_BUDGET_NANOS = 16_600_000;
+    private static final float DIG_STEP = 0.5f;
+    private static final int DUG_COLUMNS = 2 * CHUNK_SIZE / Block.SIZE;
+    private static final float CYCLE_LENGTH = 30;
+    private static final int[] LEAF_COUNTS = {1_000, 10_000, 100_000};
+    private static final int TREE_COUNT = 10_000;
+    private static final int TREE_SPACING = 3 * Block.SIZE;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        String filter = args.length > 0 ? args[0] : "";
+        int warmup = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        long millis = args.length > 3 ? Long.parseLong(args[3]) : 1000;
+        Bench bench = new Bench(warmup, iterations, millis, filter);
+
+        NoiseGenerator noise = new NoiseGenerator(SEED);
+        float[] x = {0};
+        bench.run("NoiseGenerator.noise", () -> Float.floatToIntBits(noise.noise(x[0]++)));
+
+        Terrain terrain = new Terrain(new GameObjectCollection(), Layer.STATIC_OBJECTS, WINDOW_DIMENSIONS,
+                SEED, new WorldOrigin(0));
+        bench.run("Terrain.groundHeightAt", () -> Float.floatToIntBits(terrain.groundHeightAt(x[0]++)));
+
+        for (int distance : DISTANCES) {
+            bench.run("ForestManager.nextBoolByX |x|=" + distance,
+                    () -> ForestManager.nextBoolByX(distance, SEED, FOREST_DENSITY_FACTOR) ? 1 : 0);
+            bench.run("ForestManager.nextIntByX |x|=" + distance,
+                    () -> ForestManager.nextIntByX(distance, FOREST_DENSITY_FACTOR, SEED));
+        }
+
+        int[] minX = {-CHUNK_SIZE};
+        bench.run("Block.fixRange", () -> Block.fixRange(minX[0]++, minX[0] + CHUNK_SIZE)[1]);
+
+        for (int distance : DISTANCES) {
+            bench.run("Terrain.createInRange chunk@" + distance, () -> {
+                GameObjectCollection gameObjects = new GameObjectCollection();
+                new Terrain(gameObjects, Layer.STATIC_OBJECTS, WINDOW_DIMENSIONS, SEED, new WorldOrigin(0))
+                        .createInRange(distance, distance + CHUNK_SIZE);
+                return gameObjects.hashCode();
+            });
+            bench.run("TreeFactory.createInRange chunk@" + distance, () -> {
+                GameObjectCollection gameObjects = new GameObjectCollection();
+                TrunkIndex trunkIndex = new TrunkIndex();
+                new TreeFactory(gameObjects, terrain, SEED, trunkIndex,
+                        new TimerWheel(TIMER_TICK, TIMER_WHEEL_SIZE), new QualityGovernor(FRAME_BUDGET_NANOS),
+                        new LeafPalette(CYCLE_LENGTH)).createInRange(distance, distance + CHUNK_SIZE);
+                return trunkIndex.size();
+            });
+        }
+
+        for (int liveObjects : LIVE_OBJECTS) {
+            String name = "CollectionManager.updateLandscape live=" + liveObjects;
+            if (!bench.matches(name)) {
+                continue;
+            }
+            CollectionManager collectionManager = landscape(liveObjects);
+            bench.run(name, () -> {
+                collectionManager.updateLandscape();
+                return 1;
+            });
+        }
+        int[] trunkXs = new int[TREE_COUNT];
+        TrunkIndex trees = new TrunkIndex();
+        for (int i = 0; i < TREE_COUNT; i++) {
+            trunkXs[i] = i * TREE_SPACING;
+            trees.add(trunkXs[i], i % TreeType.count(), Block.SIZE);
+        }
+        int worldWidth = TREE_COUNT * TREE_SPACING;
+        int[] queryX = {0};
+        bench.run("TrunkIndex.countInRange trees=" + TREE_COUNT, () -> {
+            int from = queryX[0]++ * Block.SIZE % worldWidth;
+            return trees.countInRange(from, from + CHUNK_SIZE);
+        });
+        bench.run("linear scan countInRange trees=" + TREE_COUNT, () -> {
+            int from = queryX[0]++ * Block.SIZE % worldWidth;
+            int count = 0;
+            for (int trunkX : trunkXs) {
+                if (trunkX + Block.SIZE > from && trunkX <= from + CHUNK_SIZE) {
+                    count++;
+                }
+            }
+            return count;
+        });
+
+        TerrainEdits edits = new TerrainEdits();
+        long[] column = {0};
+        long[] taken = new long[CollectionManager.REBUILD_COLUMNS];
+        bench.run("TerrainEdits.set+takeDirty", () -> {
+            edits.set(column[0]++ % (DUG_COLUMNS * TerrainEdits.COLUMNS_PER_CHUNK), column[0]);
+            return edits.takeDirty(taken);
+        });
+        Terrain editedTerrain = new Terrain(new GameObjectCollection(), Layer.STATIC_OBJECTS,
+                WINDOW_DIMENSIONS, SEED, new WorldOrigin(0));
+        for (int i = 0; i < DUG_COLUMNS; i++) {
+            editedTerrain.editGround(i * Block.SIZE, Block.SIZE);
+        }
+        float[] editedX = {0};
+        bench.run("Terrain.groundHeightAt edited", () -> Float.floatToIntBits(
+                editedTerrain.groundHeightAt(editedX[0]++ % (DUG_COLUMNS * Block.SIZE))));
+
+        String digName = "CollectionManager.updateLandscape digging";
+        if (bench.matches(digName)) {
+            GameObjectCollection gameObjects = new GameObjectCollection();
+            Terrain dugTerrain = new Terrain(gameObjects, Layer.STATIC_OBJECTS, WINDOW_DIMENSIONS, SEED,
+                    new WorldOrigin(0));
+            dugTerrain.createInRange(0, DUG_COLUMNS * Block.SIZE);
+            CollectionManager collectionManager = landscape(gameObjects, dugTerrain);
+            int[] dug = {0};
+//            Every pass over the columns digs down, and the next one piles them back up:
+            bench.run(digName, () -> {
+                float dy = dug[0] / DUG_COLUMNS % 2 == 0 ? DIG_STEP : -DIG_STEP;
+                dugTerrain.editGround((dug[0]++ % DUG_COLUMNS) * Block.SIZE, dy);
+                collectionManager.updateLandscape();
+                return dugTerrain.getEdits().dirtyCount();
+            });
+        }
+        for (int leafCount : LEAF_COUNTS) {
+            String sharedName = "LeafPalette.setStep leaves=" + leafCount;
+            String ownName = "Leaf own renderable recolor leaves=" + leafCount;
+            if (!bench.matches(sharedName) && !bench.matches(ownName)) {
+                continue;
+            }
+            LeafPalette palette = new LeafPalette(CYCLE_LENGTH);
+            Leaf[] leaves = leaves(leafCount, palette);
+            bench.run(sharedName, () -> {
+                palette.setStep(palette.getStep() + 1);
+                return leaves.length;
+            });
+            Color[] seasonColors = {TreeType.OAK.leafColor(), Color.ORANGE};
+            int[] season = {0};
+            bench.run(ownName, () -> {
+                Color color = seasonColors[season[0]++ % seasonColors.length];
+                for (Leaf leaf : leaves) {
+                    leaf.renderer().setRenderable(new RectangleRenderable(color));
+                }
+                return leaves.length;
+            });
+        }
+        System.out.printf("total allocated: %.1f MB (sink %d)%n", bench.allocatedMegabytes(), bench.sink());
+    }
+
+    /**
+     * Creates a landscape manager over the given number of live ground blocks, all of them in the range
+     * the manager keeps, with the avatar standing still in the middle.
+     */
+    private static CollectionManager landscape(int liveObjects) {
+        GameObjectCollection gameObjects = new GameObjectCollection();
+        Terrain terrain = new Terrain(gameObjects, Layer.STATIC_OBJECTS, WINDOW_DIMENSIONS, SEED,
+                new WorldOrigin(0));
+        RectangleRenderable renderable = new RectangleRenderable(Color.GRAY);
+        int keepRange = 2 * CHUNK_SIZE;
+        for (int i = 0; i < liveObjects; i++) {
+            Block block = new Block(new Vector2(CHUNK_SIZE + (i % keepRange) - keepRange / 2f, 0),
+                    renderable);
+            gameObjects.addGameObject(block, Layer.STATIC_OBJECTS);
+        }
+        return landscape(gameObjects, terrain);
+    }
+
+    /**
+     * Creates a landscape manager over the given objects, with the avatar standing still in the middle
+     * of the range the manager keeps.
+     */
+    private static CollectionManager landscape(GameObjectCollection gameObjects, Terrain terrain) {
+        Avatar avatar = new Avatar(new Vector2(CHUNK_SIZE, 0), Vector2.ONES.mult(Avatar.AVATAR_SIZE), null);
+        TrunkIndex trunkIndex = new TrunkIndex();
+        TreeFactory treeFactory = new TreeFactory(gameObjects, terrain, SEED, trunkIndex,
+                new TimerWheel(TIMER_TICK, TIMER_WHEEL_SIZE), new QualityGovernor(FRAME_BUDGET_NANOS),
+                new LeafPalette(CYCLE_LENGTH));
+        return new CollectionManager(WINDOW_DIMENSIONS.x(), terrain, avatar, gameObjects, treeFactory,
+                trunkIndex, new ChunkBudget(Integer.MAX_VALUE, Long.MAX_VALUE));
+    }
+
+    /**
+     * Creates the given number of leaves, of all the tree types in turn, drawn by the palette's shared
+     * renderables.
+     */
+    private static Leaf[] leaves(int count, LeafPalette palette) {
+        TimerWheel timers = new TimerWheel(TIMER_TICK, TIMER_WHEEL_SIZE);
+        QualityGovernor quality = new QualityGovernor(FRAME_BUDGET_NANOS);
+        Leaf[] leaves = new Leaf[count];
+        for (int i = 0; i < count; i++) {
+            TreeType type = TreeType.byId(i % TreeType.count());
+            leaves[i] = new Leaf(new Vector2(i * Block.SIZE, 0), Vector2.ONES.mult(Block.SIZE),
+                    palette.renderableOf(type), timers, quality, i, i * Block.SIZE);
+        }
+        return leaves;
+    }
+}
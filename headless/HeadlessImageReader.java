@@ -0,0 +1,30 @@
+package pepse.headless;
+
+import danogl.gui.ImageReader;
+import danogl.gui.WindowController;
+import danogl.gui.rendering.ImageRenderable;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * An image reader which reads nothing from the disk, and hands out a single blank image instead.
+ */
+public class HeadlessImageReader extends ImageReader {
+
+    private final ImageRenderable blankImage =
+            new ImageRenderable(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB));
+
+    /**
+     * Constructor for the HeadlessImageReader.
+     *
+     * @param windowController - the simulated window.
+     */
+    public HeadlessImageReader(WindowController windowController) {
+        super(windowController);
+    }
+
+    @Override
+    public ImageRenderable readImage(String imageFilePath, boolean isTopLeftPixelTransparent) {
+        return blankImage;
+    }
+}
@@ -0,0 +1,450 @@
+package pepse.headless;
+
+import pepse.PepseGameManager;
+import pepse.trace.InputTrace;
+import pepse.world.ChunkBudget;
+import pepse.world.WorldSnapshot;
+
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Soak-tests the game without a display: drives the game's update as fast as possible with a fixed
+ * simulated time step and a scripted avatar, and periodically reports the ticks per second, the objects
+ * alive in every layer and the heap use.
+ * <p>
+ * Usage: {@code java -cp ... pepse.headless.HeadlessRunner [--seconds S] [--report R]
+ * [--script walk|patrol|fly] [--render] [--record FILE | --replay FILE] [--alloc-check]
+ * [--agents N,N,...] [--worlds N [--seed S]] [--resume-check [--seed S]]}
+ * <p>
+ * With --record, the scripted session is recorded as an input trace. With --replay, the trace is replayed
+ * to its end instead of the script, and the hash of the final world state is printed, so two runs of the
+ * same trace can be compared before and after a change. With --alloc-check, the scripted avatar is warmed
+ * up and then the bytes allocated by every frame, and by the game's own steps without the engine's
+ * update, are measured; the run fails if either allocates more than its committed budget. With --agents,
+ * the frame time is benchmarked with a crowd of every given size walking and flying around the scripted
+ * avatar. With --worlds, N independent worlds with
+ * consecutive seeds run concurrently, each on its own thread, and their reports are labelled by world.
+ * With --resume-check, a scripted session is saved to a snapshot, and the time to resume it is compared
+ * with the time of a cold start; the run fails if resuming is slower or does not restore the saved world.
+ */
+public class HeadlessRunner {
+
+    private static final int[] WALK = {KeyEvent.VK_RIGHT};
+    private static final int[] WALK_BACK = {KeyEvent.VK_LEFT};
+    private static final int[] FLY = {KeyEvent.VK_RIGHT, KeyEvent.VK_SPACE, KeyEvent.VK_SHIFT};
+    private static final int PATROL_TICKS = 60 * HeadlessSession.TARGET_FRAMERATE;
+    private static final double NANOS_IN_SECOND = 1e9;
+    private static final long BYTES_IN_MB = 1024 * 1024;
+    private static final long BYTES_IN_KB = 1024;
+    private static final int ALLOC_WARMUP_TICKS = 10 * HeadlessSession.TARGET_FRAMERATE;
+    private static final int ALLOC_MEASURED_TICKS = 30 * HeadlessSession.TARGET_FRAMERATE;
+    /**
+     * The most bytes the median frame of --alloc-check may allocate, the engine's update included.
+     */
+    private static final long ALLOC_MEDIAN_BUDGET = 16 * BYTES_IN_KB;
+    /**
+     * The most bytes the game's own steps may allocate in the median frame of --alloc-check, the engine's
+     * update excluded. A steady step is meant to allocate nothing, so the budget is near zero.
+     */
+    private static final long ALLOC_STEP_MEDIAN_BUDGET = 256;
+    /**
+     * The most bytes a frame of --alloc-check may allocate on average, chunk crossings included.
+     */
+    private static final long ALLOC_MEAN_BUDGET = 64 * BYTES_IN_KB;
+    private static final double PERCENTILE_95 = 0.95;
+    private static final double PERCENTILE_99 = 0.99;
+    private static final int AGENTS_WARMUP_TICKS = 5 * HeadlessSession.TARGET_FRAMERATE;
+    private static final int AGENTS_MEASURED_TICKS = 20 * HeadlessSession.TARGET_FRAMERATE;
+    private static final int AGENTS_SEED = 42;
+    private static final double NANOS_IN_MILLI = 1e6;
+    private static final int RESUME_PLAY_TICKS = 30 * HeadlessSession.TARGET_FRAMERATE;
+    private static final int RESUME_REPEATS = 7;
+
+    private final PepseGameManager game;
+    private final HeadlessSession session;
+    private final String script;
+    private final boolean render;
+    private String label = "";
+
+    /**
+     * Constructor for the HeadlessRunner.
+     *
+     * @param script - the movement of the avatar: walk, patrol or fly.
+     * @param render - whether every frame is also rendered off-screen.
+     */
+    public HeadlessRunner(String script, boolean render) {
+        this(new PepseGameManager(), script, render);
+    }
+
+    /**
+     * Constructor for the HeadlessRunner, running the given game.
+     *
+     * @param game   - the game to run.
+     * @param script - the movement of the avatar: walk, patrol or fly.
+     * @param render - whether every frame is also rendered off-screen.
+     */
+    public HeadlessRunner(PepseGameManager game, String script, boolean render) {
+        this.game = game;
+        this.session = new HeadlessSession(game);
+        this.script = script;
+        this.render = render;
+    }
+
+    /**
+     * Runs the game for the given wall time.
+     *
+     * @param seconds       - how long to run, in seconds of wall time.
+     * @param reportSeconds - the interval between two reports, in seconds of wall time.
+     * @return the number of ticks run.
+     */
+    public long run(double seconds, double reportSeconds) {
+        long start = System.nanoTime();
+        long end = start + (long) (seconds * NANOS_IN_SECOND);
+        long nextReport = start + (long) (reportSeconds * NANOS_IN_SECOND);
+        long lastReport = start;
+        long lastTicks = 0;
+        long ticks = 0;
+        while (!session.isClosed()) {
+            frame(ticks);
+            ticks++;
+            long now = System.nanoTime();
+            if (now >= nextReport || now >= end) {
+                report(ticks, (ticks - lastTicks) / ((now - lastReport) / NANOS_IN_SECOND),
+                        (now - start) / NANOS_IN_SECOND);
+                lastReport = now;
+                lastTicks = ticks;
+                nextReport = now + (long) (reportSeconds * NANOS_IN_SECOND);
+            }
+            if (now >= end) {
+                return ticks;
+            }
+        }
+        return ticks;
+    }
+
+    /**
+     * Runs independent worlds concurrently for the given wall time, each on its own thread, and reports
+     * the ticks per second of every world and of all of them together.
+     *
+     * @param worlds        - the number of worlds.
+     * @param seed          - the seeds of the first world; every following world adds one to them.
+     * @param seconds       - how long to run, in seconds of wall time.
+     * @param reportSeconds - the interval between two reports, in seconds of wall time.
+     * @param script        - the movement of the avatars: walk, patrol or fly.
+     * @param render        - whether every frame is also rendered off-screen.
+     */
+    public static void runWorlds(int worlds, int seed, double seconds, double reportSeconds, String script,
+                                 boolean render) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(worlds);
+        List<Future<Long>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < worlds; i++) {
+            int worldSeed = seed + i;
+            String worldLabel = String.format("[world %d seed %d] ", i, worldSeed);
+            results.add(executor.submit(() -> {
+                HeadlessRunner runner = new HeadlessRunner(new PepseGameManager(worldSeed, worldSeed), script,
+                        render);
+                runner.label = worldLabel;
+                return runner.run(seconds, reportSeconds);
+            }));
+        }
+        executor.shutdown();
+        long totalTicks = 0;
+        for (int i = 0; i < worlds; i++) {
+            try {
+                long ticks = results.get(i).get();
+                totalTicks += ticks;
+                System.out.printf("world %d: %d ticks%n", i, ticks);
+            } catch (ExecutionException e) {
+                System.err.printf("world %d failed: %s%n", i, e.getCause());
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / NANOS_IN_SECOND;
+        System.out.printf("%d worlds: %d ticks in %.1fs (%.0f tps in total)%n", worlds, totalTicks, elapsed,
+                totalTicks / elapsed);
+    }
+
+    /**
+     * Runs the game until it closes its window, as a replaying game does at the end of its trace, and
+     * reports the replay's speed and the hash of the final world state.
+     */
+    public void runToEnd() {
+        long start = System.nanoTime();
+        while (!session.isClosed()) {
+            session.update(HeadlessSession.FRAME_TIME);
+        }
+        double elapsed = (System.nanoTime() - start) / NANOS_IN_SECOND;
+        long ticks = session.getFrameCount();
+        System.out.printf("replayed %d ticks in %.2fs (%.0f tps), world state hash: %08x%n", ticks, elapsed,
+                ticks / elapsed, game.worldStateHash());
+    }
+
+    /**
+     * Plays the scripted movement for a while, saves the world to a snapshot file, and then starts the
+     * game cold and resumes it from the file several times each, alternately. The median times of both are
+     * reported, and every resumed world is saved again and compared with the snapshot it was resumed
+     * from.
+     *
+     * @param seed   - the seeds of the world.
+     * @param script - the movement of the avatar: walk, patrol or fly.
+     * @return true if resuming is faster than a cold start and restores the saved world exactly; False
+     * otherwise.
+     * @throws IOException if the snapshot cannot be written or read.
+     */
+    public static boolean checkResume(int seed, String script) throws IOException {
+        HeadlessRunner played = new HeadlessRunner(new PepseGameManager(seed, seed), script, false);
+        for (long tick = 0; tick < RESUME_PLAY_TICKS; tick++) {
+            played.frame(tick);
+        }
+        WorldSnapshot snapshot = played.game.getWorld().snapshot();
+        Path path = Files.createTempFile("pepse", ".snapshot");
+        try {
+            snapshot.write(path);
+            long[] coldNanos = new long[RESUME_REPEATS];
+            long[] resumeNanos = new long[RESUME_REPEATS];
+            boolean exact = true;
+            for (int i = 0; i < RESUME_REPEATS; i++) {
+                long start = System.nanoTime();
+                new HeadlessSession(new PepseGameManager(seed, seed));
+                coldNanos[i] = System.nanoTime() - start;
+                start = System.nanoTime();
+                PepseGameManager resumed = PepseGameManager.forResume(WorldSnapshot.read(path));
+                new HeadlessSession(resumed);
+                resumeNanos[i] = System.nanoTime() - start;
+                exact &= resumed.getWorld().snapshot().sameAs(snapshot);
+            }
+            Arrays.sort(coldNanos);
+            Arrays.sort(resumeNanos);
+            double cold = coldNanos[RESUME_REPEATS / 2] / NANOS_IN_MILLI;
+            double resume = resumeNanos[RESUME_REPEATS / 2] / NANOS_IN_MILLI;
+            System.out.printf("snapshot: %d bytes, %d columns, %d trees%n", Files.size(path),
+                    snapshot.columnCount(), snapshot.treeCount());
+            System.out.printf("cold start %.1fms, resume %.1fms (%.2fx), world restored exactly: %b%n", cold,
+                    resume, cold / resume, exact);
+            return exact && resume < cold;
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * Measures the bytes the game's thread allocates in every frame of the scripted movement, after a
+     * warm-up which lets the JIT compile the hot paths. Frames in which the avatar crosses into another
+     * chunk legitimately allocate the new chunk, so the median frame is held to a tight budget, and the
+     * mean, which includes the crossings, to a looser one. The 95th percentile is reported as well. The
+     * bytes allocated by the game's own part of the steps, without the engine's update, are measured
+     * separately, and their median frame is held to a near-zero budget.
+     *
+     * @return true if the median and the mean frame, and the median of the game's own steps, are within
+     * the committed budgets; False otherwise.
+     */
+    public boolean checkAllocations() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        game.countStepAllocations();
+        long tick = 0;
+        for (; tick < ALLOC_WARMUP_TICKS; tick++) {
+            session.update(HeadlessSession.FRAME_TIME, keysAt(tick));
+        }
+        long[] frameBytes = new long[ALLOC_MEASURED_TICKS];
+        long[] stepBytes = new long[ALLOC_MEASURED_TICKS];
+        long total = 0;
+        long before = threads.getCurrentThreadAllocatedBytes();
+        long stepsBefore = game.getStepAllocatedBytes();
+        for (int frame = 0; frame < frameBytes.length; frame++, tick++) {
+            session.update(HeadlessSession.FRAME_TIME, keysAt(tick));
+            long after = threads.getCurrentThreadAllocatedBytes();
+            long stepsAfter = game.getStepAllocatedBytes();
+            frameBytes[frame] = after - before;
+            stepBytes[frame] = stepsAfter - stepsBefore;
+            total += frameBytes[frame];
+            before = after;
+            stepsBefore = stepsAfter;
+        }
+        Arrays.sort(frameBytes);
+        Arrays.sort(stepBytes);
+        long stepMedian = stepBytes[stepBytes.length / 2];
+        long median = frameBytes[frameBytes.length / 2];
+        long mean = total / frameBytes.length;
+        System.out.printf("allocated bytes per frame: median=%d (budget %d) mean=%d (budget %d) p95=%d " +
+                        "max=%d%n", median, ALLOC_MEDIAN_BUDGET, mean, ALLOC_MEAN_BUDGET,
+                frameBytes[(int) (frameBytes.length * PERCENTILE_95)], frameBytes[frameBytes.length - 1]);
+        System.out.printf("allocated bytes per frame by the game's steps: median=%d (budget %d) p95=%d " +
+                        "max=%d%n", stepMedian, ALLOC_STEP_MEDIAN_BUDGET,
+                stepBytes[(int) (stepBytes.length * PERCENTILE_95)], stepBytes[stepBytes.length - 1]);
+        return median <= ALLOC_MEDIAN_BUDGET && mean <= ALLOC_MEAN_BUDGET
+                && stepMedian <= ALLOC_STEP_MEDIAN_BUDGET;
+    }
+
+    /**
+     * Benchmarks the frame time with a crowd of agents. Every crowd size runs in a fresh game with the
+     * same seeds, so the sizes only differ in the number of agents.
+     *
+     * @param agentCounts - the crowd sizes to benchmark.
+     * @param script      - the movement of the user's avatar: walk, patrol or fly.
+     * @param render      - whether every frame is also rendered off-screen.
+     */
+    public static void benchmarkAgents(int[] agentCounts, String script, boolean render) {
+        for (int agents : agentCounts) {
+            PepseGameManager game = new PepseGameManager(AGENTS_SEED, AGENTS_SEED);
+            HeadlessRunner runner = new HeadlessRunner(game, script, render);
+            game.spawnAgents(agents);
+            long tick = 0;
+            for (; tick < AGENTS_WARMUP_TICKS; tick++) {
+                runner.frame(tick);
+            }
+            long[] frameNanos = new long[AGENTS_MEASURED_TICKS];
+            long total = 0;
+            for (int frame = 0; frame < frameNanos.length; frame++, tick++) {
+                long start = System.nanoTime();
+                runner.frame(tick);
+                frameNanos[frame] = System.nanoTime() - start;
+                total += frameNanos[frame];
+            }
+            Arrays.sort(frameNanos);
+            System.out.printf("agents=%d frame time: mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms%n", agents,
+                    total / (double) frameNanos.length / NANOS_IN_MILLI,
+                    frameNanos[frameNanos.length / 2] / NANOS_IN_MILLI,
+                    frameNanos[(int) (frameNanos.length * PERCENTILE_99)] / NANOS_IN_MILLI,
+                    frameNanos[frameNanos.length - 1] / NANOS_IN_MILLI);
+        }
+    }
+
+    /**
+     * Runs a single frame of the scripted movement, rendering it if the runner renders.
+     */
+    private void frame(long tick) {
+        if (render) {
+            session.step(HeadlessSession.FRAME_TIME, keysAt(tick));
+        } else {
+            session.update(HeadlessSession.FRAME_TIME, keysAt(tick));
+        }
+    }
+
+    /**
+     * @return the keys the scripted avatar holds in the given tick.
+     */
+    private int[] keysAt(long tick) {
+        switch (script) {
+            case "fly":
+                return FLY;
+            case "patrol":
+                return (tick / PATROL_TICKS) % 2 == 0 ? WALK : WALK_BACK;
+            default:
+                return WALK;
+        }
+    }
+
+    private void report(long ticks, double ticksPerSecond, double elapsedSeconds) {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        StringBuilder line = new StringBuilder(label).append(String.format(
+                "t=%.0fs ticks=%d tps=%.0f heap=%dMB/%dMB quality=%s objects:", elapsedSeconds, ticks,
+                ticksPerSecond, heap.getUsed() / BYTES_IN_MB, heap.getCommitted() / BYTES_IN_MB,
+                game.getWorld().getQualityGovernor().getTier()));
+        for (int i = 0; i < PepseGameManager.WORLD_LAYERS.length; i++) {
+            line.append(' ').append(PepseGameManager.WORLD_LAYER_NAMES[i]).append('=')
+                    .append(game.countObjectsInLayer(PepseGameManager.WORLD_LAYERS[i]));
+        }
+        ChunkBudget budget = game.getWorld().getChunkBudget();
+        line.append(String.format(" budget: live=%d bytes=%dKB chunks=%d evictions=%d restores=%d chunk=%dpx",
+                budget.getLiveObjects(), budget.getEstimatedBytes() / BYTES_IN_KB, budget.getResidentChunks(),
+                budget.getEvictions(), budget.getRestores(), game.getWorld().getChunkSize()));
+        System.out.println(line);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        double seconds = 60;
+        double reportSeconds = 5;
+        String script = "walk";
+        boolean render = false;
+        String recordPath = null;
+        String replayPath = null;
+        boolean allocCheck = false;
+        int[] agentCounts = null;
+        int worlds = 0;
+        boolean resumeCheck = false;
+        int seed = new Random().nextInt();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seconds":
+                    seconds = Double.parseDouble(args[++i]);
+                    break;
+                case "--report":
+                    reportSeconds = Double.parseDouble(args[++i]);
+                    break;
+                case "--script":
+                    script = args[++i];
+                    break;
+                case "--render":
+                    render = true;
+                    break;
+                case "--record":
+                    recordPath = args[++i];
+                    break;
+                case "--replay":
+                    replayPath = args[++i];
+                    break;
+                case "--alloc-check":
+                    allocCheck = true;
+                    break;
+                case "--agents":
+                    agentCounts = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "--worlds":
+                    worlds = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Integer.parseInt(args[++i]);
+                    break;
+                case "--resume-check":
+                    resumeCheck = true;
+                    break;
+                default:
+                    System.err.println("unknown argument: " + args[i]);
+                    System.exit(1);
+            }
+        }
+        if (replayPath != null) {
+            PepseGameManager game = PepseGameManager.forReplay(InputTrace.read(Paths.get(replayPath)));
+            new HeadlessRunner(game, script, render).runToEnd();
+            System.exit(0);
+        }
+        if (agentCounts != null) {
+            benchmarkAgents(agentCounts, script, render);
+            System.exit(0);
+        }
+        if (worlds > 0) {
+            runWorlds(worlds, seed, seconds, reportSeconds, script, render);
+            System.exit(0);
+        }
+        if (resumeCheck) {
+            System.exit(checkResume(seed, script) ? 0 : 1);
+        }
+        if (allocCheck) {
+            boolean passed = new HeadlessRunner(script, false).checkAllocations();
+            System.exit(passed ? 0 : 1);
+        }
+        PepseGameManager game = new PepseGameManager();
+        InputTrace trace = recordPath == null ? null : game.startRecording();
+        new HeadlessRunner(game, script, render).run(seconds, reportSeconds);
+        if (trace != null) {
+            trace.write(Paths.get(recordPath));
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,132 @@
+package pepse.headless;
+
+import danogl.GameManager;
+import danogl.util.Vector2;
+import pepse.PepseGameManager;
+import pepse.trace.ScriptedInputListener;
+import pepse.util.StartupTimer;
+import pepse.util.SteadyFrameRate;
+
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+
+/**
+ * Runs a game without a window: the game is initialized with the headless stand-ins, and every frame
+ * updates the game and renders it into an off-screen image.
+ */
+public class HeadlessSession {
+
+    public static final Vector2 WINDOW_DIMENSIONS = new Vector2(1000, 600);
+    public static final int TARGET_FRAMERATE = 60;
+    public static final float FRAME_TIME = 1f / TARGET_FRAMERATE;
+    private static final String TRAINING_ARG = "--training";
+    /**
+     * The training session: pairs of (keys to hold, number of frames to hold them).
+     */
+    private static final int[][][] TRAINING_SCRIPT = {
+            {{KeyEvent.VK_RIGHT}, {240}},
+            {{KeyEvent.VK_RIGHT, KeyEvent.VK_SPACE, KeyEvent.VK_SHIFT}, {90}},
+            {{}, {60}},
+            {{KeyEvent.VK_LEFT}, {480}},
+            {{KeyEvent.VK_SPACE}, {30}},
+            {{KeyEvent.VK_RIGHT}, {240}},
+    };
+
+    private final GameManager game;
+    private final ScriptedInputListener inputListener = new ScriptedInputListener();
+    private final HeadlessWindowController windowController;
+    private final BufferedImage frame;
+    private final Graphics2D graphics;
+    private final SteadyFrameRate steadyFrameRate = new SteadyFrameRate();
+    private long frameCount = 0;
+
+    /**
+     * Constructor for the HeadlessSession. Initializes the given game.
+     *
+     * @param game - the game to run.
+     */
+    public HeadlessSession(GameManager game) {
+        this.game = game;
+        this.windowController = new HeadlessWindowController(WINDOW_DIMENSIONS, inputListener,
+                TARGET_FRAMERATE);
+        HeadlessImageReader imageReader = new HeadlessImageReader(windowController);
+        windowController.setImageReader(imageReader);
+        this.frame = new BufferedImage((int) WINDOW_DIMENSIONS.x(), (int) WINDOW_DIMENSIONS.y(),
+                BufferedImage.TYPE_INT_RGB);
+        this.graphics = frame.createGraphics();
+        game.initializeGame(imageReader, null, inputListener, windowController);
+    }
+
+    /**
+     * Runs a single frame.
+     *
+     * @param deltaTime - the simulated time of the frame, in seconds.
+     * @param keyCodes  - the keys held during the frame.
+     */
+    public void step(float deltaTime, int... keyCodes) {
+        long start = System.nanoTime();
+        inputListener.setPressedKeys(keyCodes);
+        game.update(deltaTime);
+        game.render(graphics);
+        steadyFrameRate.record(System.nanoTime() - start);
+        frameCount++;
+    }
+
+    /**
+     * Runs a single frame without rendering it.
+     *
+     * @param deltaTime - the simulated time of the frame, in seconds.
+     * @param keyCodes  - the keys held during the frame.
+     */
+    public void update(float deltaTime, int... keyCodes) {
+        inputListener.setPressedKeys(keyCodes);
+        game.update(deltaTime);
+        frameCount++;
+    }
+
+    /**
+     * Checks if the game asked to close its window.
+     *
+     * @return true if the session is over; False otherwise.
+     */
+    public boolean isClosed() {
+        return windowController.isClosed();
+    }
+
+    /**
+     * Getter for the number of frames run so far.
+     *
+     * @return the number of frames.
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Runs the scripted training session once.
+     */
+    public void runTrainingScript() {
+        for (int[][] step : TRAINING_SCRIPT) {
+            for (int i = 0; i < step[1][0] && !isClosed(); i++) {
+                step(FRAME_TIME, step[0]);
+            }
+        }
+    }
+
+    /**
+     * Runs a headless game. With --training, runs the scripted training session, which is used to dump
+     * the class-data-sharing archive of the game.
+     *
+     * @param args - the command line arguments.
+     */
+    public static void main(String[] args) {
+        StartupTimer.start();
+        System.setProperty("java.awt.headless", "true");
+        HeadlessSession session = new HeadlessSession(new PepseGameManager());
+        if (args.length > 0 && args[0].equals(TRAINING_ARG)) {
+            session.runTrainingScript();
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,119 @@
+package pepse.headless;
+
+import danogl.gui.ImageReader;
+import danogl.gui.MessageBox;
+import danogl.gui.SoundReader;
+import danogl.gui.UserInputListener;
+import danogl.gui.WindowController;
+import danogl.util.Vector2;
+
+/**
+ * A window controller with no window behind it, for running the game without a display. The window has
+ * a fixed simulated size, and closing it only raises a flag.
+ */
+public class HeadlessWindowController implements WindowController {
+
+    private final Vector2 windowDimensions;
+    private final UserInputListener inputListener;
+    private ImageReader imageReader;
+    private int targetFramerate;
+    private float timeScale = 1;
+    private boolean closed = false;
+
+    /**
+     * Constructor for the HeadlessWindowController.
+     *
+     * @param windowDimensions - the simulated size of the window.
+     * @param inputListener    - the input listener of the simulated window.
+     * @param targetFramerate  - the simulated frame rate.
+     */
+    public HeadlessWindowController(Vector2 windowDimensions, UserInputListener inputListener,
+                                    int targetFramerate) {
+        this.windowDimensions = windowDimensions;
+        this.inputListener = inputListener;
+        this.targetFramerate = targetFramerate;
+    }
+
+    /**
+     * Checks if the game asked to close the window.
+     *
+     * @return true if the window was closed; False otherwise.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Sets the image reader returned by the controller.
+     *
+     * @param imageReader - the image reader of the simulated window.
+     */
+    public void setImageReader(ImageReader imageReader) {
+        this.imageReader = imageReader;
+    }
+
+    @Override
+    public Vector2 getWindowDimensions() {
+        return windowDimensions;
+    }
+
+    @Override
+    public void closeWindow() {
+        closed = true;
+    }
+
+    @Override
+    public void setTargetFramerate(int fps) {
+        targetFramerate = fps;
+    }
+
+    @Override
+    public int getTargetFramerate() {
+        return targetFramerate;
+    }
+
+    @Override
+    public void resetGame() {
+        closed = true;
+    }
+
+    @Override
+    public void showMessageBox(String msg) {
+        System.out.println(msg);
+    }
+
+    @Override
+    public boolean openYesNoDialog(String msg) {
+        return false;
+    }
+
+    @Override
+    public float getTimeScale() {
+        return timeScale;
+    }
+
+    @Override
+    public void setTimeScale(float timeScale) {
+        this.timeScale = timeScale;
+    }
+
+    @Override
+    public UserInputListener getInputListener() {
+        return inputListener;
+    }
+
+    @Override
+    public ImageReader getImageReader() {
+        return imageReader;
+    }
+
+    @Override
+    public SoundReader getSoundReader() {
+        return null;
+    }
+
+    @Override
+    public MessageBox messageBox() {
+        return null;
+    }
+}
@@ -0,0 +1,38 @@
+package pepse.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight-recorder event emitted every time the landscape manager generates a new range of the world.
+ * The event is recorded without a stack trace, since it is always emitted from the same place.
+ */
+@Name("pepse.ChunkLoad")
+@Label("Chunk Load")
+@Category({"Pepse", "World"})
+@Description("Generation of a range of terrain and trees")
+@StackTrace(false)
+public class ChunkLoadEvent extends Event {
+
+    @Label("Min X")
+    @Description("The left edge of the generated range, in world pixels")
+    public long minX;
+
+    @Label("Max X")
+    @Description("The right edge of the generated range, in world pixels")
+    public long maxX;
+
+    @Label("Columns")
+    @Description("The number of terrain columns generated")
+    public int columns;
+
+    @Label("Trees")
+    public int trees;
+
+    @Label("Leaves")
+    public int leaves;
+}
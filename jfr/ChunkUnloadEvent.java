@@ -0,0 +1,31 @@
+package pepse.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight-recorder event emitted every time the landscape manager drops the objects which went out of
+ * sight. The event is recorded without a stack trace, since it is always emitted from the same place.
+ */
+@Name("pepse.ChunkUnload")
+@Label("Chunk Unload")
+@Category({"Pepse", "World"})
+@Description("Removal of the objects outside the loaded range")
+@StackTrace(false)
+public class ChunkUnloadEvent extends Event {
+
+    @Label("Min X")
+    @Description("The left edge of the range which is kept, in world pixels")
+    public long minX;
+
+    @Label("Max X")
+    @Description("The right edge of the range which is kept, in world pixels")
+    public long maxX;
+
+    @Label("Objects Removed")
+    public int objectsRemoved;
+}
@@ -0,0 +1,63 @@
+package pepse.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A periodic flight-recorder event with the number of leaves which fell and were reborn since the
+ * previous event. Emitting an event for every single leaf would flood a long recording, so the leaves
+ * only bump a counter and the recorder samples it at the configured period.
+ */
+@Name("pepse.LeafLifecycle")
+@Label("Leaf Lifecycle")
+@Category({"Pepse", "World"})
+@Description("Leaves which fell and were reborn during the last period")
+@StackTrace(false)
+@Period("1 s")
+public class LeafLifecycleEvent extends Event {
+
+    private static final LongAdder FALLS = new LongAdder();
+    private static final LongAdder REBIRTHS = new LongAdder();
+
+    static {
+        FlightRecorder.addPeriodicEvent(LeafLifecycleEvent.class, LeafLifecycleEvent::emit);
+    }
+
+    @Label("Falls")
+    public long falls;
+
+    @Label("Rebirths")
+    public long rebirths;
+
+    /**
+     * Counts a leaf which started falling.
+     */
+    public static void leafFell() {
+        FALLS.increment();
+    }
+
+    /**
+     * Counts a leaf which was reborn on its tree.
+     */
+    public static void leafReborn() {
+        REBIRTHS.increment();
+    }
+
+    /**
+     * Commits the counts gathered since the previous period, and resets them.
+     */
+    private static void emit() {
+        LeafLifecycleEvent event = new LeafLifecycleEvent();
+        event.falls = FALLS.sumThenReset();
+        event.rebirths = REBIRTHS.sumThenReset();
+        event.commit();
+    }
+}
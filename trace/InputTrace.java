@@ -0,0 +1,229 @@
+package pepse.trace;
+
+import danogl.gui.UserInputListener;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static java.awt.event.KeyEvent.VK_DOWN;
+import static java.awt.event.KeyEvent.VK_LEFT;
+import static java.awt.event.KeyEvent.VK_RIGHT;
+import static java.awt.event.KeyEvent.VK_SHIFT;
+import static java.awt.event.KeyEvent.VK_SPACE;
+import static java.awt.event.KeyEvent.VK_UP;
+
+/**
+ * A recording of a game session: the world's seeds, the time step of the replay, and the state of the
+ * keys the avatar reads on every frame. On disk, the key states are stored as one bit per key, run-length
+ * encoded, so a session holding the same keys for a long time takes a few bytes.
+ */
+public class InputTrace {
+
+    /**
+     * The keys recorded on every frame, by their bit in the frame's mask.
+     */
+    public static final int[] KEYS = {VK_LEFT, VK_RIGHT, VK_SPACE, VK_SHIFT, VK_DOWN, VK_UP};
+    private static final int MAGIC = 0x50455054;
+    private static final int VERSION = 1;
+    private static final int INIT_CAPACITY = 1024;
+    private static final int VARINT_BITS = 7;
+    private static final int VARINT_MASK = 0x7F;
+    private static final int VARINT_MORE = 0x80;
+    private static final int[][] KEYS_BY_MASK = new int[1 << KEYS.length][];
+
+    static {
+        for (int mask = 0; mask < KEYS_BY_MASK.length; mask++) {
+            KEYS_BY_MASK[mask] = new int[Integer.bitCount(mask)];
+            int index = 0;
+            for (int bit = 0; bit < KEYS.length; bit++) {
+                if ((mask & (1 << bit)) != 0) {
+                    KEYS_BY_MASK[mask][index++] = KEYS[bit];
+                }
+            }
+        }
+    }
+
+    private final int terrainSeed;
+    private final int forestSeed;
+    private final float timestep;
+    private byte[] masks = new byte[INIT_CAPACITY];
+    private int frameCount = 0;
+
+    /**
+     * Constructor for an empty trace.
+     *
+     * @param terrainSeed - the seed of the terrain.
+     * @param forestSeed  - the seed of the forest.
+     * @param timestep    - the simulated time of every frame in the replay, in seconds.
+     */
+    public InputTrace(int terrainSeed, int forestSeed, float timestep) {
+        this.terrainSeed = terrainSeed;
+        this.forestSeed = forestSeed;
+        this.timestep = timestep;
+    }
+
+    /**
+     * Reads the state of the recorded keys.
+     *
+     * @param inputListener - the listener to read.
+     * @return the mask of the pressed keys.
+     */
+    public static byte maskOf(UserInputListener inputListener) {
+        int mask = 0;
+        for (int bit = 0; bit < KEYS.length; bit++) {
+            if (inputListener.isKeyPressed(KEYS[bit])) {
+                mask |= 1 << bit;
+            }
+        }
+        return (byte) mask;
+    }
+
+    /**
+     * Returns the keys which are pressed in a mask. The returned array is shared, and must not be
+     * modified.
+     *
+     * @param mask - the mask of the pressed keys.
+     * @return the key codes.
+     */
+    public static int[] keysOf(byte mask) {
+        return KEYS_BY_MASK[mask];
+    }
+
+    /**
+     * Appends the key states of one frame.
+     *
+     * @param mask - the mask of the pressed keys.
+     */
+    public void append(byte mask) {
+        if (frameCount == masks.length) {
+            masks = Arrays.copyOf(masks, frameCount * 2);
+        }
+        masks[frameCount++] = mask;
+    }
+
+    /**
+     * @param frame - the index of the frame.
+     * @return the mask of the keys pressed in the frame.
+     */
+    public byte maskAt(int frame) {
+        return masks[frame];
+    }
+
+    /**
+     * Getter for the number of recorded frames.
+     *
+     * @return the number of recorded frames.
+     */
+    public int frameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Getter for the seed of the terrain the trace was recorded on.
+     *
+     * @return the terrain seed.
+     */
+    public int getTerrainSeed() {
+        return terrainSeed;
+    }
+
+    /**
+     * Getter for the seed of the forest the trace was recorded on.
+     *
+     * @return the forest seed.
+     */
+    public int getForestSeed() {
+        return forestSeed;
+    }
+
+    /**
+     * Getter for the fixed timestep of the recorded frames.
+     *
+     * @return the timestep, in seconds.
+     */
+    public float getTimestep() {
+        return timestep;
+    }
+
+    /**
+     * Writes the trace to a file.
+     *
+     * @param path - the file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(terrainSeed);
+            out.writeInt(forestSeed);
+            out.writeFloat(timestep);
+            int frame = 0;
+            while (frame < frameCount) {
+                int run = 1;
+                while (frame + run < frameCount && masks[frame + run] == masks[frame]) {
+                    run++;
+                }
+                out.writeByte(masks[frame]);
+                writeVarInt(out, run);
+                frame += run;
+            }
+        }
+    }
+
+    /**
+     * Reads a trace from a file.
+     *
+     * @param path - the file to read.
+     * @return the trace.
+     * @throws IOException if the file cannot be read or is not a trace.
+     */
+    public static InputTrace read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                throw new IOException("not a pepse input trace: " + path);
+            }
+            InputTrace trace = new InputTrace(in.readInt(), in.readInt(), in.readFloat());
+            while (true) {
+                int mask;
+                try {
+                    mask = in.readByte();
+                } catch (EOFException e) {
+                    return trace;
+                }
+                int run = readVarInt(in);
+                for (int i = 0; i < run; i++) {
+                    trace.append((byte) mask);
+                }
+            }
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~VARINT_MASK) != 0) {
+            out.writeByte((value & VARINT_MASK) | VARINT_MORE);
+            value >>>= VARINT_BITS;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (b & VARINT_MASK) << shift;
+            shift += VARINT_BITS;
+        } while ((b & VARINT_MORE) != 0);
+        return value;
+    }
+}
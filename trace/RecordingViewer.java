@@ -0,0 +1,235 @@
+package pepse.trace;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static pepse.trace.WorldRecorder.FIRST_FRAME_OFFSET;
+import static pepse.trace.WorldRecorder.FRAME;
+import static pepse.trace.WorldRecorder.HEADER_BYTES;
+import static pepse.trace.WorldRecorder.LEAF;
+import static pepse.trace.WorldRecorder.LOAD;
+import static pepse.trace.WorldRecorder.SAME_FRAME;
+import static pepse.trace.WorldRecorder.SEQUENCE_OFFSET;
+import static pepse.trace.WorldRecorder.UNLOAD;
+import static pepse.trace.WorldRecorder.USED_BYTES_OFFSET;
+
+/**
+ * Plays back a file written by WorldRecorder without running the game: it decodes the segments from the
+ * oldest to the newest and prints the avatar, the loaded and unloaded ranges and the sampled leaves, and
+ * then a summary of the recording. The world is not generated; every number is read from the file.
+ * <p>
+ * Usage: RecordingViewer FILE [--every N] [--play]. With --every N, the avatar is printed on every N-th
+ * frame only (the events are always printed); with --play, the frames are printed at the pace they were
+ * recorded. A load or unload is printed with the frame in which it happened, and a leaf sample with the
+ * frame after which it was taken.
+ */
+public class RecordingViewer {
+
+    private static final String[] PHASE_NAMES = {"attached", "falling", "dead"};
+    private static final long NANOS_IN_SECOND = 1_000_000_000L;
+    private static final long NANOS_IN_MILLI = 1_000_000L;
+    private static final long BYTES_IN_KB = 1024;
+
+    private final float scale;
+    private final float timestep;
+    private final int every;
+    private final boolean play;
+    private final long[] frameValues = new long[5];
+    private long frame;
+    private long frames = 0;
+    private long loads = 0;
+    private long unloads = 0;
+    private long leaves = 0;
+    private long eventX;
+    private long leafX;
+    private long leafY;
+    private long playStart;
+
+    private RecordingViewer(float scale, float timestep, int every, boolean play) {
+        this.scale = scale;
+        this.timestep = timestep;
+        this.every = every;
+        this.play = play;
+    }
+
+    /**
+     * Prints a recording.
+     *
+     * @param args - the file, followed by the options.
+     * @throws IOException if the file cannot be read or is not a world recording.
+     * @throws InterruptedException if interrupted while pacing the playback.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.err.println("usage: RecordingViewer FILE [--every N] [--play]");
+            System.exit(1);
+        }
+        int every = 1;
+        boolean play = false;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--every":
+                    every = Integer.parseInt(args[++i]);
+                    break;
+                case "--play":
+                    play = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown argument: " + args[i]);
+            }
+        }
+        Path path = Paths.get(args[0]);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("not a pepse world recording: " + path);
+            }
+            MappedByteBuffer header = map(channel, 0, HEADER_BYTES);
+            if (header.getInt(0) != WorldRecorder.MAGIC
+                    || header.getInt(Integer.BYTES) != WorldRecorder.VERSION) {
+                throw new IOException("not a pepse world recording: " + path);
+            }
+            int segmentCount = header.getInt(WorldRecorder.SEGMENT_COUNT_OFFSET);
+            int segmentSize = header.getInt(WorldRecorder.SEGMENT_SIZE_OFFSET);
+            if (channel.size() < HEADER_BYTES + (long) segmentCount * segmentSize) {
+                throw new IOException("truncated pepse world recording: " + path);
+            }
+            float timestep = header.getFloat(WorldRecorder.TIMESTEP_OFFSET);
+            System.out.printf("world recording: terrain seed %d, forest seed %d, %.4fs per frame%n",
+                    header.getInt(WorldRecorder.TERRAIN_SEED_OFFSET),
+                    header.getInt(WorldRecorder.FOREST_SEED_OFFSET), timestep);
+            MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                segments[i] = map(channel, HEADER_BYTES + (long) i * segmentSize, segmentSize);
+            }
+            MappedByteBuffer[] used = Arrays.stream(segments)
+                    .filter(segment -> segment.getLong(SEQUENCE_OFFSET) != 0)
+                    .sorted(Comparator.comparingLong(segment -> segment.getLong(SEQUENCE_OFFSET)))
+                    .toArray(MappedByteBuffer[]::new);
+            RecordingViewer viewer = new RecordingViewer(header.getInt(WorldRecorder.SCALE_OFFSET), timestep,
+                    every, play);
+            long bytes = 0;
+            for (MappedByteBuffer segment : used) {
+                bytes += viewer.decode(segment);
+            }
+            System.out.printf("%d frames, %d segments, %d KB, %d loads, %d unloads, %d leaf samples, " +
+                            "%d records dropped%n", viewer.frames, used.length, bytes / BYTES_IN_KB,
+                    viewer.loads, viewer.unloads, viewer.leaves,
+                    header.getLong(WorldRecorder.DROPPED_OFFSET));
+        }
+    }
+
+    /**
+     * Decodes and prints a single segment.
+     *
+     * @return the number of bytes the segment uses.
+     */
+    private int decode(MappedByteBuffer in) throws InterruptedException {
+        int used = in.getInt(USED_BYTES_OFFSET);
+        in.position(WorldRecorder.SEGMENT_HEADER_BYTES);
+        frame = in.getLong(FIRST_FRAME_OFFSET) - 1;
+        Arrays.fill(frameValues, 0);
+        eventX = 0;
+        leafX = 0;
+        leafY = 0;
+        while (in.position() < used) {
+            byte tag = in.get();
+            switch (tag) {
+                case FRAME:
+                    frame += getVarLong(in);
+                    for (int i = 0; i < frameValues.length; i++) {
+                        frameValues[i] += unzigzag(getVarLong(in));
+                    }
+                    printFrame();
+                    break;
+                case SAME_FRAME:
+                    frame++;
+                    printFrame();
+                    break;
+                case LOAD:
+                    eventX += unzigzag(getVarLong(in));
+                    long loadMaxX = eventX + getVarLong(in);
+                    System.out.printf("frame %d: load [%d, %d]: %d columns, %d trees, %d leaves%n",
+                            frame + 1, eventX, loadMaxX, getVarLong(in), getVarLong(in), getVarLong(in));
+                    loads++;
+                    break;
+                case UNLOAD:
+                    eventX += unzigzag(getVarLong(in));
+                    long keepMaxX = eventX + getVarLong(in);
+                    System.out.printf("frame %d: unload outside [%d, %d]: %d objects%n", frame + 1, eventX,
+                            keepMaxX, getVarLong(in));
+                    unloads++;
+                    break;
+                case LEAF:
+                    leafX += unzigzag(getVarLong(in));
+                    leafY += unzigzag(getVarLong(in));
+                    byte phase = in.get();
+                    long x = leafX + unzigzag(getVarLong(in));
+                    long y = leafY + unzigzag(getVarLong(in));
+                    System.out.printf("frame %d: leaf of (%.1f, %.1f) %s at (%.1f, %.1f)%n", frame,
+                            leafX / scale, leafY / scale, PHASE_NAMES[phase], x / scale, y / scale);
+                    leaves++;
+                    break;
+                default:
+                    System.err.printf("corrupt record %d at byte %d, skipping the rest of the segment%n",
+                            tag, in.position() - 1);
+                    return used;
+            }
+        }
+        return used;
+    }
+
+    private void printFrame() throws InterruptedException {
+        frames++;
+        if (play) {
+            pace();
+        }
+        if (frame % every == 0) {
+            System.out.printf("frame %d: avatar at (%.1f, %.1f), velocity (%.1f, %.1f), power %d%n", frame,
+                    frameValues[0] / scale, frameValues[1] / scale, frameValues[2] / scale,
+                    frameValues[3] / scale, frameValues[4]);
+        }
+    }
+
+    /**
+     * Waits until the current frame is due, counting from the first frame played.
+     */
+    private void pace() throws InterruptedException {
+        long now = System.nanoTime();
+        if (playStart == 0) {
+            playStart = now;
+        }
+        long due = playStart + (long) ((frames - 1) * (double) timestep * NANOS_IN_SECOND);
+        if (due > now) {
+            Thread.sleep((due - now) / NANOS_IN_MILLI, (int) ((due - now) % NANOS_IN_MILLI));
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, int size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long getVarLong(MappedByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.get() & 0xFF;
+            value |= (long) (b & WorldRecorder.VARINT_MASK) << shift;
+            shift += WorldRecorder.VARINT_BITS;
+        } while ((b & WorldRecorder.VARINT_MORE) != 0);
+        return value;
+    }
+}
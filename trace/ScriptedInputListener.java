@@ -0,0 +1,69 @@
+package pepse.trace;
+
+import danogl.gui.UserInputListener;
+import danogl.util.Vector2;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An input listener whose keys are pressed and released by code instead of a keyboard, for scripted and
+ * headless sessions, and for the replay of an input trace.
+ */
+public class ScriptedInputListener implements UserInputListener {
+
+    private static final int KEY_CODES = 1024;
+
+    private final BitSet pressedKeys = new BitSet(KEY_CODES);
+    private final BitSet previousKeys = new BitSet(KEY_CODES);
+
+    /**
+     * Replaces the set of pressed keys. The keys pressed before the call are remembered, to answer the
+     * this-frame queries. The keys are kept in bit sets, so a frame of input allocates nothing.
+     *
+     * @param keyCodes - the keys pressed in the new frame.
+     */
+    public void setPressedKeys(int... keyCodes) {
+        previousKeys.clear();
+        previousKeys.or(pressedKeys);
+        pressedKeys.clear();
+        for (int keyCode : keyCodes) {
+            pressedKeys.set(keyCode);
+        }
+    }
+
+    @Override
+    public boolean isKeyPressed(int keyCode) {
+        return pressedKeys.get(keyCode);
+    }
+
+    @Override
+    public Set<Integer> pressedKeys() {
+        Set<Integer> keys = new HashSet<>();
+        for (int key = pressedKeys.nextSetBit(0); key >= 0; key = pressedKeys.nextSetBit(key + 1)) {
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    @Override
+    public boolean wasKeyPressedThisFrame(int keyCode) {
+        return pressedKeys.get(keyCode) && !previousKeys.get(keyCode);
+    }
+
+    @Override
+    public boolean wasKeyReleasedThisFrame(int keyCode) {
+        return !pressedKeys.get(keyCode) && previousKeys.get(keyCode);
+    }
+
+    @Override
+    public boolean isMouseButtonPressed(int button) {
+        return false;
+    }
+
+    @Override
+    public Vector2 getMousePos() {
+        return Vector2.ZERO;
+    }
+}
@@ -0,0 +1,417 @@
+package pepse.trace;
+
+import danogl.GameObject;
+import pepse.world.Avatar;
+import pepse.world.LandscapeListener;
+import pepse.world.WorldContext;
+import pepse.world.WorldOrigin;
+import pepse.world.trees.Leaf;
+import pepse.world.trees.Tree;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records the state of a world while it runs: the avatar on every frame, every range the landscape
+ * manager loads and unloads, and a few leaves every half a second. The game thread only copies a
+ * handful of numbers into a ring of longs; a background thread encodes them as deltas from the previous
+ * record and writes them to a file of memory-mapped segments. The segments are a ring as well: once all
+ * of them are full, the oldest one is overwritten, so the file keeps the last minutes of the session and
+ * never grows. If the background thread falls behind and the ring of longs fills up, records are
+ * dropped and counted rather than stalling the game. Every x-coordinate is recorded in the world's
+ * coordinates, so the recording does not jump when the world's origin moves.
+ * <p>
+ * The file starts with a header of HEADER_BYTES bytes, followed by the segments. Every segment starts
+ * with its own header (its sequence number, 0 if unused, the first frame it covers, the bytes it uses and
+ * its number of records) and the delta encoding restarts in every segment, so each segment can be
+ * decoded on its own. RecordingViewer reads the file.
+ */
+public class WorldRecorder implements LandscapeListener, AutoCloseable {
+
+    static final int MAGIC = 0x50455057;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int SEGMENT_HEADER_BYTES = 32;
+    /**
+     * Positions and velocities are recorded in units of 1/POSITION_SCALE pixels.
+     */
+    static final int POSITION_SCALE = 16;
+    static final byte FRAME = 1;
+    static final byte SAME_FRAME = 2;
+    static final byte LOAD = 3;
+    static final byte UNLOAD = 4;
+    static final byte LEAF = 5;
+    static final int VARINT_BITS = 7;
+    static final int VARINT_MASK = 0x7F;
+    static final int VARINT_MORE = 0x80;
+    static final int SEQUENCE_OFFSET = 0;
+    static final int FIRST_FRAME_OFFSET = 8;
+    static final int USED_BYTES_OFFSET = 16;
+    static final int RECORDS_OFFSET = 20;
+    static final int SEGMENT_COUNT_OFFSET = 8;
+    static final int SEGMENT_SIZE_OFFSET = 12;
+    static final int TIMESTEP_OFFSET = 16;
+    static final int TERRAIN_SEED_OFFSET = 20;
+    static final int FOREST_SEED_OFFSET = 24;
+    static final int SCALE_OFFSET = 28;
+    static final int DROPPED_OFFSET = 32;
+    static final int FRAMES_OFFSET = 40;
+    private static final int SEGMENT_COUNT = 8;
+    private static final int SEGMENT_BYTES = 1 << 20;
+    private static final int MAX_RECORD_BYTES = 64;
+    private static final int RING_CAPACITY = 1 << 16;
+    private static final int RING_MASK = RING_CAPACITY - 1;
+    private static final int FRAME_LONGS = 7;
+    private static final int LOAD_LONGS = 6;
+    private static final int UNLOAD_LONGS = 4;
+    private static final int LEAF_LONGS = 6;
+    private static final int LEAF_SAMPLE_FRAMES = 30;
+    private static final int LEAVES_PER_SAMPLE = 8;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] segments;
+    private final long[] ring = new long[RING_CAPACITY];
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile long dropped = 0;
+    private long frame = 0;
+    private int leafCursor = 0;
+//    The state of the background thread:
+    private int segment = -1;
+    private long sequence = 0;
+    private int records = 0;
+    private long encodedFrames = 0;
+    private long lastFrame;
+    private final long[] lastFrameValues = new long[FRAME_LONGS - 2];
+    private long lastEventX;
+    private long lastLeafX;
+    private long lastLeafY;
+
+    private WorldRecorder(FileChannel channel, int terrainSeed, int forestSeed, float timestep)
+            throws IOException {
+        this.channel = channel;
+        header = map(channel, 0, HEADER_BYTES);
+        header.putInt(0, MAGIC);
+        header.putInt(Integer.BYTES, VERSION);
+        header.putInt(SEGMENT_COUNT_OFFSET, SEGMENT_COUNT);
+        header.putInt(SEGMENT_SIZE_OFFSET, SEGMENT_BYTES);
+        header.putFloat(TIMESTEP_OFFSET, timestep);
+        header.putInt(TERRAIN_SEED_OFFSET, terrainSeed);
+        header.putInt(FOREST_SEED_OFFSET, forestSeed);
+        header.putInt(SCALE_OFFSET, POSITION_SCALE);
+        segments = new MappedByteBuffer[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = map(channel, HEADER_BYTES + (long) i * SEGMENT_BYTES, SEGMENT_BYTES);
+            segments[i].putLong(SEQUENCE_OFFSET, 0);
+        }
+        writer = new Thread(this::writeLoop, "pepse-world-recorder");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Creates a recorder which writes to the given file, replacing it if it exists.
+     *
+     * @param path        - the file to write.
+     * @param terrainSeed - the seed of the recorded world's terrain.
+     * @param forestSeed  - the seed of the recorded world's forest.
+     * @param timestep    - the simulated time of a frame, in seconds.
+     * @return the recorder.
+     * @throws IOException if the file cannot be created.
+     */
+    public static WorldRecorder open(Path path, int terrainSeed, int forestSeed, float timestep)
+            throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new WorldRecorder(channel, terrainSeed, forestSeed, timestep);
+    }
+
+    /**
+     * Records the avatar, and every LEAF_SAMPLE_FRAMES frames the next few leaves of the world. Called by
+     * the game thread once per simulation step.
+     *
+     * @param world - the recorded world.
+     */
+    public void recordFrame(WorldContext world) {
+        Avatar avatar = world.getAvatar();
+        long at = claim(FRAME_LONGS);
+        if (at >= 0) {
+            put(at, FRAME);
+            put(at + 1, frame);
+            put(at + 2, quantize(world.getOrigin(), avatar.getTopLeftCorner().x()));
+            put(at + 3, quantize(avatar.getTopLeftCorner().y()));
+            put(at + 4, quantize(avatar.getVelocity().x()));
+            put(at + 5, quantize(avatar.getVelocity().y()));
+            put(at + 6, avatar.getFlightPower());
+            head.lazySet(at + FRAME_LONGS);
+        }
+        if (frame % LEAF_SAMPLE_FRAMES == 0) {
+            sampleLeaves(world);
+        }
+        frame++;
+    }
+
+    @Override
+    public void chunkLoaded(long minX, long maxX, int columns, int trees, int leaves) {
+        long at = claim(LOAD_LONGS);
+        if (at >= 0) {
+            put(at, LOAD);
+            put(at + 1, minX);
+            put(at + 2, maxX);
+            put(at + 3, columns);
+            put(at + 4, trees);
+            put(at + 5, leaves);
+            head.lazySet(at + LOAD_LONGS);
+        }
+    }
+
+    @Override
+    public void chunkUnloaded(long keepMinX, long keepMaxX, int objectsRemoved) {
+        long at = claim(UNLOAD_LONGS);
+        if (at >= 0) {
+            put(at, UNLOAD);
+            put(at + 1, keepMinX);
+            put(at + 2, keepMaxX);
+            put(at + 3, objectsRemoved);
+            head.lazySet(at + UNLOAD_LONGS);
+        }
+    }
+
+    /**
+     * Getter for the number of records dropped because the background thread fell behind.
+     *
+     * @return the number of dropped records.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Stops the background thread once it wrote every pending record, and flushes the file.
+     *
+     * @throws IOException if the file cannot be flushed.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        header.putLong(DROPPED_OFFSET, dropped);
+        header.putLong(FRAMES_OFFSET, encodedFrames);
+        header.force();
+        for (MappedByteBuffer buffer : segments) {
+            buffer.force();
+        }
+        channel.close();
+    }
+
+    /**
+     * Records the next LEAVES_PER_SAMPLE leaves of the leaf layer, continuing from where the previous
+     * sample stopped, so in time every leaf of the loaded world is sampled.
+     */
+    private void sampleLeaves(WorldContext world) {
+        int index = 0;
+        int sampled = 0;
+        for (GameObject obj : world.getGameObjects().objectsInLayer(Tree.LEAF_LAYER)) {
+            if (!(obj instanceof Leaf) || index++ < leafCursor) {
+                continue;
+            }
+            Leaf leaf = (Leaf) obj;
+            long at = claim(LEAF_LONGS);
+            if (at >= 0) {
+                put(at, LEAF);
+                put(at + 1, quantize(world.getOrigin(), leaf.getHome().x()));
+                put(at + 2, quantize(leaf.getHome().y()));
+                put(at + 3, leaf.getPhase());
+                put(at + 4, quantize(world.getOrigin(), leaf.getTopLeftCorner().x()));
+                put(at + 5, quantize(leaf.getTopLeftCorner().y()));
+                head.lazySet(at + LEAF_LONGS);
+            }
+            if (++sampled == LEAVES_PER_SAMPLE) {
+                break;
+            }
+        }
+        leafCursor = sampled == LEAVES_PER_SAMPLE ? leafCursor + sampled : 0;
+    }
+
+    /**
+     * Claims room for a record in the ring. Only the game thread claims, so the head is read plainly.
+     *
+     * @return the position of the record, or -1 if the ring is full and the record is dropped.
+     */
+    private long claim(int length) {
+        long at = head.get();
+        if (at + length - tail.get() > RING_CAPACITY) {
+            dropped++;
+            return -1;
+        }
+        return at;
+    }
+
+    private void put(long at, long value) {
+        ring[(int) (at & RING_MASK)] = value;
+    }
+
+    private long get(long at) {
+        return ring[(int) (at & RING_MASK)];
+    }
+
+    private static long quantize(float value) {
+        return Math.round(value * (double) POSITION_SCALE);
+    }
+
+    /**
+     * Quantizes an x-coordinate of the game in the world's coordinates, so the recording does not jump
+     * when the world's origin moves.
+     */
+    private static long quantize(WorldOrigin origin, float x) {
+        return origin.getX() * POSITION_SCALE + quantize(x);
+    }
+
+    private void writeLoop() {
+        startSegment();
+        while (true) {
+            boolean stopping = !running;
+            if (!drain() && !stopping) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            if (stopping) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Encodes every record published by the game thread.
+     *
+     * @return true if any record was encoded; False otherwise.
+     */
+    private boolean drain() {
+        long at = tail.get();
+        long end = head.get();
+        if (at == end) {
+            return false;
+        }
+        while (at < end) {
+            if (segments[segment].position() + MAX_RECORD_BYTES > SEGMENT_BYTES) {
+                startSegment();
+            }
+            at += encode(segments[segment], at);
+            records++;
+        }
+        tail.lazySet(at);
+        segments[segment].putInt(USED_BYTES_OFFSET, segments[segment].position());
+        segments[segment].putInt(RECORDS_OFFSET, records);
+        return true;
+    }
+
+    /**
+     * Encodes a single record into the current segment.
+     *
+     * @return the number of longs the record took in the ring.
+     */
+    private int encode(MappedByteBuffer out, long at) {
+        byte tag = (byte) get(at);
+        switch (tag) {
+            case FRAME:
+                long frameIndex = get(at + 1);
+                boolean same = frameIndex == lastFrame + 1;
+                for (int i = 0; i < lastFrameValues.length; i++) {
+                    same &= get(at + 2 + i) == lastFrameValues[i];
+                }
+                if (same) {
+                    out.put(SAME_FRAME);
+                } else {
+                    out.put(FRAME);
+                    putVarLong(out, frameIndex - lastFrame);
+                    for (int i = 0; i < lastFrameValues.length; i++) {
+                        long value = get(at + 2 + i);
+                        putVarLong(out, zigzag(value - lastFrameValues[i]));
+                        lastFrameValues[i] = value;
+                    }
+                }
+                lastFrame = frameIndex;
+                encodedFrames++;
+                return FRAME_LONGS;
+            case LOAD:
+                out.put(LOAD);
+                putVarLong(out, zigzag(get(at + 1) - lastEventX));
+                putVarLong(out, get(at + 2) - get(at + 1));
+                putVarLong(out, get(at + 3));
+                putVarLong(out, get(at + 4));
+                putVarLong(out, get(at + 5));
+                lastEventX = get(at + 1);
+                return LOAD_LONGS;
+            case UNLOAD:
+                out.put(UNLOAD);
+                putVarLong(out, zigzag(get(at + 1) - lastEventX));
+                putVarLong(out, get(at + 2) - get(at + 1));
+                putVarLong(out, get(at + 3));
+                lastEventX = get(at + 1);
+                return UNLOAD_LONGS;
+            default:
+                out.put(LEAF);
+                putVarLong(out, zigzag(get(at + 1) - lastLeafX));
+                putVarLong(out, zigzag(get(at + 2) - lastLeafY));
+                out.put((byte) get(at + 3));
+                putVarLong(out, zigzag(get(at + 4) - get(at + 1)));
+                putVarLong(out, zigzag(get(at + 5) - get(at + 2)));
+                lastLeafX = get(at + 1);
+                lastLeafY = get(at + 2);
+                return LEAF_LONGS;
+        }
+    }
+
+    /**
+     * Moves to the next segment of the file, overwriting the oldest one once all of them were used, and
+     * restarts the delta encoding.
+     */
+    private void startSegment() {
+        segment = (segment + 1) % SEGMENT_COUNT;
+        MappedByteBuffer out = segments[segment];
+        out.putLong(SEQUENCE_OFFSET, 0);
+        out.putLong(FIRST_FRAME_OFFSET, encodedFrames == 0 ? 0 : lastFrame + 1);
+        out.putInt(USED_BYTES_OFFSET, SEGMENT_HEADER_BYTES);
+        out.putInt(RECORDS_OFFSET, 0);
+        out.putLong(SEQUENCE_OFFSET, ++sequence);
+        out.position(SEGMENT_HEADER_BYTES);
+        records = 0;
+        lastFrame = out.getLong(FIRST_FRAME_OFFSET) - 1;
+        Arrays.fill(lastFrameValues, 0);
+        lastEventX = 0;
+        lastLeafX = 0;
+        lastLeafY = 0;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, int size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> (Long.SIZE - 1));
+    }
+
+    private static void putVarLong(MappedByteBuffer out, long value) {
+        while ((value & ~VARINT_MASK) != 0) {
+            out.put((byte) ((value & VARINT_MASK) | VARINT_MORE));
+            value >>>= VARINT_BITS;
+        }
+        out.put((byte) value);
+    }
+}
@@ -0,0 +1,166 @@
+package pepse.util;
+
+import danogl.gui.ImageReader;
+import danogl.gui.rendering.ImageRenderable;
+import danogl.gui.rendering.Renderable;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Decodes every image of the game once, in parallel, and packs the decoded images into a single sprite
+ * atlas. The renderables handed out are views into the atlas, and are cached, so asking for the same
+ * image twice never reads or decodes it again.
+ */
+public class AssetManager {
+
+    private final ImageReader imageReader;
+    private final Map<String, CompletableFuture<BufferedImage>> decoding = new LinkedHashMap<>();
+    private final Map<String, Renderable> renderables = new HashMap<>();
+    private BufferedImage atlas;
+
+    /**
+     * Constructor for the AssetManager.
+     *
+     * @param imageReader - used for images which cannot be decoded directly (e.g. missing from the
+     *                    working directory and the class path).
+     */
+    public AssetManager(ImageReader imageReader) {
+        this.imageReader = imageReader;
+    }
+
+    /**
+     * Starts decoding the given images in the background. The images are treated as having a transparent
+     * top-left pixel color, as the game's sprites do.
+     *
+     * @param paths - the paths of the images.
+     */
+    public void preload(String... paths) {
+        for (String path : paths) {
+            decoding.computeIfAbsent(path, key -> CompletableFuture.supplyAsync(() -> decode(key)));
+        }
+    }
+
+    /**
+     * Returns the renderable of the given image, waiting for the preload to finish if needed.
+     *
+     * @param path - the path of the image.
+     * @return the cached renderable.
+     */
+    public Renderable get(String path) {
+        Renderable renderable = renderables.get(path);
+        if (renderable != null) {
+            return renderable;
+        }
+        if (!decoding.containsKey(path)) {
+            preload(path);
+        }
+        buildAtlas();
+        renderable = renderables.get(path);
+        if (renderable == null) {
+            renderable = imageReader.readImage(path, true);
+            renderables.put(path, renderable);
+        }
+        return renderable;
+    }
+
+    /**
+     * Getter for the sprite atlas.
+     *
+     * @return the atlas image, or null if no image was decoded yet.
+     */
+    public BufferedImage getAtlas() {
+        return atlas;
+    }
+
+    /**
+     * Packs all the decoded images which are not in the atlas yet into a new atlas, side by side, and
+     * creates a renderable for each one of them.
+     */
+    private void buildAtlas() {
+        Map<String, BufferedImage> images = new LinkedHashMap<>();
+        int width = atlas == null ? 0 : atlas.getWidth();
+        int height = atlas == null ? 0 : atlas.getHeight();
+        for (Map.Entry<String, CompletableFuture<BufferedImage>> entry : decoding.entrySet()) {
+            if (renderables.containsKey(entry.getKey())) {
+                continue;
+            }
+            BufferedImage image = entry.getValue().exceptionally(error -> null).join();
+            if (image != null) {
+                images.put(entry.getKey(), image);
+                width += image.getWidth();
+                height = Math.max(height, image.getHeight());
+            }
+        }
+        if (images.isEmpty()) {
+            return;
+        }
+        BufferedImage newAtlas = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = newAtlas.createGraphics();
+        int x = 0;
+        if (atlas != null) {
+            g.drawImage(atlas, 0, 0, null);
+            x = atlas.getWidth();
+        }
+        for (Map.Entry<String, BufferedImage> entry : images.entrySet()) {
+            BufferedImage image = entry.getValue();
+            g.drawImage(image, x, 0, null);
+            renderables.put(entry.getKey(),
+                    new ImageRenderable(newAtlas.getSubimage(x, 0, image.getWidth(), image.getHeight())));
+            x += image.getWidth();
+        }
+        g.dispose();
+        atlas = newAtlas;
+    }
+
+    /**
+     * Reads an image from the working directory or the class path, and makes the pixels which have the
+     * color of its top-left pixel transparent.
+     *
+     * @param path - the path of the image.
+     * @return the decoded image.
+     */
+    private static BufferedImage decode(String path) {
+        BufferedImage image;
+        try (InputStream stream = open(path)) {
+            image = ImageIO.read(stream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (image == null) {
+            throw new UncheckedIOException(new IOException("unsupported image: " + path));
+        }
+        BufferedImage result = new BufferedImage(image.getWidth(), image.getHeight(),
+                BufferedImage.TYPE_INT_ARGB);
+        int transparent = image.getRGB(0, 0);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int rgb = image.getRGB(x, y);
+                result.setRGB(x, y, rgb == transparent ? 0 : rgb);
+            }
+        }
+        return result;
+    }
+
+    private static InputStream open(String path) throws IOException {
+        File file = new File(path);
+        if (file.exists()) {
+            return Files.newInputStream(file.toPath());
+        }
+        InputStream stream = ClassLoader.getSystemResourceAsStream(path);
+        if (stream == null) {
+            throw new IOException("image not found: " + path);
+        }
+        return stream;
+    }
+}
@@ -0,0 +1,91 @@
+package pepse.util;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Keeps a rolling frame-time histogram for every phase of the game's update, so a stutter can be traced
+ * to the phase responsible for it. The HUD is refreshed once per rendered frame, while the engine, the
+ * landscape and the relocation run once per simulation step, and STEP times the whole step.
+ */
+public class FrameProfiler {
+
+    public static final int HUD = 0;
+    public static final int ENGINE = 1;
+    public static final int LANDSCAPE = 2;
+    public static final int RELOCATE = 3;
+    public static final int STEP = 4;
+    private static final String[] PHASE_NAMES = {"hud", "engine", "landscape", "relocate", "step"};
+    private static final double NANOS_IN_MILLI = 1e6;
+    private static final int P50 = 50;
+    private static final int P99 = 99;
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[PHASE_NAMES.length];
+
+    /**
+     * Constructor for the FrameProfiler.
+     */
+    public FrameProfiler() {
+        for (int phase = 0; phase < histograms.length; phase++) {
+            histograms[phase] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records the duration of a phase in the current frame or step.
+     *
+     * @param phase - the phase (HUD, ENGINE, LANDSCAPE, RELOCATE or STEP).
+     * @param nanos - the duration, in nanoseconds.
+     */
+    public void record(int phase, long nanos) {
+        histograms[phase].record(nanos);
+    }
+
+    /**
+     * @return the number of phases.
+     */
+    public int phaseCount() {
+        return histograms.length;
+    }
+
+    /**
+     * @param phase - the phase.
+     * @return the name of the phase.
+     */
+    public String phaseName(int phase) {
+        return PHASE_NAMES[phase];
+    }
+
+    /**
+     * Summarizes a phase as "name p50/p99/max" in milliseconds.
+     *
+     * @param phase - the phase.
+     * @return the summary.
+     */
+    public String summary(int phase) {
+        LatencyHistogram histogram = histograms[phase];
+        return String.format("%-9s p50 %6.2f  p99 %6.2f  max %6.2f ms", PHASE_NAMES[phase],
+                histogram.percentile(P50) / NANOS_IN_MILLI, histogram.percentile(P99) / NANOS_IN_MILLI,
+                histogram.max() / NANOS_IN_MILLI);
+    }
+
+    /**
+     * Writes the recent percentiles of every phase as CSV.
+     *
+     * @param path - the file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeCsv(Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+            out.println("phase,frames,p50_ms,p99_ms,max_ms");
+            for (int phase = 0; phase < histograms.length; phase++) {
+                LatencyHistogram histogram = histograms[phase];
+                out.printf("%s,%d,%.3f,%.3f,%.3f%n", PHASE_NAMES[phase], histogram.totalCount(),
+                        histogram.percentile(P50) / NANOS_IN_MILLI,
+                        histogram.percentile(P99) / NANOS_IN_MILLI, histogram.max() / NANOS_IN_MILLI);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package pepse.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free rolling histogram of durations. Durations are counted in log-linear buckets (four buckets
+ * per power of two, so a percentile is accurate to within 19%), in two windows: the recorder fills the
+ * active window, and once it holds WINDOW_SAMPLES samples the older window is cleared and becomes the
+ * active one. The percentiles always cover the last WINDOW_SAMPLES to 2 * WINDOW_SAMPLES samples.
+ * Recording and reading never block, so the game thread never waits for a reader.
+ */
+public class LatencyHistogram {
+
+    public static final int WINDOW_SAMPLES = 600;
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = Long.SIZE * SUB_BUCKETS;
+    private static final int WINDOWS = 2;
+
+    private final AtomicLongArray[] windows = {new AtomicLongArray(BUCKETS), new AtomicLongArray(BUCKETS)};
+    private final AtomicLong[] maxima = {new AtomicLong(), new AtomicLong()};
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger activeSamples = new AtomicInteger();
+    private final AtomicLong totalCount = new AtomicLong();
+
+    /**
+     * Records a single duration.
+     *
+     * @param nanos - the duration, in nanoseconds.
+     */
+    public void record(long nanos) {
+        if (activeSamples.incrementAndGet() > WINDOW_SAMPLES) {
+            int older = (active.get() + 1) % WINDOWS;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                windows[older].set(bucket, 0);
+            }
+            maxima[older].set(0);
+            active.set(older);
+            activeSamples.set(1);
+        }
+        int window = active.get();
+        windows[window].incrementAndGet(bucketOf(Math.max(nanos, 1)));
+        maxima[window].accumulateAndGet(nanos, Math::max);
+        totalCount.incrementAndGet();
+    }
+
+    /**
+     * Returns the given percentile of the recent durations.
+     *
+     * @param percentile - the percentile, in (0, 100].
+     * @return an upper bound of the percentile, in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long percentile(double percentile) {
+        long count = 0;
+        for (AtomicLongArray window : windows) {
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                count += window.get(bucket);
+            }
+        }
+        long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += windows[0].get(bucket) + windows[1].get(bucket);
+            if (seen >= rank && seen > 0) {
+                return Math.min(upperBoundOf(bucket), max());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return the longest of the recent durations, in nanoseconds.
+     */
+    public long max() {
+        return Math.max(maxima[0].get(), maxima[1].get());
+    }
+
+    /**
+     * @return the number of durations recorded since the histogram was created.
+     */
+    public long totalCount() {
+        return totalCount.get();
+    }
+
+    private static int bucketOf(long nanos) {
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+        if (exponent < SUB_BUCKET_BITS) {
+            return (int) nanos;
+        }
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return exponent * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        int exponent = bucket / SUB_BUCKETS;
+        if (exponent < SUB_BUCKET_BITS) {
+            return bucket;
+        }
+        long subBucket = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,68 @@
+package pepse.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measures the time from the start of the program to the first rendered frame, so startup regressions
+ * are visible. Intermediate phases can be marked along the way, and are reported with the total.
+ */
+public final class StartupTimer {
+
+    private static final double NANOS_IN_MILLI = 1e6;
+    private static long startTime = System.nanoTime();
+    private static final Map<String, Long> marks = new LinkedHashMap<>();
+    private static long firstFrame = -1;
+
+    private StartupTimer() {
+    }
+
+    /**
+     * Starts the timer. Should be the first call of the program; until it is called, the times are counted
+     * from the moment the class was loaded.
+     */
+    public static synchronized void start() {
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Records the time at which a startup phase ended.
+     *
+     * @param phase - the name of the phase.
+     */
+    public static synchronized void mark(String phase) {
+        if (firstFrame < 0) {
+            marks.put(phase, System.nanoTime());
+        }
+    }
+
+    /**
+     * Records the first rendered frame, and reports the startup times. Later calls do nothing.
+     */
+    public static synchronized void firstFrame() {
+        if (firstFrame >= 0) {
+            return;
+        }
+        firstFrame = System.nanoTime();
+        StringBuilder report = new StringBuilder("Time to first frame: ")
+                .append(millis(firstFrame)).append(" ms");
+        for (Map.Entry<String, Long> mark : marks.entrySet()) {
+            report.append(", ").append(mark.getKey()).append(": ").append(millis(mark.getValue()))
+                    .append(" ms");
+        }
+        System.out.println(report);
+    }
+
+    /**
+     * Getter for the time to the first frame.
+     *
+     * @return the time in milliseconds, or -1 before the first frame.
+     */
+    public static synchronized double getTimeToFirstFrame() {
+        return firstFrame < 0 ? -1 : (firstFrame - startTime) / NANOS_IN_MILLI;
+    }
+
+    private static String millis(long time) {
+        return String.format("%.1f", (time - startTime) / NANOS_IN_MILLI);
+    }
+}
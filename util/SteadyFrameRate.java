@@ -0,0 +1,60 @@
+package pepse.util;
+
+/**
+ * Detects when the frame rate of the game became steady: it keeps the frame times of the last two windows
+ * of frames, and reports once when the average frame time of the last window is within the tolerance of
+ * the window before it.
+ */
+public class SteadyFrameRate {
+
+    /**
+     * The beginning of the line printed once the frame rate is steady.
+     */
+    public static final String STEADY_LINE = "Steady frame rate";
+    private static final int WINDOW = 60;
+    private static final double TOLERANCE = 0.1;
+    private static final double NANOS_IN_MILLI = 1e6;
+
+    private final long[] frameTimes = new long[2 * WINDOW];
+    private long frameCount = 0;
+    private boolean steady = false;
+
+    /**
+     * Records the time of a frame, and prints the STEADY_LINE if the frame rate became steady with it.
+     *
+     * @param nanos - the time of the frame, in nanoseconds.
+     * @return true if the frame rate became steady in this frame; False otherwise.
+     */
+    public boolean record(long nanos) {
+        if (steady) {
+            return false;
+        }
+        frameTimes[(int) (frameCount % frameTimes.length)] = nanos;
+        frameCount++;
+        if (frameCount < frameTimes.length || frameCount % WINDOW != 0) {
+            return false;
+        }
+        long previous = 0;
+        long last = 0;
+        for (int i = 0; i < WINDOW; i++) {
+            previous += frameTimes[(int) ((frameCount - 2 * WINDOW + i) % frameTimes.length)];
+            last += frameTimes[(int) ((frameCount - WINDOW + i) % frameTimes.length)];
+        }
+        if (Math.abs(last - previous) > TOLERANCE * previous) {
+            return false;
+        }
+        steady = true;
+        System.out.printf("%s after %d frames: %.3f ms per frame%n", STEADY_LINE, frameCount,
+                last / (double) WINDOW / NANOS_IN_MILLI);
+        return true;
+    }
+
+    /**
+     * Checks if the frame rate became steady.
+     *
+     * @return true if the frame rate is steady; False otherwise.
+     */
+    public boolean isSteady() {
+        return steady;
+    }
+}
@@ -0,0 +1,215 @@
+package pepse.util;
+
+import java.util.Arrays;
+
+/**
+ * A hashed timer wheel for deferred world events. Timers are spread over a fixed number of buckets by
+ * their deadline tick, so scheduling and cancelling are O(1), and advancing the wheel only looks at
+ * the bucket of the current tick. The timer entries are pooled in primitive arrays and are referred to
+ * by handles, so a stale handle of a timer which already fired can never cancel the timer that reused
+ * its entry.
+ */
+public class TimerWheel {
+
+    /**
+     * A handle which never refers to a pending timer.
+     */
+    public static final long NO_TIMER = -1;
+    private static final int NONE = -1;
+    private static final int INIT_POOL_SIZE = 64;
+    private static final int GENERATION_SHIFT = 32;
+    private static final long INDEX_MASK = 0xFFFFFFFFL;
+
+    private final float tickDuration;
+    private final int mask;
+    private final int[] buckets;
+
+    private int[] next;
+    private int[] prev;
+    private int[] bucketOf;
+    private int[] rounds;
+    private int[] generation;
+    private Runnable[] actions;
+    private Runnable[] firing = new Runnable[INIT_POOL_SIZE];
+    private int freeHead = NONE;
+    private int poolSize = 0;
+
+    private long currentTick = 0;
+    private float accumulated = 0;
+    private int pending = 0;
+
+    /**
+     * Constructor for the TimerWheel.
+     *
+     * @param tickDuration - the resolution of the wheel, in seconds.
+     * @param wheelSize    - the number of buckets; must be a power of two.
+     */
+    public TimerWheel(float tickDuration, int wheelSize) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheel size must be a power of two: " + wheelSize);
+        }
+        this.tickDuration = tickDuration;
+        this.mask = wheelSize - 1;
+        this.buckets = new int[wheelSize];
+        Arrays.fill(buckets, NONE);
+        next = new int[INIT_POOL_SIZE];
+        prev = new int[INIT_POOL_SIZE];
+        bucketOf = new int[INIT_POOL_SIZE];
+        rounds = new int[INIT_POOL_SIZE];
+        generation = new int[INIT_POOL_SIZE];
+        actions = new Runnable[INIT_POOL_SIZE];
+    }
+
+    /**
+     * Schedules an action to run once after the given delay.
+     *
+     * @param delay  - the delay, in seconds.
+     * @param action - the action to run.
+     * @return a handle which can be used to cancel the timer.
+     */
+    public long schedule(float delay, Runnable action) {
+        long ticks = Math.max(1, (long) Math.ceil(delay / tickDuration));
+        int entry = allocate();
+        int bucket = (int) ((currentTick + ticks) & mask);
+        rounds[entry] = (int) ((ticks - 1) / buckets.length);
+        actions[entry] = action;
+        bucketOf[entry] = bucket;
+        prev[entry] = NONE;
+        next[entry] = buckets[bucket];
+        if (buckets[bucket] != NONE) {
+            prev[buckets[bucket]] = entry;
+        }
+        buckets[bucket] = entry;
+        pending++;
+        return ((long) generation[entry] << GENERATION_SHIFT) | entry;
+    }
+
+    /**
+     * Cancels a pending timer. Cancelling a timer which already fired or was cancelled does nothing.
+     *
+     * @param handle - the handle returned when the timer was scheduled.
+     * @return true if a pending timer was cancelled; False otherwise.
+     */
+    public boolean cancel(long handle) {
+        if (!isPending(handle)) {
+            return false;
+        }
+        int entry = (int) (handle & INDEX_MASK);
+        unlink(entry);
+        release(entry);
+        return true;
+    }
+
+    /**
+     * Checks if the timer of the given handle is still waiting to fire.
+     *
+     * @param handle - the handle returned when the timer was scheduled.
+     * @return true if the timer is pending; False otherwise.
+     */
+    public boolean isPending(long handle) {
+        if (handle == NO_TIMER) {
+            return false;
+        }
+        int entry = (int) (handle & INDEX_MASK);
+        return entry < poolSize && actions[entry] != null &&
+                generation[entry] == (int) (handle >>> GENERATION_SHIFT);
+    }
+
+    /**
+     * Advances the wheel by the given time and runs every timer which became due.
+     *
+     * @param deltaTime - the time passed since the last call, in seconds.
+     */
+    public void advance(float deltaTime) {
+        accumulated += deltaTime;
+        while (accumulated >= tickDuration) {
+            accumulated -= tickDuration;
+            tick();
+        }
+    }
+
+    /**
+     * Getter for the number of timers waiting to fire.
+     *
+     * @return the number of pending timers.
+     */
+    public int pendingCount() {
+        return pending;
+    }
+
+    /**
+     * Getter for the number of pooled timer entries, both pending and free.
+     *
+     * @return the size of the pool.
+     */
+    public int poolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Moves the wheel one tick forward. The due timers are released before any of them runs, so the
+     * actions may freely schedule and cancel other timers.
+     */
+    private void tick() {
+        currentTick++;
+        int bucket = (int) (currentTick & mask);
+        int dueCount = 0;
+        int entry = buckets[bucket];
+        while (entry != NONE) {
+            int following = next[entry];
+            if (rounds[entry] > 0) {
+                rounds[entry]--;
+            } else {
+                if (dueCount == firing.length) {
+                    firing = Arrays.copyOf(firing, dueCount * 2);
+                }
+                firing[dueCount++] = actions[entry];
+                unlink(entry);
+                release(entry);
+            }
+            entry = following;
+        }
+        for (int i = 0; i < dueCount; i++) {
+            Runnable action = firing[i];
+            firing[i] = null;
+            action.run();
+        }
+    }
+
+    private int allocate() {
+        if (freeHead != NONE) {
+            int entry = freeHead;
+            freeHead = next[entry];
+            return entry;
+        }
+        if (poolSize == actions.length) {
+            int capacity = poolSize * 2;
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            bucketOf = Arrays.copyOf(bucketOf, capacity);
+            rounds = Arrays.copyOf(rounds, capacity);
+            generation = Arrays.copyOf(generation, capacity);
+            actions = Arrays.copyOf(actions, capacity);
+        }
+        return poolSize++;
+    }
+
+    private void unlink(int entry) {
+        if (prev[entry] != NONE) {
+            next[prev[entry]] = next[entry];
+        } else {
+            buckets[bucketOf[entry]] = next[entry];
+        }
+        if (next[entry] != NONE) {
+            prev[next[entry]] = prev[entry];
+        }
+    }
+
+    private void release(int entry) {
+        actions[entry] = null;
+        generation[entry]++;
+        next[entry] = freeHead;
+        freeHead = entry;
+        pending--;
+    }
+}
@@ -3,12 +3,12 @@ package pepse.world;
 import danogl.GameObject;
 import danogl.collisions.Collision;
 import danogl.collisions.GameObjectCollection;
-import danogl.components.ScheduledTask;
 import danogl.gui.UserInputListener;
 import danogl.gui.rendering.AnimationRenderable;
 import danogl.gui.rendering.Renderable;
+import danogl.util.Counter;
 import danogl.util.Vector2;
-import danogl.gui.*;
+import pepse.util.TimerWheel;
 
 import java.awt.event.KeyEvent;
 
@@ -16,7 +16,8 @@ import static pepse.world.trees.Tree.TREE_TAG;
 
 
 /**
- * The class is responsible for everything related to the user's avatar object.
+ * The class is responsible for everything related to an avatar object: the user's avatar, which is
+ * controlled by the keyboard, and the agents of a crowd, which are moved by code.
  */
 public class Avatar extends GameObject {
 
@@ -24,19 +25,24 @@ public class Avatar extends GameObject {
     private static final float VELOCITY_Y = -400;
     private static final float GRAVITY = 300;
     public static final float AVATAR_SIZE = 30;
-    private static final double STANDING_TIME_PACE = 1;
-    private static final double WALKING_TIME_PACE = 0.14;
-    private static final double FLYING_TIME_PACE = 0.1;
-
-    private static UserInputListener inputListener;
-    private static boolean avatarFlies = false;
-    private static boolean avatarFalls = false;
-    private static AnimationRenderable standAnimation;
-    private static AnimationRenderable walkAnimation;
-    private static AnimationRenderable flyAnimation;
-    private static final Renderable[] standRenderable = new Renderable[1];
-    private static final Renderable[] walkRenderable = new Renderable[3];
-    private static final Renderable[] flyRenderable = new Renderable[3];
+    /**
+     * The flight power of an avatar which is not flying, in simulation steps.
+     */
+    public static final int INIT_FLIGHT_POWER = 100;
+    private static final float FLIGHT_INTERSECTION_RESET_TIME = .5f;
+
+    private UserInputListener inputListener;
+    private boolean avatarFlies = false;
+    private boolean avatarFalls = false;
+    private AnimationRenderable standAnimation;
+    private AnimationRenderable walkAnimation;
+    private AnimationRenderable flyAnimation;
+    private final Counter flightPower = new Counter(INIT_FLIGHT_POWER);
+
+    private TimerWheel timers;
+    private long flightResetTimer = TimerWheel.NO_TIMER;
+    private final Runnable resetIntersections =
+            () -> physics().preventIntersectionsFromDirection(Vector2.ZERO);
 
     /**
      * Constructor for an Avatar type object.
@@ -52,46 +58,50 @@ public class Avatar extends GameObject {
     }
 
     /**
-     * Creates new Avatar object.
+     * Creates new Avatar object, controlled by the user.
      *
      * @param gameObjects   - The objects-collection to which the avatar will be added.
      * @param layer         - The layer on the game screen to which the object will present.
      * @param topLeftCorner - The top-left corner of the object on the screen.
      * @param inputListener - UI object used to control the object.
-     * @param imageReader   - ImageReader object used to render the object on the screen.
+     * @param frames        - The shared frames of the avatar's animations.
+     * @param timers        - The timer wheel on which the avatar schedules its deferred events.
      * @return - a pointer to the created object.
      */
     public static Avatar create(GameObjectCollection gameObjects,
                                 int layer,
                                 Vector2 topLeftCorner,
                                 UserInputListener inputListener,
-                                ImageReader imageReader) {
-        initRenderables(imageReader);
-        standAnimation = new AnimationRenderable(standRenderable, STANDING_TIME_PACE);
-        walkAnimation = new AnimationRenderable(walkRenderable, WALKING_TIME_PACE);
-        flyAnimation = new AnimationRenderable(flyRenderable, FLYING_TIME_PACE);
-        Avatar avatar = new Avatar(topLeftCorner, new Vector2(AVATAR_SIZE, AVATAR_SIZE), standAnimation);
-        gameObjects.addGameObject(avatar, layer);
-        Avatar.inputListener = inputListener;
-
+                                AvatarFrames frames,
+                                TimerWheel timers) {
+        Avatar avatar = createAgent(gameObjects, layer, topLeftCorner, frames, timers);
+        avatar.inputListener = inputListener;
         return avatar;
     }
 
     /**
-     * Initiates all the Renderable-arrays necessary to render the avatar.
+     * Creates new Avatar object which is not controlled by the user; it only moves when move is called.
      *
-     * @param imageReader - ImageReader instance used to read the avatar's images.
+     * @param gameObjects   - The objects-collection to which the avatar will be added.
+     * @param layer         - The layer on the game screen to which the object will present.
+     * @param topLeftCorner - The top-left corner of the object on the screen.
+     * @param frames        - The shared frames of the avatar's animations.
+     * @param timers        - The timer wheel on which the avatar schedules its deferred events.
+     * @return - a pointer to the created object.
      */
-    private static void initRenderables(ImageReader imageReader) {
-        standRenderable[0] = imageReader.readImage("pepse/Girl-Melee_Static.png", true);
-
-        walkRenderable[0] = imageReader.readImage("pepse/Girl-Melee_LeftFoot.png", true);
-        walkRenderable[1] = imageReader.readImage("pepse/Girl-Melee_Static.png", true);
-        walkRenderable[2] = imageReader.readImage("pepse/Girl-Melee_RightFoot.png", true);
-
-        flyRenderable[0] = imageReader.readImage("pepse/Girl-Melee_Flying_UmbrellaLeft.png", true);
-        flyRenderable[1] = imageReader.readImage("pepse/Girl-Melee_Flying_HandUp.png", true);
-        flyRenderable[2] = imageReader.readImage("pepse/Girl-Melee_Flying_UmbrellaRight.png", true);
+    public static Avatar createAgent(GameObjectCollection gameObjects,
+                                     int layer,
+                                     Vector2 topLeftCorner,
+                                     AvatarFrames frames,
+                                     TimerWheel timers) {
+        AnimationRenderable standAnimation = frames.standAnimation();
+        Avatar avatar = new Avatar(topLeftCorner, new Vector2(AVATAR_SIZE, AVATAR_SIZE), standAnimation);
+        avatar.standAnimation = standAnimation;
+        avatar.walkAnimation = frames.walkAnimation();
+        avatar.flyAnimation = frames.flyAnimation();
+        avatar.timers = timers;
+        gameObjects.addGameObject(avatar, layer);
+        return avatar;
     }
 
     /**
@@ -99,7 +109,7 @@ public class Avatar extends GameObject {
      *
      * @return True if it flies; Otherwise returns false.
      */
-    public static boolean getAvatarFliesFlag() {
+    public boolean getAvatarFliesFlag() {
         return avatarFlies;
     }
 
@@ -107,29 +117,67 @@ public class Avatar extends GameObject {
      * Boolean flag which sets the avatar to a falling state.
      * @param flag - boolean.
      */
-    public static void setAvatarFalls(boolean flag) {
+    public void setAvatarFalls(boolean flag) {
         avatarFalls = flag;
     }
 
+    /**
+     * Getter for the flight power the avatar has left.
+     *
+     * @return the remaining flight power, in simulation steps.
+     */
+    public int getFlightPower() {
+        return flightPower.value();
+    }
+
+    /**
+     * Sets the flight power the avatar has left, as saved in a snapshot.
+     *
+     * @param power - the remaining flight power, in simulation steps.
+     */
+    public void setFlightPower(int power) {
+        flightPower.reset();
+        flightPower.increaseBy(power);
+    }
+
     @Override
     public void onCollisionEnter(GameObject other, Collision collision) {
         super.onCollisionEnter(other, collision);
         if (getVelocity().approximatelyEquals(Vector2.ZERO)) {
             if (other.getTag().equals(TREE_TAG))
-                setCenter(getCenter().add(new Vector2(Block.SIZE, Vector2.ZERO.y())));
+                transform().setTopLeftCornerX(getTopLeftCorner().x() + Block.SIZE);
         }
     }
 
     @Override
     public void update(float deltaTime) {
         super.update(deltaTime);
+        if (inputListener != null) {
+            move(inputListener.isKeyPressed(KeyEvent.VK_LEFT),
+                    inputListener.isKeyPressed(KeyEvent.VK_RIGHT),
+                    inputListener.isKeyPressed(KeyEvent.VK_SPACE),
+                    inputListener.isKeyPressed(KeyEvent.VK_SHIFT));
+        }
+        updateFlightPower();
+    }
+
+    /**
+     * Moves the avatar as if the given keys were held: left and right walk, jump jumps, and jump with
+     * boost flies while there is flight power left.
+     *
+     * @param left  - whether the avatar walks left.
+     * @param right - whether the avatar walks right.
+     * @param jump  - whether the avatar jumps.
+     * @param boost - whether the jump is boosted into a flight.
+     */
+    public void move(boolean left, boolean right, boolean jump, boolean boost) {
         float xVel = 0;
-        if (inputListener.isKeyPressed(KeyEvent.VK_LEFT)) {
+        if (left) {
             xVel -= VELOCITY_X;
             renderer().setIsFlippedHorizontally(true);
             renderer().setRenderable(walkAnimation);
         }
-        if (inputListener.isKeyPressed(KeyEvent.VK_RIGHT)) {
+        if (right) {
             xVel += VELOCITY_X;
             renderer().setIsFlippedHorizontally(false);
             renderer().setRenderable(walkAnimation);
@@ -137,28 +185,43 @@ public class Avatar extends GameObject {
         }
         transform().setVelocityX(xVel);
 
-        if (!inputListener.isKeyPressed(KeyEvent.VK_RIGHT) && !inputListener.isKeyPressed(KeyEvent.VK_LEFT))
+        if (!right && !left)
             renderer().setRenderable(standAnimation);
 
-        if (inputListener.isKeyPressed(KeyEvent.VK_SPACE) && inputListener.isKeyPressed(KeyEvent.VK_SHIFT)) {
+        if (jump && boost) {
             avatarFlies = true;
             if (!avatarFalls) {
                 renderer().setRenderable(flyAnimation);
                 transform().setVelocityY(0.45f * VELOCITY_Y);
-                new ScheduledTask(this, .5f, false,
-                        () -> physics().preventIntersectionsFromDirection(Vector2.ZERO));
+                if (!timers.isPending(flightResetTimer)) {
+                    flightResetTimer = timers.schedule(FLIGHT_INTERSECTION_RESET_TIME, resetIntersections);
+                }
                 return;
             }
         }
         if (getVelocity().y() == 0) {
             avatarFlies = false;
             avatarFalls = false;
-            if (inputListener.isKeyPressed(KeyEvent.VK_SPACE)) {
+            if (jump) {
                 renderer().setRenderable(flyAnimation);
                 transform().setVelocityY(VELOCITY_Y);
             }
         }
     }
 
+    /**
+     * Spends one step of flight power while the avatar flies, and makes it fall once the power runs out.
+     * The power is restored as soon as the avatar stops flying.
+     */
+    private void updateFlightPower() {
+        if (avatarFlies) {
+            if (flightPower.value() == 0) avatarFalls = true;
+            else flightPower.decrement();
+        } else {
+            flightPower.reset();
+            flightPower.increaseBy(INIT_FLIGHT_POWER);
+        }
+    }
+
 
 }
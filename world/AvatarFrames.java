@@ -0,0 +1,81 @@
+package pepse.world;
+
+import danogl.gui.rendering.AnimationRenderable;
+import danogl.gui.rendering.Renderable;
+import pepse.util.AssetManager;
+
+/**
+ * The images of the avatar's animations. The frames are loaded once and shared by every avatar in the
+ * game, while each avatar gets its own animations over them, since an animation keeps track of its own
+ * elapsed time.
+ */
+public final class AvatarFrames {
+
+    private static final String STATIC_IMAGE = "pepse/Girl-Melee_Static.png";
+    private static final String LEFT_FOOT_IMAGE = "pepse/Girl-Melee_LeftFoot.png";
+    private static final String RIGHT_FOOT_IMAGE = "pepse/Girl-Melee_RightFoot.png";
+    private static final String UMBRELLA_LEFT_IMAGE = "pepse/Girl-Melee_Flying_UmbrellaLeft.png";
+    private static final String HAND_UP_IMAGE = "pepse/Girl-Melee_Flying_HandUp.png";
+    private static final String UMBRELLA_RIGHT_IMAGE = "pepse/Girl-Melee_Flying_UmbrellaRight.png";
+    /**
+     * All the images used to render the avatar, to be preloaded before the frames are loaded.
+     */
+    public static final String[] IMAGES = {STATIC_IMAGE, LEFT_FOOT_IMAGE, RIGHT_FOOT_IMAGE,
+            UMBRELLA_LEFT_IMAGE, HAND_UP_IMAGE, UMBRELLA_RIGHT_IMAGE};
+    private static final double STANDING_TIME_PACE = 1;
+    private static final double WALKING_TIME_PACE = 0.14;
+    private static final double FLYING_TIME_PACE = 0.1;
+
+    private final Renderable[] standRenderable;
+    private final Renderable[] walkRenderable;
+    private final Renderable[] flyRenderable;
+
+    private AvatarFrames(Renderable[] standRenderable, Renderable[] walkRenderable,
+                         Renderable[] flyRenderable) {
+        this.standRenderable = standRenderable;
+        this.walkRenderable = walkRenderable;
+        this.flyRenderable = flyRenderable;
+    }
+
+    /**
+     * Loads the frames of all the avatar's animations.
+     *
+     * @param assets - The asset manager which supplies the avatar's images.
+     * @return the loaded frames.
+     */
+    public static AvatarFrames load(AssetManager assets) {
+        return new AvatarFrames(
+                new Renderable[]{assets.get(STATIC_IMAGE)},
+                new Renderable[]{assets.get(LEFT_FOOT_IMAGE), assets.get(STATIC_IMAGE),
+                        assets.get(RIGHT_FOOT_IMAGE)},
+                new Renderable[]{assets.get(UMBRELLA_LEFT_IMAGE), assets.get(HAND_UP_IMAGE),
+                        assets.get(UMBRELLA_RIGHT_IMAGE)});
+    }
+
+    /**
+     * Creates a new standing animation over the shared frames.
+     *
+     * @return the animation.
+     */
+    public AnimationRenderable standAnimation() {
+        return new AnimationRenderable(standRenderable, STANDING_TIME_PACE);
+    }
+
+    /**
+     * Creates a new walking animation over the shared frames.
+     *
+     * @return the animation.
+     */
+    public AnimationRenderable walkAnimation() {
+        return new AnimationRenderable(walkRenderable, WALKING_TIME_PACE);
+    }
+
+    /**
+     * Creates a new flying animation over the shared frames.
+     *
+     * @return the animation.
+     */
+    public AnimationRenderable flyAnimation() {
+        return new AnimationRenderable(flyRenderable, FLYING_TIME_PACE);
+    }
+}
@@ -0,0 +1,357 @@
+package pepse.world;
+
+import danogl.GameObject;
+import pepse.world.trees.Leaf;
+import pepse.world.trees.TrunkIndex;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Caps the number of live landscape objects and their estimated size. The landscape is divided into
+ * fixed chunks, and the landscape manager recounts the objects of every chunk each time it scans the
+ * collection. Once the counts exceed the cap, whole chunks are evicted, farthest from the avatar first.
+ * The chunks around the camera are never evicted; an evicted chunk is regenerated as soon as the
+ * avatar comes near it again.
+ * <p>
+ * The size of an object is an estimate of its retained heap (the game object, its transform, renderer,
+ * physics and renderable, and for a leaf also its random and transitions), not a measurement.
+ */
+public class ChunkBudget {
+
+    /**
+     * The width (in pixels) of a chunk of the budget. It matches the chunks of the trunk index, so an
+     * evicted chunk drops exactly one chunk of trunks.
+     */
+    public static final int CHUNK_WIDTH = TrunkIndex.CHUNK_WIDTH;
+    /**
+     * Returned when there is no chunk to restore.
+     */
+    public static final int NO_CHUNK = Integer.MIN_VALUE;
+    private static final long BLOCK_BYTES = 700;
+    private static final long LEAF_BYTES = 1500;
+    private static final int INIT_EVICTED_CAPACITY = 8;
+
+    private final int maxObjects;
+    private final long maxBytes;
+    private final TreeMap<Integer, Usage> resident = new TreeMap<>();
+    private int[] evicted = new int[INIT_EVICTED_CAPACITY];
+    private int evictedCount = 0;
+    private int liveObjects = 0;
+    private long estimatedBytes = 0;
+    private long evictions = 0;
+    private long restores = 0;
+
+    /**
+     * Constructor for the ChunkBudget.
+     *
+     * @param maxObjects - the maximal number of live landscape objects.
+     * @param maxBytes   - the maximal estimated size of the live landscape objects, in bytes.
+     */
+    public ChunkBudget(int maxObjects, long maxBytes) {
+        this.maxObjects = maxObjects;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Finds the chunk of the given x-coordinate.
+     *
+     * @param x - the x-coordinate, in pixels.
+     * @return the index of the chunk.
+     */
+    public static int chunkOf(float x) {
+        return (int) Math.floor(x / CHUNK_WIDTH);
+    }
+
+    /**
+     * Finds the x-coordinate by which an object is counted: a leaf belongs to the chunk of its tree, even
+     * while it falls away from it; any other object belongs to the chunk of its center.
+     *
+     * @param obj - the object.
+     * @return the x-coordinate of the object for the budget.
+     */
+    public static float anchorX(GameObject obj) {
+        if (obj instanceof Leaf) {
+            return ((Leaf) obj).getAnchorX();
+        }
+        return obj.getTopLeftCorner().x() + obj.getDimensions().x() / 2;
+    }
+
+    /**
+     * Estimates the size of a landscape object.
+     *
+     * @param obj - the object.
+     * @return the estimated size in bytes, or 0 if the object is not a part of the landscape.
+     */
+    public static long estimateBytes(GameObject obj) {
+        if (obj instanceof Leaf) {
+            return LEAF_BYTES;
+        }
+        if (obj instanceof Block) {
+            return BLOCK_BYTES;
+        }
+        return 0;
+    }
+
+    /**
+     * Starts a new count of the live objects. Must be followed by a call to count for every live landscape
+     * object, and then by a call to endCount.
+     */
+    public void beginCount() {
+        for (Usage usage : resident.values()) {
+            usage.objects = 0;
+            usage.bytes = 0;
+        }
+    }
+
+    /**
+     * Counts a live landscape object.
+     *
+     * @param x     - the x-coordinate by which the object is counted.
+     * @param bytes - the estimated size of the object.
+     */
+    public void count(float x, long bytes) {
+        Usage usage = resident.computeIfAbsent(chunkOf(x), chunk -> new Usage());
+        usage.objects++;
+        usage.bytes += bytes;
+    }
+
+    /**
+     * Ends the count, dropping the chunks which have no objects left.
+     */
+    public void endCount() {
+        liveObjects = 0;
+        estimatedBytes = 0;
+        Iterator<Usage> iterator = resident.values().iterator();
+        while (iterator.hasNext()) {
+            Usage usage = iterator.next();
+            if (usage.objects == 0) {
+                iterator.remove();
+            } else {
+                liveObjects += usage.objects;
+                estimatedBytes += usage.bytes;
+            }
+        }
+    }
+
+    /**
+     * Chooses the chunks to evict until the live objects fit in the budget, farthest from the avatar first.
+     * A chunk which intersects the protected range is never chosen, so the eviction stops there even if
+     * the budget is still exceeded.
+     *
+     * @param avatarX       - the x-coordinate of the avatar.
+     * @param protectedMinX - the left edge of the range which may not be evicted.
+     * @param protectedMaxX - the right edge of the range which may not be evicted.
+     * @return the evicted chunks, which may be empty.
+     */
+    public int[] evictOverBudget(float avatarX, int protectedMinX, int protectedMaxX) {
+        int[] chosen = new int[0];
+        int protectedFirst = chunkOf(protectedMinX);
+        int protectedLast = chunkOf(protectedMaxX);
+        while (isOverBudget() && !resident.isEmpty()) {
+            Map.Entry<Integer, Usage> first = resident.firstEntry();
+            Map.Entry<Integer, Usage> last = resident.lastEntry();
+            Map.Entry<Integer, Usage> farthest =
+                    distance(first.getKey(), avatarX) >= distance(last.getKey(), avatarX) ? first : last;
+            int chunk = farthest.getKey();
+            if (chunk >= protectedFirst && chunk <= protectedLast) {
+                break;
+            }
+            resident.remove(chunk);
+            liveObjects -= farthest.getValue().objects;
+            estimatedBytes -= farthest.getValue().bytes;
+            evictions++;
+            markEvicted(chunk);
+            chosen = Arrays.copyOf(chosen, chosen.length + 1);
+            chosen[chosen.length - 1] = chunk;
+        }
+        return chosen;
+    }
+
+    /**
+     * Checks if the given chunk was evicted and not restored yet. The landscape manager does not generate
+     * an evicted chunk while streaming, since the chunk is regenerated as a whole once it is restored.
+     *
+     * @param chunk - the index of the chunk.
+     * @return true if the chunk is evicted; False otherwise.
+     */
+    public boolean isEvicted(int chunk) {
+        for (int i = 0; i < evictedCount; i++) {
+            if (evicted[i] == chunk) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if any evicted chunk intersects the given range.
+     *
+     * @param minX - the left edge of the range.
+     * @param maxX - the right edge of the range.
+     * @return true if an evicted chunk intersects the range; False otherwise.
+     */
+    public boolean anyEvictedIn(int minX, int maxX) {
+        return evictedCount > 0 && findEvicted(chunkOf(minX), chunkOf(maxX)) >= 0;
+    }
+
+    /**
+     * Takes an evicted chunk which intersects the given range, so it can be regenerated.
+     *
+     * @param minX - the left edge of the range.
+     * @param maxX - the right edge of the range.
+     * @return the index of the chunk, or NO_CHUNK if no evicted chunk intersects the range.
+     */
+    public int takeRestorable(int minX, int maxX) {
+        if (evictedCount == 0) {
+            return NO_CHUNK;
+        }
+        int index = findEvicted(chunkOf(minX), chunkOf(maxX));
+        if (index < 0) {
+            return NO_CHUNK;
+        }
+        int chunk = evicted[index];
+        evicted[index] = evicted[--evictedCount];
+        restores++;
+        return chunk;
+    }
+
+    /**
+     * Forgets the evicted chunks which are not entirely inside the given range. Those chunks were emptied
+     * by the landscape manager anyway, and are generated again by the streaming like any other range.
+     *
+     * @param minX - the left edge of the range.
+     * @param maxX - the right edge of the range.
+     */
+    public void forgetOutside(int minX, int maxX) {
+        for (int i = evictedCount - 1; i >= 0; i--) {
+            int chunkMinX = evicted[i] * CHUNK_WIDTH;
+            if (chunkMinX < minX || chunkMinX + CHUNK_WIDTH - 1 > maxX) {
+                evicted[i] = evicted[--evictedCount];
+            }
+        }
+    }
+
+    /**
+     * Returns the chunks which were evicted and not restored yet, in ascending order.
+     *
+     * @return the indices of the evicted chunks.
+     */
+    public int[] getEvictedChunks() {
+        int[] chunks = Arrays.copyOf(evicted, evictedCount);
+        Arrays.sort(chunks);
+        return chunks;
+    }
+
+    /**
+     * Marks the given chunks as evicted, as saved in a snapshot, so they are regenerated once the avatar
+     * comes near them.
+     *
+     * @param chunks - the indices of the evicted chunks.
+     */
+    public void setEvictedChunks(int[] chunks) {
+        evictedCount = 0;
+        for (int chunk : chunks) {
+            markEvicted(chunk);
+        }
+    }
+
+    /**
+     * Moves every chunk by the given number of chunks, when the world's origin moves.
+     *
+     * @param chunks - the number of chunks to move, positive to the right.
+     */
+    public void shift(int chunks) {
+        TreeMap<Integer, Usage> shifted = new TreeMap<>();
+        for (Map.Entry<Integer, Usage> entry : resident.entrySet()) {
+            shifted.put(entry.getKey() + chunks, entry.getValue());
+        }
+        resident.clear();
+        resident.putAll(shifted);
+        for (int i = 0; i < evictedCount; i++) {
+            evicted[i] += chunks;
+        }
+    }
+
+    /**
+     * Getter for the number of live landscape objects, as of the last count.
+     *
+     * @return the number of live objects.
+     */
+    public int getLiveObjects() {
+        return liveObjects;
+    }
+
+    /**
+     * Getter for the estimated size of the live landscape objects, as of the last count.
+     *
+     * @return the estimated size in bytes.
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Getter for the number of chunks which hold live objects.
+     *
+     * @return the number of resident chunks.
+     */
+    public int getResidentChunks() {
+        return resident.size();
+    }
+
+    /**
+     * Getter for the number of chunks evicted since the world was created.
+     *
+     * @return the number of evictions.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Getter for the number of evicted chunks which were regenerated since the world was created.
+     *
+     * @return the number of restores.
+     */
+    public long getRestores() {
+        return restores;
+    }
+
+    private boolean isOverBudget() {
+        return liveObjects > maxObjects || estimatedBytes > maxBytes;
+    }
+
+    private static float distance(int chunk, float x) {
+        return Math.abs(chunk * (float) CHUNK_WIDTH + CHUNK_WIDTH / 2f - x);
+    }
+
+    private void markEvicted(int chunk) {
+        if (isEvicted(chunk)) {
+            return;
+        }
+        if (evictedCount == evicted.length) {
+            evicted = Arrays.copyOf(evicted, evictedCount * 2);
+        }
+        evicted[evictedCount++] = chunk;
+    }
+
+    private int findEvicted(int firstChunk, int lastChunk) {
+        for (int i = 0; i < evictedCount; i++) {
+            if (evicted[i] >= firstChunk && evicted[i] <= lastChunk) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The live objects of a single chunk.
+     */
+    private static class Usage {
+        private int objects;
+        private long bytes;
+    }
+}
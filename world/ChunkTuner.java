@@ -0,0 +1,143 @@
+package pepse.world;
+
+import static pepse.PepseGameManager.FIRST_INDEX;
+
+/**
+ * Picks the chunk size of the landscape manager from what the landscape actually costs. Every crossing
+ * into another chunk generates a chunk of columns and scans the live objects, so a big chunk makes a
+ * long frame, while a small chunk makes the crossings, and their scans, frequent. The tuner measures
+ * the time spent per generated column and per scanned object, and the speed of the avatar, and then
+ * picks the block-aligned chunk size whose crossing frame is the shortest, as long as the crossings
+ * take at most a small share of the time and the avatar cannot pass a whole chunk in one step.
+ */
+public class ChunkTuner {
+
+    private static final int EVALUATION_STEPS = 600;
+    private static final double SMOOTHING = 0.25;
+    private static final int MIN_CHUNK_SIZE = Block.SIZE * 8;
+    private static final double CROSSING_TIME_SHARE = 0.02;
+    private static final float DISPLACEMENT_MARGIN = 4;
+    private static final double NANOS_IN_SECOND = 1e9;
+    private static final double NANOS_IN_MICRO = 1e3;
+    private static final double NANOS_IN_MILLI = 1e6;
+
+    private final int viewHalfWidth;
+    private final int maxChunkSize;
+    private final float stepSeconds;
+    private double nanosPerColumn = Double.NaN;
+    private double nanosPerObject = Double.NaN;
+    private double objectsPerPixel = Double.NaN;
+    private double displacement = 0;
+    private float peakDisplacement = 0;
+    private int steps = 0;
+
+    /**
+     * Constructor for the ChunkTuner.
+     *
+     * @param viewHalfWidth - the distance from the avatar to the edge of the view, in pixels.
+     * @param maxChunkSize  - the biggest chunk size to consider, in pixels.
+     * @param stepSeconds   - the simulated time of a step, in seconds.
+     */
+    public ChunkTuner(int viewHalfWidth, int maxChunkSize, float stepSeconds) {
+        this.viewHalfWidth = viewHalfWidth;
+        this.maxChunkSize = maxChunkSize;
+        this.stepSeconds = stepSeconds;
+    }
+
+    /**
+     * Records the movement of the avatar in a single step.
+     *
+     * @param stepDisplacement - the horizontal distance the avatar moved, in pixels.
+     */
+    public void recordStep(float stepDisplacement) {
+        displacement += stepDisplacement;
+        peakDisplacement = Math.max(peakDisplacement, stepDisplacement);
+        steps++;
+    }
+
+    /**
+     * Records the generation of a range of the landscape.
+     *
+     * @param nanos   - the time spent on the generation, in nanoseconds.
+     * @param columns - the number of columns generated.
+     */
+    public void recordGeneration(long nanos, int columns) {
+        if (columns > 0) {
+            nanosPerColumn = smooth(nanosPerColumn, (double) nanos / columns);
+        }
+    }
+
+    /**
+     * Records a scan of the live objects.
+     *
+     * @param nanos     - the time spent on the scan, in nanoseconds.
+     * @param objects   - the number of objects scanned.
+     * @param keepWidth - the width of the range kept by the scan, in pixels.
+     */
+    public void recordUnload(long nanos, int objects, int keepWidth) {
+        if (objects > 0) {
+            nanosPerObject = smooth(nanosPerObject, (double) nanos / objects);
+            objectsPerPixel = smooth(objectsPerPixel, (double) objects / keepWidth);
+        }
+    }
+
+    /**
+     * Picks the chunk size once enough steps were measured since the last evaluation, and logs the choice
+     * if it changed.
+     *
+     * @param chunkSize - the current chunk size, in pixels.
+     * @return the chunk size to use from now on.
+     */
+    public int evaluate(int chunkSize) {
+        if (steps < EVALUATION_STEPS || Double.isNaN(nanosPerColumn) || Double.isNaN(nanosPerObject)) {
+            return chunkSize;
+        }
+        double speed = displacement / (steps * stepSeconds);
+        int minChunkSize = Math.max(MIN_CHUNK_SIZE, (int) Math.ceil(peakDisplacement * DISPLACEMENT_MARGIN));
+        displacement = 0;
+        peakDisplacement = 0;
+        steps = 0;
+        int first = aligned(minChunkSize);
+        if (first < minChunkSize) {
+            first += Block.SIZE;
+        }
+        int best = Math.max(first, aligned(maxChunkSize));
+        double bestCost = Double.MAX_VALUE;
+        for (int size = first; size <= maxChunkSize; size += Block.SIZE) {
+            double crossingNanos = crossingNanos(size);
+            boolean fits = speed / size * crossingNanos <= CROSSING_TIME_SHARE * NANOS_IN_SECOND;
+            if (fits && crossingNanos < bestCost) {
+                best = size;
+                bestCost = crossingNanos;
+            }
+        }
+        if (best != chunkSize) {
+            System.out.printf("chunk size: %dpx -> %dpx (generation %.1fus/column, unload %.2fus/object, " +
+                            "speed %.0fpx/s, crossing frame %.2fms)%n", chunkSize, best,
+                    nanosPerColumn / NANOS_IN_MICRO, nanosPerObject / NANOS_IN_MICRO, speed,
+                    crossingNanos(best) / NANOS_IN_MILLI);
+        }
+        return best;
+    }
+
+    /**
+     * Estimates the time of a frame which crosses into another chunk: generating a chunk of columns, and
+     * scanning the objects kept on both sides of the avatar.
+     *
+     * @param chunkSize - the chunk size, in pixels.
+     * @return the estimated time, in nanoseconds.
+     */
+    private double crossingNanos(int chunkSize) {
+        double columns = (double) chunkSize / Block.SIZE;
+        double objects = objectsPerPixel * 2 * (viewHalfWidth + chunkSize);
+        return nanosPerColumn * columns + nanosPerObject * objects;
+    }
+
+    private static int aligned(int size) {
+        return Math.max(Block.fixRange(size, size)[FIRST_INDEX], Block.SIZE);
+    }
+
+    private static double smooth(double average, double sample) {
+        return Double.isNaN(average) ? sample : average + SMOOTHING * (sample - average);
+    }
+}
@@ -3,24 +3,58 @@ package pepse.world;
 import danogl.GameObject;
 import danogl.collisions.GameObjectCollection;
 import danogl.collisions.Layer;
-import danogl.util.Counter;
+import pepse.jfr.ChunkLoadEvent;
+import pepse.jfr.ChunkUnloadEvent;
+import pepse.world.trees.Leaf;
 import pepse.world.trees.Tree;
+import pepse.world.trees.TreeFactory;
+import pepse.world.trees.TrunkIndex;
+
+import java.util.Arrays;
 
 import static pepse.PepseGameManager.FIRST_INDEX;
-import static pepse.PepseGameManager.SECOND_INDEX;
+import static pepse.world.ChunkBudget.CHUNK_WIDTH;
 import static pepse.world.trees.Tree.LEAF_LAYER;
 import static pepse.world.trees.Tree.TREE_LAYER;
 
 /**
  * This class is responsible to keep generating the landscape as the avatar moves forwards or backwards.
+ * The live landscape is also kept inside a ChunkBudget: when it exceeds the budget, the chunks farthest
+ * from the avatar are evicted, and they are regenerated once the avatar comes near them again.
+ * <p>
+ * The landscape is generated one chunk ahead of the view whenever the avatar crosses into another chunk.
+ * The chunk size starts at half the window's width, and a ChunkTuner may change it as the game runs. The
+ * chunks of the streaming are counted in the world's coordinates, so moving the world's origin does not
+ * cross into another chunk.
+ * <p>
+ * The manager also rebuilds the columns of the terrain which were edited: only the objects standing on
+ * an edited column are touched, and at most REBUILD_COLUMNS columns are rebuilt in a single update.
  */
 public class CollectionManager {
     private static final int REMOVE_RANGE_FACTOR = 2;
-    private final int chunkSize;
+    /**
+     * The most edited columns rebuilt in a single update. The budget is counted in columns rather than in
+     * time, so a replay rebuilds the same columns on the same frames.
+     */
+    public static final int REBUILD_COLUMNS = Integer.getInteger("pepse.rebuildColumns", 32);
+    private final int viewHalfWidth;
     private final Terrain terrain;
     private final Avatar avatar;
     private final GameObjectCollection gameObjects;
-    private final Counter chunkCounter = new Counter(1);
+    private final TreeFactory treeFactory;
+    private final TrunkIndex trunkIndex;
+    private final ChunkBudget budget;
+    private final WorldOrigin origin;
+    private long streamedChunk;
+    private int chunkSize;
+    private ChunkTuner tuner;
+    private LandscapeListener listener;
+    private float lastAvatarX;
+    private int rangeMinX;
+    private int rangeMaxX;
+    private long removalChunk = Long.MIN_VALUE;
+    private final long[] dirtyColumns = new long[REBUILD_COLUMNS];
+    private final int[] dirtyXs = new int[REBUILD_COLUMNS];
 
     /**
      * The constructor to the collection manager.
@@ -29,81 +63,415 @@ public class CollectionManager {
      * @param terrain           - the terrain of the game.
      * @param avatar            - the avatar of the game.
      * @param gameObjects       - the collection of objects in the game.
+     * @param treeFactory       - the factory which places the trees of the game.
+     * @param trunkIndex        - the spatial index of the loaded tree trunks.
+     * @param budget            - the budget of the live landscape objects.
      */
     public CollectionManager(float windowDimensionsX, Terrain terrain, Avatar avatar,
-                             GameObjectCollection gameObjects) {
-        this.chunkSize = (int) (windowDimensionsX / 2);
+                             GameObjectCollection gameObjects, TreeFactory treeFactory,
+                             TrunkIndex trunkIndex, ChunkBudget budget) {
+        this.viewHalfWidth = (int) (windowDimensionsX / 2);
+        this.chunkSize = viewHalfWidth;
         this.terrain = terrain;
         this.avatar = avatar;
         this.gameObjects = gameObjects;
+        this.treeFactory = treeFactory;
+        this.trunkIndex = trunkIndex;
+        this.budget = budget;
+        this.origin = terrain.getOrigin();
+        this.lastAvatarX = avatarCenterX();
+        this.streamedChunk = worldChunkOf((int) Math.floor(lastAvatarX));
+    }
+
+    /**
+     * Sets the tuner which picks the chunk size. Without a tuner, the chunk size stays half the window's
+     * width.
+     *
+     * @param tuner - the tuner, or null to keep the current chunk size.
+     */
+    public void setTuner(ChunkTuner tuner) {
+        this.tuner = tuner;
+    }
+
+    /**
+     * Sets the listener which is told about every range the landscape manager loads and unloads.
+     *
+     * @param listener - the listener, or null to tell no one.
+     */
+    public void setListener(LandscapeListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Moves the remembered position of the avatar by the given distance, when the world's origin moves.
+     *
+     * @param dx - the distance every object moved.
+     */
+    public void shift(int dx) {
+        lastAvatarX += dx;
+    }
+
+    /**
+     * Getter for the current chunk size.
+     *
+     * @return the width of a chunk, in pixels.
+     */
+    public int getChunkSize() {
+        return chunkSize;
     }
 
     /**
      * Updates the landscape on each update.
      */
     public void updateLandscape() {
-        addLandscape();
-        removeObj();
+        float avatarX = avatarCenterX();
+        if (tuner != null) {
+            tuner.recordStep(Math.abs(avatarX - lastAvatarX));
+            lastAvatarX = avatarX;
+        }
+        if (restoreEvicted()) {
+            removalChunk = Long.MIN_VALUE;
+        }
+        boolean crossed = findRange();
+        if (crossed) {
+            addLandscape(rangeMinX, rangeMaxX);
+        }
+        rebuildDirty();
+        long currentChunk = worldChunkOf((int) Math.floor(avatarX));
+        if (currentChunk != removalChunk) {
+            removalChunk = currentChunk;
+            removeObj(avatarX);
+        }
+        if (crossed && tuner != null) {
+            retune();
+        }
+    }
+
+    /**
+     * Applies the chunk size picked by the tuner. A bigger chunk generates further ahead of the view, so
+     * the landscape between the old and the new edge is generated at once on both sides; the chunk
+     * counters are then moved to the new chunks, so the next crossing is a crossing of the new size.
+     */
+    private void retune() {
+        int chosen = tuner.evaluate(chunkSize);
+        if (chosen == chunkSize) {
+            return;
+        }
+        int avatarLocX = (int) Math.floor(avatarCenterX());
+        if (chosen > chunkSize) {
+            addLandscape(avatarLocX + viewHalfWidth + chunkSize, avatarLocX + viewHalfWidth + chosen);
+            addLandscape(avatarLocX - viewHalfWidth - chosen, avatarLocX - viewHalfWidth - chunkSize);
+        }
+        chunkSize = chosen;
+        long currentChunk = worldChunkOf(avatarLocX);
+        streamedChunk = currentChunk;
+        removalChunk = currentChunk;
+    }
+
+    /**
+     * Finds the streaming chunk of the given x-coordinate, counted in the world's coordinates.
+     *
+     * @param x - the x-coordinate, in the game's coordinates.
+     * @return the index of the chunk.
+     */
+    private long worldChunkOf(int x) {
+        return Math.floorDiv(origin.toWorld(x), chunkSize);
+    }
+
+    /**
+     * Computes the x-coordinate of the avatar's center. GameObject.getCenter() creates a new vector on
+     * every call, so the center is derived from the top-left corner instead.
+     *
+     * @return the x-coordinate of the avatar's center.
+     */
+    private float avatarCenterX() {
+        return avatar.getTopLeftCorner().x() + avatar.getDimensions().x() / 2;
+    }
+
+    /**
+     * Adds terrain and trees to the given range. The evicted chunks in the range are skipped, since each
+     * of them is regenerated as a whole once it is restored.
+     *
+     * @param minX - the left edge of the range.
+     * @param maxX - the right edge of the range.
+     */
+    private void addLandscape(int minX, int maxX) {
+        ChunkLoadEvent event = new ChunkLoadEvent();
+        event.begin();
+        long start = System.nanoTime();
+        if (budget.anyEvictedIn(minX, maxX)) {
+            int lastChunk = ChunkBudget.chunkOf(maxX);
+            for (int chunk = ChunkBudget.chunkOf(minX); chunk <= lastChunk; chunk++) {
+                if (!budget.isEvicted(chunk)) {
+                    int chunkMinX = chunk * CHUNK_WIDTH;
+                    generate(Math.max(minX, chunkMinX), chunk == lastChunk ? maxX : lastColumnOf(chunk),
+                            event);
+                }
+            }
+        } else {
+            generate(minX, maxX, event);
+        }
+        if (tuner != null) {
+            tuner.recordGeneration(System.nanoTime() - start, event.columns);
+        }
+        loaded(event, minX, maxX);
+    }
+
+    /**
+     * Ends the event of a load, commits it to the flight recorder and tells the listener about it.
+     *
+     * @param event - the event of the load.
+     * @param minX  - the left edge of the loaded range.
+     * @param maxX  - the right edge of the loaded range.
+     */
+    private void loaded(ChunkLoadEvent event, int minX, int maxX) {
+        event.end();
+        event.minX = origin.toWorld(minX);
+        event.maxX = origin.toWorld(maxX);
+        if (event.shouldCommit()) {
+            event.commit();
+        }
+        if (listener != null) {
+            listener.chunkLoaded(event.minX, event.maxX, event.columns, event.trees, event.leaves);
+        }
+    }
+
+    /**
+     * Regenerates the evicted chunks which the avatar came near to.
+     *
+     * @return true if any chunk was regenerated; False otherwise.
+     */
+    private boolean restoreEvicted() {
+        float avatarX = avatarCenterX();
+        int restoreMinX = (int) avatarX - viewHalfWidth - CHUNK_WIDTH / 2;
+        int restoreMaxX = (int) avatarX + viewHalfWidth + CHUNK_WIDTH / 2;
+        boolean restored = false;
+        int chunk;
+        while ((chunk = budget.takeRestorable(restoreMinX, restoreMaxX)) != ChunkBudget.NO_CHUNK) {
+            ChunkLoadEvent event = new ChunkLoadEvent();
+            event.begin();
+            generate(chunk * CHUNK_WIDTH, lastColumnOf(chunk), event);
+            loaded(event, chunk * CHUNK_WIDTH, chunk * CHUNK_WIDTH + CHUNK_WIDTH - 1);
+            restored = true;
+        }
+        return restored;
+    }
+
+    /**
+     * Adds terrain and trees to the given range, and records what was added on the given event.
+     *
+     * @param minX  - the left edge of the range.
+     * @param maxX  - the right edge of the range.
+     * @param event - the event of the load.
+     */
+    private void generate(int minX, int maxX, ChunkLoadEvent event) {
+        float[] heights = terrain.planHeights(minX, maxX, false);
+        terrain.createFromHeights(Block.fixRange(minX, maxX)[FIRST_INDEX], heights);
+        Tree[] trees = treeFactory.planInRange(minX, maxX, false);
+        treeFactory.build(trees);
+        event.columns += heights.length;
+        event.trees += trees.length;
+        for (Tree tree : trees) {
+            event.leaves += Integer.bitCount(tree.getLeafMask());
+        }
+    }
+
+    /**
+     * Computes the right edge to pass to Block.fixRange so that the last column it covers is the last
+     * column of the given chunk.
+     *
+     * @param chunk - the index of the chunk.
+     * @return the right edge of the chunk's columns.
+     */
+    private static int lastColumnOf(int chunk) {
+        return chunk * CHUNK_WIDTH + CHUNK_WIDTH - Block.SIZE - 1;
+    }
+
+    /**
+     * Rebuilds the loaded objects of the columns which were edited since they were last built. The ground
+     * block of a column is both its collider and its renderable, so it is moved to the column's new
+     * height in place; a tree standing on the column is built again on the new surface. Only the ground
+     * layer is scanned, and the trunks and the leaves only when a tree stands on a taken column. The
+     * columns left dirty after REBUILD_COLUMNS are rebuilt on the next updates, and a column which is not
+     * loaded has nothing to rebuild, since it is generated with its edit once it is loaded.
+     */
+    private void rebuildDirty() {
+        if (terrain.getEdits().dirtyCount() == 0) {
+            return;
+        }
+        int taken = terrain.getEdits().takeDirty(dirtyColumns);
+        int count = 0;
+        for (int i = 0; i < taken; i++) {
+            long x = terrain.columnX(dirtyColumns[i]);
+            if (x == (int) x) {
+                dirtyXs[count++] = (int) x;
+            }
+        }
+        Arrays.sort(dirtyXs, 0, count);
+        for (GameObject ground : gameObjects.objectsInLayer(Layer.STATIC_OBJECTS)) {
+            int x = (int) ground.getTopLeftCorner().x();
+            if (Terrain.GROUND_TAG.equals(ground.getTag()) &&
+                    Arrays.binarySearch(dirtyXs, 0, count, x) >= 0) {
+                ground.transform().setTopLeftCornerY(terrain.groundHeightAt(x));
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (trunkIndex.nearest(dirtyXs[i], 0) == dirtyXs[i]) {
+                rebuildTree(dirtyXs[i]);
+            }
+        }
     }
 
     /**
-     * Adds terrain and trees to the game if needed.
+     * Removes the trunk and the canopy of the tree standing at the given column, and builds the tree again
+     * on the column's current surface. The tree's data depends only on its place, so it is the same tree.
+     *
+     * @param treeX - the x-coordinate of the tree's trunk.
      */
-    private void addLandscape() {
-        int[] range = findRange();
-        terrain.createInRange(range[FIRST_INDEX], range[SECOND_INDEX]);
-        Tree.createInRange(range[FIRST_INDEX], range[SECOND_INDEX]);
+    private void rebuildTree(int treeX) {
+        for (GameObject trunk : gameObjects.objectsInLayer(TREE_LAYER)) {
+            if ((int) trunk.getTopLeftCorner().x() == treeX) {
+                removeByLayer(trunk);
+            }
+        }
+        float canopyX = treeX + Block.SIZE / 2f;
+        for (GameObject obj : gameObjects.objectsInLayer(LEAF_LAYER)) {
+            boolean ofTree = obj instanceof Leaf ? ((Leaf) obj).getAnchorX() == treeX :
+                    ChunkBudget.anchorX(obj) == canopyX;
+            if (ofTree) {
+                removeByLayer(obj);
+            }
+        }
+        treeFactory.placeTree(treeX);
     }
 
     /**
-     * Determines the range which needed to be handled.
+     * Determines the range which needed to be handled, and stores its edges in rangeMinX and rangeMaxX.
      *
-     * @return - Integer range indicating the most right and most left edges of the range.
+     * @return - true if the avatar crossed into another chunk and a range should be generated; False
+     * otherwise.
      */
-    private int[] findRange() {
-        int[] range = new int[2];
-        int avatarLocX = (int) Math.floor(avatar.getCenter().x());
-        int currentChunk = (int) Math.floor((float) avatarLocX / chunkSize);
-        if (currentChunk > chunkCounter.value()) {
-            chunkCounter.increment();
-            range[FIRST_INDEX] = avatarLocX + chunkSize;
-            range[SECOND_INDEX] = avatarLocX + (2 * chunkSize);
+    private boolean findRange() {
+        int avatarLocX = (int) Math.floor(avatarCenterX());
+        long currentChunk = worldChunkOf(avatarLocX);
+        if (currentChunk > streamedChunk) {
+            streamedChunk++;
+            rangeMinX = avatarLocX + viewHalfWidth;
+            rangeMaxX = avatarLocX + viewHalfWidth + chunkSize;
+            return true;
         }
-        if (currentChunk < chunkCounter.value()) {
-            chunkCounter.decrement();
-            range[0] = avatarLocX - (2 * chunkSize);
-            range[1] = avatarLocX - (chunkSize);
+        if (currentChunk < streamedChunk) {
+            streamedChunk--;
+            rangeMinX = avatarLocX - viewHalfWidth - chunkSize;
+            rangeMaxX = avatarLocX - viewHalfWidth;
+            return true;
         }
-        return range;
+        return false;
     }
 
     /**
      * Removes an unnecessary object from all the relevant layers.
      *
      * @param obj - the object which needed to be removed.
+     * @return true if the object was removed from any layer; False otherwise.
      */
-    private void removeByLayer(GameObject obj) {
-        gameObjects.removeGameObject(obj, Layer.STATIC_OBJECTS);
-        gameObjects.removeGameObject(obj, TREE_LAYER);
-        gameObjects.removeGameObject(obj, LEAF_LAYER);
+    private boolean removeByLayer(GameObject obj) {
+        boolean removed = gameObjects.removeGameObject(obj, Layer.STATIC_OBJECTS);
+        removed |= gameObjects.removeGameObject(obj, TREE_LAYER);
+        if (gameObjects.removeGameObject(obj, LEAF_LAYER)) {
+            removed = true;
+            if (obj instanceof Leaf) {
+                ((Leaf) obj).cancelTimers();
+            }
+        }
+        return removed;
     }
 
     /**
-     * Removes all the objects outside the camera's range of sight.
+     * Removes all the objects outside the camera's range of sight. Scanning the whole collection is
+     * costly, so it is only done when the avatar enters another chunk; until then, the objects which
+     * went out of sight are at most one chunk away from the removal range. The same scan recounts the
+     * budget of the remaining objects, and evicts chunks if they exceed it.
+     *
+     * @param avatarX - the x-coordinate of the avatar's center.
      */
-    private void removeObj() {
-        float avatarX = avatar.getCenter().x();
-        int currentChunk = (int) ((avatarX / chunkSize) * chunkSize);
+    private void removeObj(float avatarX) {
+        int keepHalfWidth = viewHalfWidth + (REMOVE_RANGE_FACTOR - 1) * chunkSize;
+        int keepMinX = (int) avatarX - keepHalfWidth;
+        int keepMaxX = (int) avatarX + keepHalfWidth;
+        ChunkUnloadEvent event = new ChunkUnloadEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int scanned = 0;
+        int removed = 0;
+        trunkIndex.removeOutside(keepMinX, keepMaxX);
+        budget.forgetOutside(keepMinX, keepMaxX);
+        budget.beginCount();
         for (var obj : gameObjects) {
-            if (obj.getCenter().x() < currentChunk - (REMOVE_RANGE_FACTOR * chunkSize)) {
-                removeByLayer(obj);
+            scanned++;
+            float objX = obj.getTopLeftCorner().x() + obj.getDimensions().x() / 2;
+            if (objX < keepMinX || objX > keepMaxX) {
+                if (removeByLayer(obj)) {
+                    removed++;
+                }
+            } else {
+                long bytes = ChunkBudget.estimateBytes(obj);
+                if (bytes > 0) {
+                    budget.count(ChunkBudget.anchorX(obj), bytes);
+                }
             }
         }
+        budget.endCount();
+        if (tuner != null) {
+            tuner.recordUnload(System.nanoTime() - start, scanned, keepMaxX - keepMinX);
+        }
+        removed += evictOverBudget(avatarX);
+        event.end();
+        if (removed > 0 && event.shouldCommit()) {
+            event.minX = origin.toWorld(keepMinX);
+            event.maxX = origin.toWorld(keepMaxX);
+            event.objectsRemoved = removed;
+            event.commit();
+        }
+        if (removed > 0 && listener != null) {
+            listener.chunkUnloaded(origin.toWorld(keepMinX), origin.toWorld(keepMaxX), removed);
+        }
+    }
+
+    /**
+     * Evicts the chunks farthest from the avatar while the live objects exceed the budget. The chunks
+     * around the camera, and one more chunk to each side, are never evicted, so an evicted chunk is
+     * restored before it comes into sight.
+     *
+     * @param avatarX - the x-coordinate of the avatar's center.
+     * @return the number of objects removed.
+     */
+    private int evictOverBudget(float avatarX) {
+        int[] chunks = budget.evictOverBudget(avatarX, (int) avatarX - viewHalfWidth - CHUNK_WIDTH,
+                (int) avatarX + viewHalfWidth + CHUNK_WIDTH);
+        if (chunks.length == 0) {
+            return 0;
+        }
+        for (int chunk : chunks) {
+            trunkIndex.removeInRange(chunk * CHUNK_WIDTH, chunk * CHUNK_WIDTH + CHUNK_WIDTH - 1);
+        }
+        int removed = 0;
         for (var obj : gameObjects) {
-            if (obj.getCenter().x() > currentChunk + (REMOVE_RANGE_FACTOR * chunkSize)) {
-                removeByLayer(obj);
+            if (ChunkBudget.estimateBytes(obj) > 0 &&
+                    isIn(ChunkBudget.chunkOf(ChunkBudget.anchorX(obj)), chunks) && removeByLayer(obj)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private static boolean isIn(int chunk, int[] chunks) {
+        for (int candidate : chunks) {
+            if (candidate == chunk) {
+                return true;
             }
         }
+        return false;
     }
 }
 
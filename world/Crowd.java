@@ -0,0 +1,137 @@
+package pepse.world;
+
+import danogl.collisions.GameObjectCollection;
+import danogl.collisions.Layer;
+import danogl.util.Vector2;
+import pepse.util.TimerWheel;
+import pepse.world.trees.Tree;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A crowd of computer-controlled avatars, used to stress the game with many moving objects. The
+ * behaviour of all the agents is kept in parallel arrays and updated in a single pass on every step:
+ * walkers patrol back and forth, flyers keep flying whenever they have flight power, and every agent
+ * turns back towards the user's avatar once it strays too far, so it never leaves the loaded world.
+ */
+public class Crowd {
+
+    /**
+     * The layer of the agents. It is separate from the user's avatar, so the agents collide with the
+     * ground and the trunks but not with the avatar or with each other.
+     */
+    public static final int AGENT_LAYER = Layer.DEFAULT - 10;
+    private static final int FLYER_RATIO = 4;
+    private static final float MIN_TURN_TIME = 1;
+    private static final float MAX_TURN_TIME = 6;
+    private static final int INIT_CAPACITY = 16;
+
+    private final GameObjectCollection gameObjects;
+    private final Terrain terrain;
+    private final AvatarFrames frames;
+    private final TimerWheel timers;
+    private final float leash;
+    private final Random random;
+
+    private Avatar[] agents = new Avatar[INIT_CAPACITY];
+    private int[] directions = new int[INIT_CAPACITY];
+    private float[] turnTimers = new float[INIT_CAPACITY];
+    private boolean[] flyers = new boolean[INIT_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Constructor for the Crowd.
+     *
+     * @param gameObjects - The collection to which the agents are added.
+     * @param terrain     - The terrain the agents walk on.
+     * @param frames      - The shared frames of the avatars' animations.
+     * @param timers      - The timer wheel on which the agents schedule their deferred events.
+     * @param leash       - The furthest distance an agent may stray from the user's avatar, in pixels.
+     * @param seed        - The seed of the agents' placement and behaviour.
+     */
+    public Crowd(GameObjectCollection gameObjects, Terrain terrain, AvatarFrames frames, TimerWheel timers,
+                 float leash, int seed) {
+        this.gameObjects = gameObjects;
+        this.terrain = terrain;
+        this.frames = frames;
+        this.timers = timers;
+        this.leash = leash;
+        this.random = new Random(seed);
+        gameObjects.layers().shouldLayersCollide(AGENT_LAYER, Layer.STATIC_OBJECTS, true);
+        gameObjects.layers().shouldLayersCollide(AGENT_LAYER, Tree.TREE_LAYER, true);
+        gameObjects.layers().shouldLayersCollide(AGENT_LAYER, AGENT_LAYER, false);
+        gameObjects.layers().shouldLayersCollide(AGENT_LAYER, Layer.DEFAULT, false);
+    }
+
+    /**
+     * Adds agents standing on the ground around the given point. Every FLYER_RATIO-th agent is a flyer.
+     *
+     * @param count   - The number of agents to add.
+     * @param centerX - The x-coordinate around which the agents are placed.
+     */
+    public void spawn(int count, float centerX) {
+        ensureCapacity(size + count);
+        for (int i = 0; i < count; i++) {
+            float x = centerX + (random.nextFloat() * 2 - 1) * leash;
+            Vector2 topLeft = new Vector2(x, terrain.groundHeightAt(x) - Avatar.AVATAR_SIZE);
+            agents[size] = Avatar.createAgent(gameObjects, AGENT_LAYER, topLeft, frames, timers);
+            directions[size] = random.nextBoolean() ? 1 : -1;
+            turnTimers[size] = nextTurnTime();
+            flyers[size] = size % FLYER_RATIO == FLYER_RATIO - 1;
+            size++;
+        }
+    }
+
+    /**
+     * Moves all the agents for one simulation step. Must be called before the engine updates the game
+     * objects, so the agents' velocities are applied in the same step.
+     *
+     * @param deltaTime - The simulated time of the step, in seconds.
+     * @param leaderX   - The x-coordinate of the user's avatar.
+     */
+    public void update(float deltaTime, float leaderX) {
+        for (int i = 0; i < size; i++) {
+            Avatar agent = agents[i];
+            float x = agent.getTopLeftCorner().x();
+            turnTimers[i] -= deltaTime;
+            if (x < leaderX - leash) {
+                directions[i] = 1;
+            } else if (x > leaderX + leash) {
+                directions[i] = -1;
+            } else if (turnTimers[i] <= 0) {
+                directions[i] = -directions[i];
+                turnTimers[i] = nextTurnTime();
+            }
+            boolean fly = flyers[i] && agent.getFlightPower() > 0;
+            agent.move(directions[i] < 0, directions[i] > 0, fly, fly);
+            if (agent.getTopLeftCorner().y() > terrain.groundHeightAt(x + Block.SIZE)) {
+                agent.transform().setTopLeftCornerY(terrain.groundHeightAt(x) - Avatar.AVATAR_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Getter for the number of agents in the crowd.
+     *
+     * @return the number of agents.
+     */
+    public int size() {
+        return size;
+    }
+
+    private float nextTurnTime() {
+        return MIN_TURN_TIME + random.nextFloat() * (MAX_TURN_TIME - MIN_TURN_TIME);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= agents.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, agents.length * 2);
+        agents = Arrays.copyOf(agents, newCapacity);
+        directions = Arrays.copyOf(directions, newCapacity);
+        turnTimers = Arrays.copyOf(turnTimers, newCapacity);
+        flyers = Arrays.copyOf(flyers, newCapacity);
+    }
+}
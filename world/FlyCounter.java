@@ -1,6 +1,5 @@
 package pepse.world;
 
-import danogl.util.Counter;
 import danogl.util.Vector2;
 
 /**
@@ -13,11 +12,12 @@ public class FlyCounter extends UIText {
     /**
      * Construct a new GameObject instance.
      *
+     * @param flightPower   The flight power the avatar starts with.
      * @param topLeftCorner Position of the object, in window coordinates (pixels).
      *                      Note that (0,0) is the top-left corner of the window.
      */
-    public FlyCounter(Counter flyDurationCounter, Vector2 topLeftCorner) {
-        super(topLeftCorner, FLIGHT_TEXT, flyDurationCounter.value());
+    public FlyCounter(int flightPower, Vector2 topLeftCorner) {
+        super(topLeftCorner, FLIGHT_TEXT, flightPower);
      }
 
 }
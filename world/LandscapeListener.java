@@ -0,0 +1,28 @@
+package pepse.world;
+
+/**
+ * Told by the landscape manager about every range of the world it loads and unloads. The ranges are given
+ * in the world's coordinates, so they do not change when the world's origin moves.
+ */
+public interface LandscapeListener {
+
+    /**
+     * Called after a range of terrain and trees was generated.
+     *
+     * @param minX    - the left edge of the range.
+     * @param maxX    - the right edge of the range.
+     * @param columns - the number of terrain columns generated.
+     * @param trees   - the number of trees generated.
+     * @param leaves  - the number of leaves generated.
+     */
+    void chunkLoaded(long minX, long maxX, int columns, int trees, int leaves);
+
+    /**
+     * Called after the objects outside the kept range were removed.
+     *
+     * @param keepMinX       - the left edge of the kept range.
+     * @param keepMaxX       - the right edge of the kept range.
+     * @param objectsRemoved - the number of objects removed.
+     */
+    void chunkUnloaded(long keepMinX, long keepMaxX, int objectsRemoved);
+}
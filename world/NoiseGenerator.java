@@ -6,19 +6,25 @@ package pepse.world;
 
 
 /**
- * Generating 2D-noise with a semi-random, continuous form.
+ * Generating 2D-noise with a semi-random, continuous form. The noise is computed in double precision
+ * from world coordinates given relative to an origin, so it stays smooth however far from the spawn
+ * point it is sampled.
  */
 public class NoiseGenerator {
 
     private static final float ENLARGE_FACTOR = 85;
     private static final float SIN_ENLARGE_FACTOR = 70;
-    private final float seed;
+    private static final int LATTICE_SIZE = 256;
+    private final int seed;
+    private final int latticeSeed;
     private long default_size;
+    private long period;
     private int[] p;
 
 
     public NoiseGenerator(int seed) {
         this.seed = seed;
+        this.latticeSeed = Math.floorMod(seed, LATTICE_SIZE);
         init();
     }
 
@@ -46,6 +52,8 @@ public class NoiseGenerator {
                 205, 93, 222, 114, 67, 29, 24, 72, 243, 141, 128, 195, 78, 66,
                 215, 61, 156, 180};
         this.default_size = 128;
+//        Every octave repeats after LATTICE_SIZE cells, and the largest cell is default_size pixels wide:
+        this.period = LATTICE_SIZE * default_size;
 
         // Populate it
         for (int i = 0; i < 256; i++) {
@@ -68,26 +76,46 @@ public class NoiseGenerator {
     }
 
 
+    /**
+     * Computes the noise at the given x-coordinate of the world, near its origin.
+     *
+     * @param x - the x-coordinate.
+     * @return - the noise at the point.
+     */
     public float noise(float x) {
+        return noise(0, x);
+    }
+
+    /**
+     * Computes the noise at a point given relative to an origin. The lattice of the noise repeats every
+     * period pixels, so the origin is reduced modulo the period before the point is added to it, and
+     * the point keeps its precision however far the origin is.
+     *
+     * @param originX - the world x-coordinate of the origin, in pixels.
+     * @param x       - the x-coordinate of the point, relative to the origin.
+     * @return - the noise at the point.
+     */
+    public float noise(long originX, float x) {
+        double latticeX = Math.floorMod(originX, period) + (double) x;
         float value = 0;
         float size = default_size;
         float initialSize = size;
 
         while (size >= 1) {
-            value += smoothNoise((x / size), (0f / size), (0f / size)) * size;
+            value += smoothNoise((latticeX / size), (0f / size), (0f / size)) * size;
             size /= 2.0;
         }
 
         float noiseFactor = (value / initialSize);
-        float sinFactor = (float) (Math.sin(SIN_ENLARGE_FACTOR * (x + seed)));
+        float sinFactor = (float) (Math.sin(SIN_ENLARGE_FACTOR * ((double) (originX + seed) + x)));
         return unevenAverage(noiseFactor, sinFactor) * ENLARGE_FACTOR;
     }
 
     private double smoothNoise(double x, double y, double z) {
-        // Offset each coordinate by the seed value
-        x += this.seed;
-        y += this.seed;
-        x += this.seed;
+        // Offset each coordinate by the seed value, wrapped to the lattice so the sum stays precise
+        x += this.latticeSeed;
+        y += this.latticeSeed;
+        x += this.latticeSeed;
 
         int X = (int) Math.floor(x) & 255; // FIND UNIT CUBE THAT
         int Y = (int) Math.floor(y) & 255; // CONTAINS POINT.
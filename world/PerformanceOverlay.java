@@ -0,0 +1,64 @@
+package pepse.world;
+
+import danogl.GameObject;
+import danogl.components.CoordinateSpace;
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+
+import java.awt.*;
+
+/**
+ * A camera-space panel of text lines, used to show the frame-time statistics of the game.
+ */
+public class PerformanceOverlay extends GameObject {
+
+    private static final Vector2 OVERLAY_DIMENSIONS = new Vector2(420, 260);
+    private static final Color BACKGROUND_COLOR = new Color(0, 0, 0, 160);
+    private static final Color TEXT_COLOR = Color.WHITE;
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 13);
+    private static final int LINE_HEIGHT = 16;
+    private static final int MARGIN = 8;
+
+    private String[] lines = new String[0];
+
+    /**
+     * Construct a new PerformanceOverlay instance.
+     *
+     * @param topLeftCorner Position of the object, in window coordinates (pixels).
+     *                      Note that (0,0) is the top-left corner of the window.
+     */
+    public PerformanceOverlay(Vector2 topLeftCorner) {
+        super(topLeftCorner, OVERLAY_DIMENSIONS, null);
+        renderer().setRenderable(new LinesRenderable());
+        setCoordinateSpace(CoordinateSpace.CAMERA_COORDINATES);
+    }
+
+    /**
+     * Replaces the lines shown in the panel.
+     *
+     * @param lines - the new lines.
+     */
+    public void setLines(String[] lines) {
+        this.lines = lines;
+    }
+
+    /**
+     * Draws the current lines over a translucent background.
+     */
+    private class LinesRenderable implements Renderable {
+        @Override
+        public void render(Graphics2D g, Vector2 topLeftCorner, Vector2 dimensions,
+                           double degreesCounterClockwise, boolean isFlippedHorizontally,
+                           boolean isFlippedVertically, double opaqueness) {
+            int x = Math.round(topLeftCorner.x());
+            int y = Math.round(topLeftCorner.y());
+            g.setColor(BACKGROUND_COLOR);
+            g.fillRect(x, y, Math.round(dimensions.x()), MARGIN + LINE_HEIGHT * lines.length);
+            g.setColor(TEXT_COLOR);
+            g.setFont(FONT);
+            for (int i = 0; i < lines.length; i++) {
+                g.drawString(lines[i], x + MARGIN, y + LINE_HEIGHT * (i + 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package pepse.world;
+
+/**
+ * Watches the time the game spends on every frame and steps the world through the quality tiers: once
+ * the frames run over budget, it sheds load by moving to a cheaper tier, and once there is enough
+ * headroom for a while, it moves back to a richer one. The frame time is averaged over windows of
+ * frames, and a richer tier needs several windows of headroom in a row, so a single slow frame or the
+ * cost of a change itself does not flip the tier back and forth. Every change is logged with the frame
+ * time which caused it, prefixed by the governor's label, so the changes of several worlds running in one
+ * process can be told apart.
+ */
+public class QualityGovernor {
+
+    private static final int WINDOW = 60;
+    private static final int UPGRADE_WINDOWS = 5;
+    private static final double HEADROOM_FACTOR = 0.5;
+    private static final double NANOS_IN_MILLI = 1e6;
+
+    private final long budgetNanos;
+    private final String label;
+    private volatile QualityTier tier = QualityTier.HIGH;
+    private long windowNanos = 0;
+    private int windowFrames = 0;
+    private int headroomWindows = 0;
+    private int tierChanges = 0;
+
+    /**
+     * Constructor for the QualityGovernor, whose tier changes are logged without a label.
+     *
+     * @param budgetNanos - the time a frame may take, in nanoseconds.
+     */
+    public QualityGovernor(long budgetNanos) {
+        this(budgetNanos, "");
+    }
+
+    /**
+     * Constructor for the QualityGovernor.
+     *
+     * @param budgetNanos - the time a frame may take, in nanoseconds.
+     * @param label       - the prefix of the governor's log lines, naming the world it governs.
+     */
+    public QualityGovernor(long budgetNanos, String label) {
+        this.budgetNanos = budgetNanos;
+        this.label = label;
+    }
+
+    /**
+     * Records the time spent on a frame, and changes the tier if the recent frames call for it.
+     *
+     * @param frameNanos - the time spent on the frame, in nanoseconds.
+     */
+    public void record(long frameNanos) {
+        windowNanos += frameNanos;
+        windowFrames++;
+        if (windowFrames < WINDOW) {
+            return;
+        }
+        if (windowNanos > budgetNanos * WINDOW) {
+            headroomWindows = 0;
+            if (tier != tier.lower()) {
+                change(tier.lower(), "over budget");
+            }
+        } else if (windowNanos < budgetNanos * HEADROOM_FACTOR * WINDOW) {
+            headroomWindows++;
+            if (headroomWindows == UPGRADE_WINDOWS && tier != tier.higher()) {
+                change(tier.higher(), "headroom for " + UPGRADE_WINDOWS + " windows");
+            }
+        } else {
+            headroomWindows = 0;
+        }
+        if (headroomWindows == UPGRADE_WINDOWS) {
+            headroomWindows = 0;
+        }
+        windowNanos = 0;
+        windowFrames = 0;
+    }
+
+    /**
+     * Getter for the current tier.
+     *
+     * @return the tier the world should run at.
+     */
+    public QualityTier getTier() {
+        return tier;
+    }
+
+    /**
+     * Getter for the number of tier changes so far.
+     *
+     * @return the number of changes.
+     */
+    public int getTierChanges() {
+        return tierChanges;
+    }
+
+    private void change(QualityTier newTier, String reason) {
+        System.out.printf("%squality: %s -> %s (%s: mean frame %.2fms over %d frames, budget %.2fms)%n",
+                label, tier, newTier, reason, windowNanos / (double) windowFrames / NANOS_IN_MILLI,
+                windowFrames, budgetNanos / NANOS_IN_MILLI);
+        tier = newTier;
+        tierChanges++;
+    }
+}
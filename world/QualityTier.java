@@ -0,0 +1,65 @@
+package pepse.world;
+
+/**
+ * The levels of detail the world can run at, from the richest to the cheapest. Every tier sets how many
+ * of the leaves are animated, how long a fallen leaf waits before it is reborn, and whether the canopies
+ * of new trees are built from single leaves or drawn as one block.
+ */
+public enum QualityTier {
+    HIGH(100, 1, false),
+    MEDIUM(50, 2, false),
+    LOW(20, 3, true),
+    MINIMAL(0, 4, true);
+
+    private static final QualityTier[] TIERS = values();
+
+    private final int animatedLeafPercent;
+    private final int rebirthDelayFactor;
+    private final boolean canopyImpostors;
+
+    /**
+     * @param animatedLeafPercent - the percentage of the leaves which sway and stretch in the wind.
+     * @param rebirthDelayFactor  - the factor by which the wait of a fallen leaf is lengthened.
+     * @param canopyImpostors     - whether new canopies are drawn as one block instead of single leaves.
+     */
+    QualityTier(int animatedLeafPercent, int rebirthDelayFactor, boolean canopyImpostors) {
+        this.animatedLeafPercent = animatedLeafPercent;
+        this.rebirthDelayFactor = rebirthDelayFactor;
+        this.canopyImpostors = canopyImpostors;
+    }
+
+    /**
+     * @return the percentage of the leaves which are animated.
+     */
+    public int animatedLeafPercent() {
+        return animatedLeafPercent;
+    }
+
+    /**
+     * @return the factor by which the wait of a fallen leaf is lengthened.
+     */
+    public int rebirthDelayFactor() {
+        return rebirthDelayFactor;
+    }
+
+    /**
+     * @return true if new canopies are drawn as one block; False otherwise.
+     */
+    public boolean canopyImpostors() {
+        return canopyImpostors;
+    }
+
+    /**
+     * @return the next cheaper tier, or this tier if it is the cheapest.
+     */
+    public QualityTier lower() {
+        return TIERS[Math.min(ordinal() + 1, TIERS.length - 1)];
+    }
+
+    /**
+     * @return the next richer tier, or this tier if it is the richest.
+     */
+    public QualityTier higher() {
+        return TIERS[Math.max(ordinal() - 1, 0)];
+    }
+}
@@ -8,14 +8,28 @@ import danogl.util.Vector2;
 import pepse.util.ColorSupplier;
 
 import java.awt.*;
+import java.util.stream.IntStream;
 
 /**
  * The class handles all the ground and blocks, as well as providing information regarding the terrain height.
+ * Coordinates are given in the game's coordinates, and the height is computed at the matching point of
+ * the world, so the same column has the same height wherever the world's origin is.
+ * <p>
+ * The ground may be dug into or piled up, a column at a time. The edits are kept on top of the generated
+ * heights, and every height the terrain gives, including the heights of the ground it generates again,
+ * is the edited one where there is an edit.
  */
 public class Terrain {
 
     private static final float GROUND_HEIGHT_PARAM = 4.5f / 6;
-    private static final String GROUND_TAG = "ground";
+    /**
+     * The tag of the ground blocks.
+     */
+    public static final String GROUND_TAG = "ground";
+    /**
+     * The farthest (in pixels) the surface of an edited column may be from its generated height.
+     */
+    public static final float MAX_EDIT_DEPTH = Block.SIZE * 10;
     private static final int FIRST_INDEX = 0;
     private static final int SECOND_INDEX = 1;
     private final GameObjectCollection gameObjects;
@@ -23,6 +37,8 @@ public class Terrain {
     private final Vector2 windowDimensions;
     private static final Color BASE_GROUND_COLOR = new Color(140, 76, 9);
     private final NoiseGenerator noise;
+    private final WorldOrigin origin;
+    private final TerrainEdits edits = new TerrainEdits();
     private static final int TERRAIN_DEPTH = 20;
 
     /**
@@ -32,12 +48,54 @@ public class Terrain {
      * @param groundLayer      - The layer to which the terrain is added.
      * @param windowDimensions - The dimensions of the game window.
      * @param seed             - Integer Parameter which is used to generate the terrain height.
+     * @param origin           - The place of the game's coordinates inside the world.
      */
-    public Terrain(GameObjectCollection gameObjects, int groundLayer, Vector2 windowDimensions, int seed) {
+    public Terrain(GameObjectCollection gameObjects, int groundLayer, Vector2 windowDimensions, int seed,
+                   WorldOrigin origin) {
         this.gameObjects = gameObjects;
         this.groundLayer = groundLayer;
         this.windowDimensions = windowDimensions;
         this.noise = new NoiseGenerator(seed);
+        this.origin = origin;
+    }
+
+    /**
+     * Getter for the place of the game's coordinates inside the world, shared by everything generated on
+     * this terrain.
+     *
+     * @return the world's origin.
+     */
+    public WorldOrigin getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Getter for the edits made to the terrain.
+     *
+     * @return the edits.
+     */
+    public TerrainEdits getEdits() {
+        return edits;
+    }
+
+    /**
+     * Finds the column of the world which holds the given point.
+     *
+     * @param x - The horizontal value (X-axis) of the point, in the game's coordinates.
+     * @return the index of the column in the world.
+     */
+    public long columnOf(float x) {
+        return Math.floorDiv(origin.toWorld((int) Math.floor(x)), Block.SIZE);
+    }
+
+    /**
+     * Finds the left edge of a column of the world, in the game's coordinates.
+     *
+     * @param column - the index of the column in the world.
+     * @return the left edge of the column.
+     */
+    public long columnX(long column) {
+        return column * Block.SIZE - origin.getX();
     }
 
     /**
@@ -47,24 +105,60 @@ public class Terrain {
      * @return - The desired ground height (as float).
      */
     private float calcGroundHeightAt(float x) {
-        return windowDimensions.y() * GROUND_HEIGHT_PARAM + noise.noise(x);
+        return windowDimensions.y() * GROUND_HEIGHT_PARAM + noise.noise(origin.getX(), x);
     }
 
     /**
-     * Determines what is the desired ground height at a given point, using additional logic to prevent
-     * spikes in the terrain.
+     * Determines what is the desired ground height at a given point: the edited height of its column if
+     * the column was edited, and the generated height otherwise.
      *
      * @param x - The horizontal value (X-axis) of the given point.
      * @return - The desired ground height (as float).
      */
     public float groundHeightAt(float x) {
+        float edited = edits.heightAt(columnOf(x));
+        return Float.isNaN(edited) ? generatedHeightAt(x) : edited;
+    }
+
+    /**
+     * Moves the surface of the ground at the column of the given point by the given distance, keeping it
+     * at most MAX_EDIT_DEPTH from its generated height. The column is marked dirty, so its objects are
+     * rebuilt. Must be called from the game's thread.
+     *
+     * @param x  - The horizontal value (X-axis) of a point in the column.
+     * @param dy - The distance to move the surface, positive to dig down and negative to pile up.
+     * @return true if the height of the column changed; False otherwise.
+     */
+    public boolean editGround(float x, float dy) {
+        long column = columnOf(x);
+        float columnX = columnX(column);
+        float current = groundHeightAt(columnX);
+        float generated = generatedHeightAt(columnX);
+        float height = Math.max(generated - MAX_EDIT_DEPTH,
+                Math.min(generated + MAX_EDIT_DEPTH, current + dy));
+        if (height == current) {
+            return false;
+        }
+        edits.set(column, height);
+        return true;
+    }
+
+    /**
+     * Determines what is the generated ground height at a given point, using additional logic to prevent
+     * spikes in the terrain.
+     *
+     * @param x - The horizontal value (X-axis) of the given point.
+     * @return - The generated ground height (as float).
+     */
+    private float generatedHeightAt(float x) {
         float result = calcGroundHeightAt(x);
-        if (x - Block.SIZE > Block.SIZE && x + Block.SIZE < windowDimensions.x()) {
+        double worldX = origin.getX() + (double) x;
+        if (worldX - Block.SIZE > Block.SIZE && worldX + Block.SIZE < windowDimensions.x()) {
             if (calcGroundHeightAt(x - Block.SIZE) < result +
                     Block.SIZE && calcGroundHeightAt(x + Block.SIZE) < result + Block.SIZE)
                 return calcGroundHeightAt(x - Block.SIZE);
         }
-        if (x - Block.SIZE > Block.SIZE && x + Block.SIZE < windowDimensions.x()) {
+        if (worldX - Block.SIZE > Block.SIZE && worldX + Block.SIZE < windowDimensions.x()) {
             if (calcGroundHeightAt(x - Block.SIZE) > result + Block.SIZE && calcGroundHeightAt(x +
                     Block.SIZE) > result + Block.SIZE)
                 return calcGroundHeightAt(x - Block.SIZE);
@@ -79,15 +173,41 @@ public class Terrain {
      * @param maxX - The right corner of the array.
      */
     public void createInRange(int minX, int maxX) {
+        createFromHeights(Block.fixRange(minX, maxX)[FIRST_INDEX], planHeights(minX, maxX, false));
+    }
+
+    /**
+     * Calculates the ground heights of all the columns in a given horizontal array. Creates no game
+     * objects, so it may be called from any thread. Only the initial world is wide enough to be worth
+     * splitting over the common pool; a chunk loaded during play is planned on the calling thread.
+     *
+     * @param minX     - The left corner of the array.
+     * @param maxX     - The right corner of the array.
+     * @param parallel - Whether the columns are calculated in parallel.
+     * @return - The height of every column, starting at the left corner of the array rounded to a block.
+     */
+    public float[] planHeights(int minX, int maxX, boolean parallel) {
         int[] fixMinMax = Block.fixRange(minX, maxX);
-        minX = fixMinMax[FIRST_INDEX];
-        maxX = fixMinMax[SECOND_INDEX];
+        int fixedMinX = fixMinMax[FIRST_INDEX];
+        float[] heights = new float[(fixMinMax[SECOND_INDEX] - fixedMinX) / Block.SIZE + 1];
+        IntStream columns = IntStream.range(0, heights.length);
+        (parallel ? columns.parallel() : columns)
+                .forEach(column -> heights[column] = groundHeightAt(fixedMinX + column * Block.SIZE));
+        return heights;
+    }
 
+    /**
+     * Generates the ground blocks of consecutive columns whose heights are already known.
+     *
+     * @param minX    - The left corner of the first column.
+     * @param heights - The ground height of every column.
+     */
+    public void createFromHeights(int minX, float[] heights) {
         Renderable renderable = new RectangleRenderable(ColorSupplier.approximateColor(BASE_GROUND_COLOR));
-        for (int i = minX; i <= maxX; i += Block.SIZE) {
+        for (int column = 0; column < heights.length; column++) {
             GameObject ground = new Block(Vector2.ZERO, renderable);
             ground.setDimensions(new Vector2(Block.SIZE, Block.SIZE * TERRAIN_DEPTH));
-            ground.setTopLeftCorner(new Vector2(i, groundHeightAt(i)));
+            ground.setTopLeftCorner(new Vector2(minX + column * Block.SIZE, heights[column]));
             ground.setTag(GROUND_TAG);
             gameObjects.addGameObject(ground, groundLayer);
         }
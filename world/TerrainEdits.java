@@ -0,0 +1,211 @@
+package pepse.world;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * The edits made to the terrain on top of the heights its noise generates. The edits are sparse: they
+ * are kept per chunk of the world, and a chunk holds the edited height of each of its columns in a
+ * primitive array, with a bit mask of the columns which were edited. A chunk which was never edited takes
+ * no memory. The chunks are kept sorted by index in primitive arrays, so a lookup neither boxes nor
+ * allocates. Columns are counted in the world's coordinates, so the edits stay in place when the world's
+ * origin moves, and they are kept when the objects of their chunk are unloaded or evicted, so the chunk
+ * is generated again with its edits.
+ * <p>
+ * Every edit also marks its column dirty, until the landscape manager takes it to rebuild the column's
+ * loaded objects. The edits are changed from the game's thread only, but may be read while the terrain
+ * plans its heights in parallel.
+ */
+public class TerrainEdits {
+
+    /**
+     * The number of columns in a chunk of the edits. A chunk of the edits is a chunk of the budget.
+     */
+    public static final int COLUMNS_PER_CHUNK = ChunkBudget.CHUNK_WIDTH / Block.SIZE;
+    /**
+     * Returned by heightAt for a column which was not edited.
+     */
+    public static final float NOT_EDITED = Float.NaN;
+    private static final int INIT_CAPACITY = 8;
+
+    private long[] chunkIndexes = new long[INIT_CAPACITY];
+    private Chunk[] chunks = new Chunk[INIT_CAPACITY];
+    private int chunkCount = 0;
+    private final ArrayDeque<Chunk> dirtyChunks = new ArrayDeque<>();
+    private int editedColumns = 0;
+    private int dirtyColumns = 0;
+
+    /**
+     * Callback used to visit the edited columns.
+     */
+    public interface EditVisitor {
+        /**
+         * Called once for every edited column, ordered by column.
+         *
+         * @param column - the index of the column in the world.
+         * @param height - the edited height of the column.
+         */
+        void visit(long column, float height);
+    }
+
+    /**
+     * Finds the edited height of a column.
+     *
+     * @param column - the index of the column in the world.
+     * @return the edited height, or NOT_EDITED if the column was not edited.
+     */
+    public float heightAt(long column) {
+        if (chunkCount == 0) {
+            return NOT_EDITED;
+        }
+        long chunkIndex = Math.floorDiv(column, COLUMNS_PER_CHUNK);
+        int index = Arrays.binarySearch(chunkIndexes, 0, chunkCount, chunkIndex);
+        if (index < 0 || (chunks[index].edited & bitOf(column)) == 0) {
+            return NOT_EDITED;
+        }
+        return chunks[index].heights[Math.floorMod(column, COLUMNS_PER_CHUNK)];
+    }
+
+    /**
+     * Sets the height of a column, and marks the column dirty.
+     *
+     * @param column - the index of the column in the world.
+     * @param height - the new height of the column.
+     */
+    public void set(long column, float height) {
+        Chunk chunk = put(column, height);
+        int bit = bitOf(column);
+        if (chunk.dirty == 0) {
+            dirtyChunks.add(chunk);
+        }
+        if ((chunk.dirty & bit) == 0) {
+            chunk.dirty |= bit;
+            dirtyColumns++;
+        }
+    }
+
+    /**
+     * Sets the height of a column without marking it dirty, for a column whose objects are built with the
+     * height already, such as a column restored from a snapshot.
+     *
+     * @param column - the index of the column in the world.
+     * @param height - the height of the column.
+     */
+    public void restore(long column, float height) {
+        put(column, height);
+    }
+
+    private Chunk put(long column, float height) {
+        Chunk chunk = chunkOf(Math.floorDiv(column, COLUMNS_PER_CHUNK));
+        int bit = bitOf(column);
+        if ((chunk.edited & bit) == 0) {
+            chunk.edited |= bit;
+            editedColumns++;
+        }
+        chunk.heights[Math.floorMod(column, COLUMNS_PER_CHUNK)] = height;
+        return chunk;
+    }
+
+    private Chunk chunkOf(long chunkIndex) {
+        int index = Arrays.binarySearch(chunkIndexes, 0, chunkCount, chunkIndex);
+        if (index >= 0) {
+            return chunks[index];
+        }
+        index = -index - 1;
+        if (chunkCount == chunks.length) {
+            chunkIndexes = Arrays.copyOf(chunkIndexes, chunkCount * 2);
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+        }
+        System.arraycopy(chunkIndexes, index, chunkIndexes, index + 1, chunkCount - index);
+        System.arraycopy(chunks, index, chunks, index + 1, chunkCount - index);
+        chunkIndexes[index] = chunkIndex;
+        chunks[index] = new Chunk(chunkIndex);
+        chunkCount++;
+        return chunks[index];
+    }
+
+    /**
+     * Takes the dirty columns, a chunk after the other in the order they were first edited, and marks
+     * them clean.
+     *
+     * @param columns - the array to fill with the indexes of the taken columns in the world.
+     * @return the number of columns taken, at most the length of the array.
+     */
+    public int takeDirty(long[] columns) {
+        int taken = 0;
+        while (taken < columns.length && !dirtyChunks.isEmpty()) {
+            Chunk chunk = dirtyChunks.peek();
+            while (taken < columns.length && chunk.dirty != 0) {
+                int column = Integer.numberOfTrailingZeros(chunk.dirty);
+                chunk.dirty &= chunk.dirty - 1;
+                columns[taken++] = chunk.firstColumn + column;
+            }
+            if (chunk.dirty == 0) {
+                dirtyChunks.poll();
+            }
+        }
+        dirtyColumns -= taken;
+        return taken;
+    }
+
+    /**
+     * Visits all the edited columns, ordered by column.
+     *
+     * @param visitor - the callback to apply to every edited column.
+     */
+    public void forEach(EditVisitor visitor) {
+        for (int index = 0; index < chunkCount; index++) {
+            Chunk chunk = chunks[index];
+            for (int mask = chunk.edited; mask != 0; mask &= mask - 1) {
+                int column = Integer.numberOfTrailingZeros(mask);
+                visitor.visit(chunk.firstColumn + column, chunk.heights[column]);
+            }
+        }
+    }
+
+    /**
+     * Getter for the number of edited columns.
+     *
+     * @return the number of edited columns.
+     */
+    public int size() {
+        return editedColumns;
+    }
+
+    /**
+     * Getter for the number of columns whose objects were not rebuilt since they were edited.
+     *
+     * @return the number of dirty columns.
+     */
+    public int dirtyCount() {
+        return dirtyColumns;
+    }
+
+    /**
+     * Getter for the number of chunks holding any edit.
+     *
+     * @return the number of edited chunks.
+     */
+    public int chunkCount() {
+        return chunkCount;
+    }
+
+    private static int bitOf(long column) {
+        return 1 << Math.floorMod(column, COLUMNS_PER_CHUNK);
+    }
+
+    /**
+     * The edits of a single chunk. The masks hold a bit for each of the chunk's columns, so a chunk may
+     * hold at most Integer.SIZE columns.
+     */
+    private static final class Chunk {
+        private final float[] heights = new float[COLUMNS_PER_CHUNK];
+        private final long firstColumn;
+        private int edited = 0;
+        private int dirty = 0;
+
+        private Chunk(long index) {
+            this.firstColumn = index * COLUMNS_PER_CHUNK;
+        }
+    }
+}
@@ -2,7 +2,6 @@ package pepse.world;
 
 import danogl.GameObject;
 import danogl.components.CoordinateSpace;
-import danogl.gui.rendering.Renderable;
 import danogl.gui.rendering.TextRenderable;
 import danogl.util.Vector2;
 
@@ -14,6 +13,10 @@ public class UIText extends GameObject {
     public static final float TEXT_SIZE = 25;
     protected static final Vector2 TEXT_DIMENSIONS = new Vector2(TEXT_SIZE, TEXT_SIZE);
 
+    private final String text;
+    private final TextRenderable textRenderable;
+    private int info;
+
     /**
      * Construct a new GameObject instance.
      *
@@ -21,9 +24,28 @@ public class UIText extends GameObject {
      *                      Note that (0,0) is the top-left corner of the window.
      */
     public UIText(Vector2 topLeftCorner, String text, int info) {
-        super(topLeftCorner, TEXT_DIMENSIONS, textTORenderer(text, info));
+        this(topLeftCorner, text, info, textTORenderer(text, info));
+    }
+
+    private UIText(Vector2 topLeftCorner, String text, int info, TextRenderable textRenderable) {
+        super(topLeftCorner, TEXT_DIMENSIONS, textRenderable);
         this.setCoordinateSpace(CoordinateSpace.CAMERA_COORDINATES);
+        this.text = text;
+        this.textRenderable = textRenderable;
+        this.info = info;
+    }
 
+    /**
+     * Updates the info presented by the text. The text is only rebuilt when the info changes, so the
+     * object can stay in the game and be updated on every frame.
+     *
+     * @param info - Integer. The new info.
+     */
+    public void setInfo(int info) {
+        if (info != this.info) {
+            this.info = info;
+            textRenderable.setString(text + info);
+        }
     }
 
     /**
@@ -32,7 +54,7 @@ public class UIText extends GameObject {
      * @param info - Integer. The info itself.
      * @return a pointer to the new object.
      */
-    protected static Renderable textTORenderer(String text, int info) {
-        return new TextRenderable(String.format(text + "%d", info));
+    protected static TextRenderable textTORenderer(String text, int info) {
+        return new TextRenderable(text + info);
     }
 }
@@ -0,0 +1,485 @@
+package pepse.world;
+
+import danogl.GameObject;
+import danogl.collisions.GameObjectCollection;
+import danogl.collisions.Layer;
+import danogl.components.CoordinateSpace;
+import danogl.gui.UserInputListener;
+import danogl.util.Vector2;
+import pepse.PepseGameManager;
+import pepse.util.AssetManager;
+import pepse.util.StartupTimer;
+import pepse.util.TimerWheel;
+import pepse.world.daynight.DayNightClock;
+import pepse.world.trees.Leaf;
+import pepse.world.trees.LeafPalette;
+import pepse.world.trees.Tree;
+import pepse.world.trees.TreeFactory;
+import pepse.world.trees.TrunkIndex;
+
+/**
+ * Owns all the state of a single world: its game objects, seeds, terrain, trees, avatar, crowd, timers
+ * and clock. Nothing about a world is kept in static fields, so any number of worlds may exist in the
+ * same process, each driven by its own thread.
+ * <p>
+ * The game objects of the world are kept near the origin of the game's coordinates: once the avatar goes
+ * RECENTER_CHUNKS chunks away from it, the world's origin moves to the avatar's chunk and every object
+ * moves back by the same distance. Running with -Dpepse.startX=N starts a new world N pixels from the
+ * spawn point, to check that a far world behaves like a near one.
+ */
+public class WorldContext {
+
+    private static final float CYCLE_LENGTH = 30;
+    private static final float TIMER_TICK = 1 / 60f;
+    private static final int TIMER_WHEEL_SIZE = 512;
+    private static final String AVATAR_TAG = "avatar";
+    private static final int HASH_PRIME = 31;
+    private static final int[] HASHED_LAYERS = {Tree.LEAF_LAYER, Layer.STATIC_OBJECTS, Tree.TREE_LAYER};
+    private static final double FRAME_BUDGET_MILLIS =
+            Double.parseDouble(System.getProperty("pepse.frameBudgetMs", "16.6"));
+    private static final double NANOS_IN_MILLI = 1e6;
+    private static final int MAX_OBJECTS = Integer.getInteger("pepse.maxObjects", 20000);
+    private static final long MAX_OBJECT_BYTES = Long.getLong("pepse.maxObjectMb", 64) * 1024 * 1024;
+    private static final long START_X = Long.getLong("pepse.startX", 0);
+    private static final int RECENTER_CHUNKS = 16;
+
+    private final GameObjectCollection gameObjects;
+    private final int windowWidth;
+    private final int terrainSeed;
+    private final int forestSeed;
+    private final TrunkIndex trunkIndex = new TrunkIndex();
+    private final TimerWheel timers = new TimerWheel(TIMER_TICK, TIMER_WHEEL_SIZE);
+    private final DayNightClock dayNightClock = new DayNightClock(CYCLE_LENGTH);
+    private final LeafPalette leafPalette = new LeafPalette(CYCLE_LENGTH);
+    private final QualityGovernor qualityGovernor;
+    private final ChunkBudget chunkBudget = new ChunkBudget(MAX_OBJECTS, MAX_OBJECT_BYTES);
+    private final WorldOrigin origin;
+    private Terrain terrain;
+    private TreeFactory treeFactory;
+    private Vector2 initAvatarPlacement;
+    private Avatar avatar;
+    private Crowd crowd;
+    private CollectionManager collectionManager;
+
+    private WorldContext(GameObjectCollection gameObjects, int windowWidth, int terrainSeed, int forestSeed,
+                         long originChunk) {
+        this.gameObjects = gameObjects;
+        this.windowWidth = windowWidth;
+        this.terrainSeed = terrainSeed;
+        this.forestSeed = forestSeed;
+        this.origin = new WorldOrigin(originChunk);
+        this.qualityGovernor = new QualityGovernor((long) (FRAME_BUDGET_MILLIS * NANOS_IN_MILLI),
+                String.format("[seeds %d/%d] ", terrainSeed, forestSeed));
+    }
+
+    /**
+     * Creates a new world: generates the ground and the trees around the avatar's placement, places the
+     * avatar, and prepares the crowd and the landscape manager.
+     *
+     * @param gameObjects      - The collection to which the world's objects are added.
+     * @param windowDimensions - The dimensions of the game's window.
+     * @param terrainSeed      - The seed of the terrain's height.
+     * @param forestSeed       - The seed of the trees and the leaves.
+     * @param inputListener    - UI object used to control the avatar.
+     * @param assets           - The asset manager which supplies the avatar's images.
+     * @return the new world.
+     */
+    public static WorldContext create(GameObjectCollection gameObjects, Vector2 windowDimensions,
+                                      int terrainSeed, int forestSeed, UserInputListener inputListener,
+                                      AssetManager assets) {
+        WorldContext world = new WorldContext(gameObjects, (int) windowDimensions.x(), terrainSeed,
+                forestSeed, Math.floorDiv(START_X, WorldOrigin.CHUNK_WIDTH));
+        world.createGround(windowDimensions);
+        world.treeFactory = new TreeFactory(gameObjects, world.terrain, forestSeed, world.trunkIndex,
+                world.timers, world.qualityGovernor, world.leafPalette);
+        world.generateInitialWorld();
+        world.populate(world.initAvatarPlacement, inputListener, assets);
+        return world;
+    }
+
+    /**
+     * Creates a world from a snapshot: builds the saved ground and trees without generating them again,
+     * and puts the avatar, its flight power, the time of day, the season and the fallen leaves back as they
+     * were.
+     *
+     * @param gameObjects      - The collection to which the world's objects are added.
+     * @param windowDimensions - The dimensions of the game's window.
+     * @param snapshot         - The saved world.
+     * @param inputListener    - UI object used to control the avatar.
+     * @param assets           - The asset manager which supplies the avatar's images.
+     * @return the restored world.
+     */
+    public static WorldContext restore(GameObjectCollection gameObjects, Vector2 windowDimensions,
+                                       WorldSnapshot snapshot, UserInputListener inputListener,
+                                       AssetManager assets) {
+        WorldContext world = new WorldContext(gameObjects, (int) windowDimensions.x(),
+                snapshot.getTerrainSeed(), snapshot.getForestSeed(), snapshot.getOriginChunk());
+        world.terrain = new Terrain(gameObjects, Layer.STATIC_OBJECTS, windowDimensions, world.terrainSeed,
+                world.origin);
+        world.initAvatarPlacement = snapshot.getSpawnPosition();
+        world.treeFactory = new TreeFactory(gameObjects, world.terrain, world.forestSeed, world.trunkIndex,
+                world.timers, world.qualityGovernor, world.leafPalette);
+        snapshot.commit(world.terrain, world.treeFactory);
+        snapshot.restoreLeaves(gameObjects);
+        StartupTimer.mark("world restored");
+        world.populate(snapshot.getAvatarPosition(), inputListener, assets);
+        world.avatar.setVelocity(snapshot.getAvatarVelocity());
+        world.avatar.setFlightPower(snapshot.getFlightPower());
+        world.dayNightClock.setTimeOfDay(snapshot.getTimeOfDay());
+        world.leafPalette.restore(snapshot.getLeafStep(), snapshot.getLeafStepTime());
+        world.chunkBudget.setEvictedChunks(snapshot.getEvictedChunks());
+        return world;
+    }
+
+    /**
+     * Saves the current state of the world.
+     *
+     * @return the snapshot of the world.
+     */
+    public WorldSnapshot snapshot() {
+        return WorldSnapshot.capture(this);
+    }
+
+    /**
+     * Places the avatar at the given position, and prepares the crowd, the landscape manager and the
+     * collisions of the layers.
+     */
+    private void populate(Vector2 avatarPosition, UserInputListener inputListener, AssetManager assets) {
+        AvatarFrames avatarFrames = AvatarFrames.load(assets);
+        avatar = Avatar.create(gameObjects, Layer.DEFAULT, avatarPosition, inputListener, avatarFrames,
+                timers);
+        avatar.setTag(AVATAR_TAG);
+        crowd = new Crowd(gameObjects, terrain, avatarFrames, timers, windowWidth / 2f, forestSeed);
+        collectionManager = new CollectionManager(windowWidth, terrain, avatar, gameObjects, treeFactory,
+                trunkIndex, chunkBudget);
+        collisionManagement();
+    }
+
+    /**
+     * Initializes the ground, and places the avatar on it.
+     */
+    private void createGround(Vector2 windowDimensions) {
+        terrain = new Terrain(gameObjects, Layer.STATIC_OBJECTS, windowDimensions, terrainSeed, origin);
+        int avatarXPlacement = fixAvatarAlignment();
+        this.initAvatarPlacement = new Vector2(avatarXPlacement,
+                terrain.groundHeightAt(avatarXPlacement) - Avatar.AVATAR_SIZE);
+    }
+
+    /**
+     * Fixes the placement of the avatar, so it would appear in the center of the screen.
+     *
+     * @return the new location.
+     */
+    private int fixAvatarAlignment() {
+        int start = Block.SIZE;
+        while (start < windowWidth / 2) {
+            start += Block.SIZE;
+        }
+        return start;
+    }
+
+    /**
+     * Generates the ground and the trees around the avatar as pure data in parallel, and then adds all of
+     * them to the game at once.
+     */
+    private void generateInitialWorld() {
+        int avatarX = (int) initAvatarPlacement.x();
+        WorldPlan plan = WorldPlan.generate(terrain, avatarX - windowWidth / 2, avatarX + windowWidth,
+                treeFactory, avatarX - windowWidth, avatarX + windowWidth);
+        StartupTimer.mark("world planned");
+        plan.commit(terrain, treeFactory);
+        StartupTimer.mark("world committed");
+    }
+
+    /**
+     * Handles the collision of the different layers used in the game.
+     */
+    private void collisionManagement() {
+//        collide leaves, tree-trucks and ground:
+        gameObjects.layers().shouldLayersCollide(Tree.LEAF_LAYER, Layer.STATIC_OBJECTS, true);
+//        collide The avatar, the ground and tree's trunks:
+        gameObjects.layers().shouldLayersCollide(Layer.DEFAULT, Layer.STATIC_OBJECTS, true);
+        gameObjects.layers().shouldLayersCollide(Layer.DEFAULT, Tree.TREE_LAYER, true);
+    }
+
+    /**
+     * Advances the world's timers, clock and seasons and moves the crowd. Must be called on every
+     * simulation step before the engine updates the game objects.
+     *
+     * @param deltaTime - the simulated time of the step, in seconds.
+     */
+    public void preUpdate(float deltaTime) {
+        timers.advance(deltaTime);
+        dayNightClock.advance(deltaTime);
+        leafPalette.advance(deltaTime);
+        crowd.update(deltaTime, avatar.getTopLeftCorner().x());
+    }
+
+    /**
+     * Moves the world's origin to the avatar's chunk once the avatar went RECENTER_CHUNKS chunks away
+     * from it, and moves every object of the world, the trunk index and the chunk budget back by the same
+     * distance. The origin moves by whole chunks, so the blocks and the chunks stay aligned, and the
+     * objects stay where a float is precise. Must be called at the start of a simulation step, before the
+     * engine updates the objects and the camera.
+     *
+     * @return the distance every object moved, in pixels, or 0 if the origin did not move.
+     */
+    public int recenter() {
+        float avatarX = avatar.getTopLeftCorner().x() + avatar.getDimensions().x() / 2;
+        int chunks = (int) Math.floor(avatarX / WorldOrigin.CHUNK_WIDTH);
+        if (Math.abs(chunks) < RECENTER_CHUNKS) {
+            return 0;
+        }
+        int dx = -chunks * WorldOrigin.CHUNK_WIDTH;
+        origin.shift(chunks);
+        for (GameObject obj : gameObjects) {
+            if (obj.getCoordinateSpace() == CoordinateSpace.CAMERA_COORDINATES) {
+                continue;
+            }
+            if (obj instanceof Leaf) {
+                ((Leaf) obj).shiftX(dx);
+            } else {
+                obj.transform().setTopLeftCornerX(obj.getTopLeftCorner().x() + dx);
+            }
+        }
+        trunkIndex.shift(dx);
+        chunkBudget.shift(-chunks);
+        collectionManager.shift(dx);
+        initAvatarPlacement = new Vector2(initAvatarPlacement.x() + dx, initAvatarPlacement.y());
+        return dx;
+    }
+
+    /**
+     * Generates the landscape the avatar approaches and removes the landscape it left behind.
+     */
+    public void updateLandscape() {
+        collectionManager.updateLandscape();
+    }
+
+    /**
+     * Digs into or piles up the ground under the avatar's center. The objects of the edited column are
+     * rebuilt on the landscape manager's next update.
+     *
+     * @param dy - the distance to move the ground's surface, positive to dig down and negative to pile up.
+     * @return true if the ground changed; False otherwise.
+     */
+    public boolean editGroundUnderAvatar(float dy) {
+        return terrain.editGround(avatar.getTopLeftCorner().x() + avatar.getDimensions().x() / 2, dy);
+    }
+
+    /**
+     * Relocates the avatar back to the surface of the terrain if it fell under it.
+     */
+    public void relocateAvatar() {
+        float avatarX = avatar.getTopLeftCorner().x();
+        if (avatar.getTopLeftCorner().y() > terrain.groundHeightAt(avatarX + Block.SIZE)) {
+            float yValue = terrain.groundHeightAt(avatarX) - Avatar.AVATAR_SIZE;
+            avatar.transform().setTopLeftCornerY(yValue);
+        }
+    }
+
+    /**
+     * Turns the tuning of the landscape's chunk size on or off. The tuner picks the chunk size from the
+     * measured cost of the landscape, so a world whose runs must be reproducible is not tuned.
+     *
+     * @param enabled - true to tune the chunk size; False to keep the current one.
+     */
+    public void setChunkTuning(boolean enabled) {
+        collectionManager.setTuner(enabled ?
+                new ChunkTuner(windowWidth / 2, windowWidth, PepseGameManager.SIMULATION_STEP) : null);
+    }
+
+    /**
+     * Sets the listener which is told about every range of the world the landscape manager loads and
+     * unloads.
+     *
+     * @param listener - the listener, or null to tell no one.
+     */
+    public void setLandscapeListener(LandscapeListener listener) {
+        collectionManager.setListener(listener);
+    }
+
+    /**
+     * Getter for the current chunk size of the landscape.
+     *
+     * @return the width of a chunk, in pixels.
+     */
+    public int getChunkSize() {
+        return collectionManager.getChunkSize();
+    }
+
+    /**
+     * Adds computer-controlled avatars around the user's avatar, to stress the world with a crowd.
+     *
+     * @param count - the number of agents to add.
+     */
+    public void spawnAgents(int count) {
+        crowd.spawn(count, avatar.getTopLeftCorner().x());
+    }
+
+    /**
+     * Counts the objects currently alive in the given layer.
+     *
+     * @param layer - the layer to count.
+     * @return the number of objects in the layer.
+     */
+    public int countObjectsInLayer(int layer) {
+        int count = 0;
+        for (GameObject ignored : gameObjects.objectsInLayer(layer)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Hashes the state of the world: the avatar, the flight power, the number of objects in each layer,
+     * the loaded trunks, the world's origin, the edited columns, the pending timers, the time of day and
+     * the step of the seasons. Two replays of the same trace end with the same hash.
+     *
+     * @return the hash of the world's state.
+     */
+    public int stateHash() {
+        int hash = Float.floatToIntBits(avatar.getTopLeftCorner().x());
+        hash = HASH_PRIME * hash + Float.floatToIntBits(avatar.getTopLeftCorner().y());
+        hash = HASH_PRIME * hash + Float.floatToIntBits(avatar.getVelocity().x());
+        hash = HASH_PRIME * hash + Float.floatToIntBits(avatar.getVelocity().y());
+        hash = HASH_PRIME * hash + avatar.getFlightPower();
+        for (int layer : HASHED_LAYERS) {
+            hash = HASH_PRIME * hash + countObjectsInLayer(layer);
+        }
+        hash = HASH_PRIME * hash + trunkIndex.size();
+        hash = HASH_PRIME * hash + Long.hashCode(origin.getChunk());
+        hash = HASH_PRIME * hash + terrain.getEdits().size();
+        hash = HASH_PRIME * hash + timers.pendingCount();
+        hash = HASH_PRIME * hash + Float.floatToIntBits(dayNightClock.getTimeOfDay());
+        return HASH_PRIME * hash + leafPalette.getStep();
+    }
+
+    /**
+     * Getter for the collection of the world's objects.
+     *
+     * @return the game objects.
+     */
+    public GameObjectCollection getGameObjects() {
+        return gameObjects;
+    }
+
+    /**
+     * Getter for the user's avatar.
+     *
+     * @return the avatar.
+     */
+    public Avatar getAvatar() {
+        return avatar;
+    }
+
+    /**
+     * Getter for the place where the avatar started, in the game's current coordinates.
+     *
+     * @return the avatar's initial top-left corner.
+     */
+    public Vector2 getInitAvatarPlacement() {
+        return initAvatarPlacement;
+    }
+
+    /**
+     * Getter for the place of the game's coordinates inside the world.
+     *
+     * @return the world's origin.
+     */
+    public WorldOrigin getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Getter for the terrain of the world.
+     *
+     * @return the terrain.
+     */
+    public Terrain getTerrain() {
+        return terrain;
+    }
+
+    /**
+     * Getter for the factory which plans and builds the trees of the world.
+     *
+     * @return the tree factory.
+     */
+    public TreeFactory getTreeFactory() {
+        return treeFactory;
+    }
+
+    /**
+     * Getter for the spatial index of the loaded tree trunks.
+     *
+     * @return the trunk index.
+     */
+    public TrunkIndex getTrunkIndex() {
+        return trunkIndex;
+    }
+
+    /**
+     * Getter for the timer wheel of the world's deferred events.
+     *
+     * @return the timer wheel.
+     */
+    public TimerWheel getTimers() {
+        return timers;
+    }
+
+    /**
+     * Getter for the day-night clock, from which every system reads the time of day.
+     *
+     * @return the day-night clock.
+     */
+    public DayNightClock getDayNightClock() {
+        return dayNightClock;
+    }
+
+    /**
+     * Getter for the palette of the leaves, which recolors them over the seasons.
+     *
+     * @return the leaf palette.
+     */
+    public LeafPalette getLeafPalette() {
+        return leafPalette;
+    }
+
+    /**
+     * Getter for the governor of the world's quality tier. The game feeds it with the time of every frame,
+     * and the trees and leaves read the tier from it.
+     *
+     * @return the quality governor.
+     */
+    public QualityGovernor getQualityGovernor() {
+        return qualityGovernor;
+    }
+
+    /**
+     * Getter for the budget of the live landscape objects, which also holds the gauges of the live
+     * objects, the resident chunks and the evictions.
+     *
+     * @return the chunk budget.
+     */
+    public ChunkBudget getChunkBudget() {
+        return chunkBudget;
+    }
+
+    /**
+     * Getter for the seed of the terrain.
+     *
+     * @return the seed as integer.
+     */
+    public int getTerrainSeed() {
+        return terrainSeed;
+    }
+
+    /**
+     * Getter for the seed of the trees and the leaves.
+     *
+     * @return the seed as integer.
+     */
+    public int getForestSeed() {
+        return forestSeed;
+    }
+}
@@ -0,0 +1,68 @@
+package pepse.world;
+
+/**
+ * The place of the game's coordinates inside the world. The game objects are kept near (0, 0) in float
+ * coordinates, where a float is precise to a small fraction of a pixel, and the world x-coordinate of the
+ * game's x = 0 is tracked here as a whole number of chunks. When the avatar goes far from the origin, the
+ * world moves the origin to the avatar's chunk and all its objects by the same distance, so traveling
+ * any distance behaves like traveling near the spawn point. Everything which must depend on the place in
+ * the world rather than on the game's coordinates, such as the terrain's noise and the forest's random
+ * draws, is computed from world coordinates.
+ */
+public class WorldOrigin {
+
+    /**
+     * The width (in pixels) of a chunk of the origin. The origin moves by whole chunks, so the blocks,
+     * the trunk index and the chunk budget stay aligned after a move.
+     */
+    public static final int CHUNK_WIDTH = ChunkBudget.CHUNK_WIDTH;
+
+    private long chunk;
+
+    /**
+     * Constructor for the WorldOrigin.
+     *
+     * @param chunk - the index of the world's chunk at which the game's x = 0 lies.
+     */
+    public WorldOrigin(long chunk) {
+        this.chunk = chunk;
+    }
+
+    /**
+     * Getter for the index of the world's chunk at which the game's x = 0 lies.
+     *
+     * @return the index of the chunk.
+     */
+    public long getChunk() {
+        return chunk;
+    }
+
+    /**
+     * Getter for the world x-coordinate of the game's x = 0.
+     *
+     * @return the x-coordinate, in pixels.
+     */
+    public long getX() {
+        return chunk * CHUNK_WIDTH;
+    }
+
+    /**
+     * Converts an x-coordinate of the game to an x-coordinate of the world.
+     *
+     * @param x - the x-coordinate in the game's coordinates.
+     * @return the x-coordinate in the world's coordinates.
+     */
+    public long toWorld(int x) {
+        return getX() + x;
+    }
+
+    /**
+     * Moves the origin by the given number of chunks. The caller moves the game objects by the same
+     * distance in the opposite direction.
+     *
+     * @param chunks - the number of chunks to move, positive to the right.
+     */
+    void shift(long chunks) {
+        chunk += chunks;
+    }
+}
@@ -0,0 +1,72 @@
+package pepse.world;
+
+import pepse.world.trees.Tree;
+import pepse.world.trees.TreeFactory;
+
+import java.util.concurrent.CompletableFuture;
+
+import static pepse.PepseGameManager.FIRST_INDEX;
+
+/**
+ * The first visible region of the world, generated as pure data (ground heights and tree descriptions)
+ * in parallel across the available cores, and materialized into game objects in one step before the
+ * first frame.
+ */
+public class WorldPlan {
+
+    private final int groundMinX;
+    private final float[] groundHeights;
+    private final Tree[] trees;
+
+    private WorldPlan(int groundMinX, float[] groundHeights, Tree[] trees) {
+        this.groundMinX = groundMinX;
+        this.groundHeights = groundHeights;
+        this.trees = trees;
+    }
+
+    /**
+     * Generates the data of the given ranges. The ground and the forest are planned concurrently, and
+     * each of them splits its columns across the common fork-join pool.
+     *
+     * @param terrain     - The terrain whose heights are planned.
+     * @param groundMinX  - The left edge of the ground range.
+     * @param groundMaxX  - The right edge of the ground range.
+     * @param treeFactory - The factory which plans the trees.
+     * @param treesMinX   - The left edge of the forest range.
+     * @param treesMaxX   - The right edge of the forest range.
+     * @return the plan of the region.
+     */
+    public static WorldPlan generate(Terrain terrain, int groundMinX, int groundMaxX,
+                                     TreeFactory treeFactory, int treesMinX, int treesMaxX) {
+        int fixedGroundMinX = Block.fixRange(groundMinX, groundMaxX)[FIRST_INDEX];
+        CompletableFuture<Tree[]> trees =
+                CompletableFuture.supplyAsync(() -> treeFactory.planInRange(treesMinX, treesMaxX, true));
+        float[] heights = terrain.planHeights(groundMinX, groundMaxX, true);
+        return new WorldPlan(fixedGroundMinX, heights, trees.join());
+    }
+
+    /**
+     * Adds the game objects of the plan to the game. Must be called from the game's thread.
+     *
+     * @param terrain     - The terrain which creates the ground blocks.
+     * @param treeFactory - The factory which builds the trees.
+     */
+    public void commit(Terrain terrain, TreeFactory treeFactory) {
+        terrain.createFromHeights(groundMinX, groundHeights);
+        treeFactory.build(trees);
+    }
+
+    /**
+     * @return the number of ground columns in the plan.
+     */
+    public int columnCount() {
+        return groundHeights.length;
+    }
+
+    /**
+     * @return the number of trees in the plan.
+     */
+    public int treeCount() {
+        return trees.length;
+    }
+}
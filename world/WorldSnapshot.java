@@ -0,0 +1,518 @@
+package pepse.world;
+
+import danogl.GameObject;
+import danogl.collisions.GameObjectCollection;
+import danogl.collisions.Layer;
+import danogl.util.Vector2;
+import pepse.world.trees.Leaf;
+import pepse.world.trees.Tree;
+import pepse.world.trees.TreeFactory;
+import pepse.world.trees.TreeType;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A saved world, from which a game resumes where it was left. It holds the seeds, the world's origin, the
+ * avatar's spawn point, position, velocity and flight power, the time of day, the season of the leaves,
+ * and the compact state of the resident landscape: the heights of the ground columns in runs, the data of
+ * every tree, the phase and position of every leaf which is not on its tree, and the evicted chunks. Trees
+ * are saved whole: a tree is saved with all its leaves if its trunk is loaded, and not at all otherwise.
+ * Resuming builds the landscape straight from this data, so none of the terrain's noise or the forest's
+ * placement is computed again. The edits of the terrain are saved as well, loaded or not, so the ground
+ * generated after resuming keeps them.
+ * <p>
+ * On disk, the snapshot is a single binary record written and read through a file channel.
+ */
+public class WorldSnapshot {
+
+    private static final int MAGIC = 0x50455053;
+    private static final short VERSION = 5;
+    private static final int HEADER_BYTES = Integer.BYTES + Short.BYTES + 2 * Integer.BYTES + Long.BYTES +
+            6 * Float.BYTES + Integer.BYTES + Float.BYTES + Integer.BYTES + Float.BYTES;
+    private static final int RUN_BYTES = 2 * Integer.BYTES;
+    private static final int TREE_BYTES = Integer.BYTES + Byte.BYTES + 2 * Integer.BYTES;
+    private static final int LEAF_BYTES = 4 * Float.BYTES + Byte.BYTES;
+    private static final int EDIT_BYTES = Long.BYTES + Float.BYTES;
+    private static final int ALL = Integer.MAX_VALUE / 2;
+    private static final int FLOAT_BITS = 32;
+    private static final long LOW_BITS_MASK = 0xFFFFFFFFL;
+
+    private final int terrainSeed;
+    private final int forestSeed;
+    private final long originChunk;
+    private final float spawnX;
+    private final float spawnY;
+    private final float avatarX;
+    private final float avatarY;
+    private final float velocityX;
+    private final float velocityY;
+    private final int flightPower;
+    private final float timeOfDay;
+    private final int leafStep;
+    private final float leafStepTime;
+    private final int[] runMinX;
+    private final float[][] runHeights;
+    private final Tree[] trees;
+    private final float[] leafHomeX;
+    private final float[] leafHomeY;
+    private final byte[] leafPhase;
+    private final float[] leafX;
+    private final float[] leafY;
+    private final int[] evictedChunks;
+    private final long[] editColumns;
+    private final float[] editHeights;
+
+    private WorldSnapshot(int terrainSeed, int forestSeed, long originChunk, float spawnX, float spawnY,
+                          float avatarX, float avatarY, float velocityX, float velocityY, int flightPower,
+                          float timeOfDay, int leafStep, float leafStepTime, int[] runMinX,
+                          float[][] runHeights, Tree[] trees, float[] leafHomeX, float[] leafHomeY,
+                          byte[] leafPhase, float[] leafX, float[] leafY, int[] evictedChunks,
+                          long[] editColumns, float[] editHeights) {
+        this.terrainSeed = terrainSeed;
+        this.forestSeed = forestSeed;
+        this.originChunk = originChunk;
+        this.spawnX = spawnX;
+        this.spawnY = spawnY;
+        this.avatarX = avatarX;
+        this.avatarY = avatarY;
+        this.velocityX = velocityX;
+        this.velocityY = velocityY;
+        this.flightPower = flightPower;
+        this.timeOfDay = timeOfDay;
+        this.leafStep = leafStep;
+        this.leafStepTime = leafStepTime;
+        this.runMinX = runMinX;
+        this.runHeights = runHeights;
+        this.trees = trees;
+        this.leafHomeX = leafHomeX;
+        this.leafHomeY = leafHomeY;
+        this.leafPhase = leafPhase;
+        this.leafX = leafX;
+        this.leafY = leafY;
+        this.evictedChunks = evictedChunks;
+        this.editColumns = editColumns;
+        this.editHeights = editHeights;
+    }
+
+    /**
+     * Saves the current state of the given world.
+     *
+     * @param world - the world to save.
+     * @return the snapshot of the world.
+     */
+    public static WorldSnapshot capture(WorldContext world) {
+        Avatar avatar = world.getAvatar();
+        GameObjectCollection gameObjects = world.getGameObjects();
+        TreeMap<Integer, Float> columns = new TreeMap<>();
+        for (GameObject ground : gameObjects.objectsInLayer(Layer.STATIC_OBJECTS)) {
+            columns.put((int) ground.getTopLeftCorner().x(), ground.getTopLeftCorner().y());
+        }
+        List<int[]> runs = new ArrayList<>();
+        int[] lastRun = null;
+        for (int x : columns.keySet()) {
+            if (lastRun == null || lastRun[0] + lastRun[1] * Block.SIZE != x) {
+                lastRun = new int[]{x, 0};
+                runs.add(lastRun);
+            }
+            lastRun[1]++;
+        }
+        int[] runMinX = new int[runs.size()];
+        float[][] runHeights = new float[runs.size()][];
+        for (int run = 0; run < runs.size(); run++) {
+            runMinX[run] = runs.get(run)[0];
+            runHeights[run] = new float[runs.get(run)[1]];
+            for (int column = 0; column < runHeights[run].length; column++) {
+                runHeights[run][column] = columns.get(runMinX[run] + column * Block.SIZE);
+            }
+        }
+        TreeFactory treeFactory = world.getTreeFactory();
+        List<Tree> trees = new ArrayList<>();
+        world.getTrunkIndex().forEachInRange(-ALL, ALL,
+                (x, type, height) -> trees.add(treeFactory.planTree(x)));
+        Set<Integer> treeXs = new HashSet<>();
+        for (Tree tree : trees) {
+            treeXs.add(tree.getX());
+        }
+        List<Leaf> leaves = new ArrayList<>();
+        for (GameObject obj : gameObjects.objectsInLayer(Tree.LEAF_LAYER)) {
+            if (obj instanceof Leaf && ((Leaf) obj).getPhase() != Leaf.ATTACHED &&
+                    treeXs.contains((int) ((Leaf) obj).getAnchorX())) {
+                leaves.add((Leaf) obj);
+            }
+        }
+        leaves.sort(Comparator.comparingDouble((Leaf leaf) -> leaf.getHome().x())
+                .thenComparingDouble(leaf -> leaf.getHome().y()));
+        float[] leafHomeX = new float[leaves.size()];
+        float[] leafHomeY = new float[leaves.size()];
+        byte[] leafPhase = new byte[leaves.size()];
+        float[] leafX = new float[leaves.size()];
+        float[] leafY = new float[leaves.size()];
+        for (int i = 0; i < leaves.size(); i++) {
+            Leaf leaf = leaves.get(i);
+            leafHomeX[i] = leaf.getHome().x();
+            leafHomeY[i] = leaf.getHome().y();
+            leafPhase[i] = leaf.getPhase();
+            leafX[i] = leaf.getTopLeftCorner().x();
+            leafY[i] = leaf.getTopLeftCorner().y();
+        }
+        TerrainEdits edits = world.getTerrain().getEdits();
+        long[] editColumns = new long[edits.size()];
+        float[] editHeights = new float[edits.size()];
+        int[] edit = {0};
+        edits.forEach((column, height) -> {
+            editColumns[edit[0]] = column;
+            editHeights[edit[0]++] = height;
+        });
+        Vector2 spawn = world.getInitAvatarPlacement();
+        return new WorldSnapshot(world.getTerrainSeed(), world.getForestSeed(), world.getOrigin().getChunk(),
+                spawn.x(), spawn.y(), avatar.getTopLeftCorner().x(), avatar.getTopLeftCorner().y(),
+                avatar.getVelocity().x(), avatar.getVelocity().y(), avatar.getFlightPower(),
+                world.getDayNightClock().getTimeOfDay(), world.getLeafPalette().getStep(),
+                world.getLeafPalette().getStepTime(), runMinX, runHeights, trees.toArray(new Tree[0]),
+                leafHomeX, leafHomeY, leafPhase, leafX, leafY, world.getChunkBudget().getEvictedChunks(),
+                editColumns, editHeights);
+    }
+
+    /**
+     * Puts the saved edits back on the terrain, and adds the saved ground and trees to the game. The saved
+     * ground already stands at the edited heights, so no column is marked dirty. Must be called from the
+     * game's thread.
+     *
+     * @param terrain     - The terrain which creates the ground blocks.
+     * @param treeFactory - The factory which builds the trees.
+     */
+    public void commit(Terrain terrain, TreeFactory treeFactory) {
+        for (int i = 0; i < editColumns.length; i++) {
+            terrain.getEdits().restore(editColumns[i], editHeights[i]);
+        }
+        for (int run = 0; run < runMinX.length; run++) {
+            terrain.createFromHeights(runMinX[run], runHeights[run]);
+        }
+        treeFactory.build(trees);
+    }
+
+    /**
+     * Puts the leaves which were not on their trees back in their saved phases. Must be called once the
+     * trees were built by commit.
+     *
+     * @param gameObjects - The collection which holds the leaves.
+     */
+    public void restoreLeaves(GameObjectCollection gameObjects) {
+        if (leafPhase.length == 0) {
+            return;
+        }
+        Map<Long, Integer> byHome = new HashMap<>();
+        for (int i = 0; i < leafPhase.length; i++) {
+            byHome.put(homeKey(leafHomeX[i], leafHomeY[i]), i);
+        }
+        for (GameObject obj : gameObjects.objectsInLayer(Tree.LEAF_LAYER)) {
+            if (obj instanceof Leaf) {
+                Leaf leaf = (Leaf) obj;
+                Integer i = byHome.get(homeKey(leaf.getHome().x(), leaf.getHome().y()));
+                if (i != null) {
+                    leaf.restorePhase(leafPhase[i], leafX[i], leafY[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the snapshot to a file.
+     *
+     * @param path - the file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(Path path) throws IOException {
+        ByteBuffer buffer = encode();
+        try (FileChannel channel = FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads a snapshot from a file.
+     *
+     * @param path - the file to read.
+     * @return the snapshot.
+     * @throws IOException if the file cannot be read or is not a snapshot.
+     */
+    public static WorldSnapshot read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), path);
+        }
+    }
+
+    /**
+     * Checks if the given snapshot saved exactly the same world as this one.
+     *
+     * @param other - the other snapshot.
+     * @return true if both snapshots encode to the same bytes; False otherwise.
+     */
+    public boolean sameAs(WorldSnapshot other) {
+        return encode().equals(other.encode());
+    }
+
+    /**
+     * Encodes the snapshot.
+     *
+     * @return a buffer holding the encoded snapshot, ready to be read.
+     */
+    public ByteBuffer encode() {
+        int size = HEADER_BYTES + Integer.BYTES + runMinX.length * RUN_BYTES + Integer.BYTES +
+                trees.length * TREE_BYTES + Integer.BYTES + leafPhase.length * LEAF_BYTES + Integer.BYTES +
+                evictedChunks.length * Integer.BYTES + Integer.BYTES + editColumns.length * EDIT_BYTES;
+        for (float[] heights : runHeights) {
+            size += heights.length * Float.BYTES;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putShort(VERSION).putInt(terrainSeed).putInt(forestSeed).putLong(originChunk)
+                .putFloat(spawnX).putFloat(spawnY).putFloat(avatarX).putFloat(avatarY).putFloat(velocityX)
+                .putFloat(velocityY).putInt(flightPower).putFloat(timeOfDay).putInt(leafStep)
+                .putFloat(leafStepTime);
+        buffer.putInt(runMinX.length);
+        for (int run = 0; run < runMinX.length; run++) {
+            buffer.putInt(runMinX[run]).putInt(runHeights[run].length);
+            for (float height : runHeights[run]) {
+                buffer.putFloat(height);
+            }
+        }
+        buffer.putInt(trees.length);
+        for (Tree tree : trees) {
+            buffer.putInt(tree.getX()).put((byte) tree.getType().ordinal()).putInt(tree.getTrunkHeight())
+                    .putInt(tree.getLeafMask());
+        }
+        buffer.putInt(leafPhase.length);
+        for (int i = 0; i < leafPhase.length; i++) {
+            buffer.putFloat(leafHomeX[i]).putFloat(leafHomeY[i]).put(leafPhase[i]).putFloat(leafX[i])
+                    .putFloat(leafY[i]);
+        }
+        buffer.putInt(evictedChunks.length);
+        for (int chunk : evictedChunks) {
+            buffer.putInt(chunk);
+        }
+        buffer.putInt(editColumns.length);
+        for (int i = 0; i < editColumns.length; i++) {
+            buffer.putLong(editColumns[i]).putFloat(editHeights[i]);
+        }
+        return buffer.flip();
+    }
+
+    private static WorldSnapshot decode(ByteBuffer buffer, Path path) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                throw new IOException("not a pepse snapshot: " + path);
+            }
+            int terrainSeed = buffer.getInt();
+            int forestSeed = buffer.getInt();
+            long originChunk = buffer.getLong();
+            float spawnX = buffer.getFloat();
+            float spawnY = buffer.getFloat();
+            float avatarX = buffer.getFloat();
+            float avatarY = buffer.getFloat();
+            float velocityX = buffer.getFloat();
+            float velocityY = buffer.getFloat();
+            int flightPower = buffer.getInt();
+            float timeOfDay = buffer.getFloat();
+            int leafStep = buffer.getInt();
+            float leafStepTime = buffer.getFloat();
+            int[] runMinX = new int[buffer.getInt()];
+            float[][] runHeights = new float[runMinX.length][];
+            for (int run = 0; run < runMinX.length; run++) {
+                runMinX[run] = buffer.getInt();
+                runHeights[run] = new float[buffer.getInt()];
+                buffer.asFloatBuffer().get(runHeights[run]);
+                buffer.position(buffer.position() + runHeights[run].length * Float.BYTES);
+            }
+            Tree[] trees = new Tree[buffer.getInt()];
+            for (int i = 0; i < trees.length; i++) {
+                trees[i] = new Tree(buffer.getInt(), TreeType.byId(buffer.get()), buffer.getInt(),
+                        buffer.getInt());
+            }
+            int leafCount = buffer.getInt();
+            float[] leafHomeX = new float[leafCount];
+            float[] leafHomeY = new float[leafCount];
+            byte[] leafPhase = new byte[leafCount];
+            float[] leafX = new float[leafCount];
+            float[] leafY = new float[leafCount];
+            for (int i = 0; i < leafCount; i++) {
+                leafHomeX[i] = buffer.getFloat();
+                leafHomeY[i] = buffer.getFloat();
+                leafPhase[i] = buffer.get();
+                leafX[i] = buffer.getFloat();
+                leafY[i] = buffer.getFloat();
+            }
+            int[] evictedChunks = new int[buffer.getInt()];
+            buffer.asIntBuffer().get(evictedChunks);
+            buffer.position(buffer.position() + evictedChunks.length * Integer.BYTES);
+            long[] editColumns = new long[buffer.getInt()];
+            float[] editHeights = new float[editColumns.length];
+            for (int i = 0; i < editColumns.length; i++) {
+                editColumns[i] = buffer.getLong();
+                editHeights[i] = buffer.getFloat();
+            }
+            return new WorldSnapshot(terrainSeed, forestSeed, originChunk, spawnX, spawnY, avatarX, avatarY,
+                    velocityX, velocityY, flightPower, timeOfDay, leafStep, leafStepTime, runMinX, runHeights,
+                    trees, leafHomeX, leafHomeY, leafPhase, leafX, leafY, evictedChunks, editColumns,
+                    editHeights);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("truncated pepse snapshot: " + path, e);
+        }
+    }
+
+    private static long homeKey(float x, float y) {
+        return ((long) Float.floatToIntBits(x) << FLOAT_BITS) | (Float.floatToIntBits(y) & LOW_BITS_MASK);
+    }
+
+    /**
+     * Getter for the seed of the saved world's terrain.
+     *
+     * @return the seed of the terrain's height.
+     */
+    public int getTerrainSeed() {
+        return terrainSeed;
+    }
+
+    /**
+     * Getter for the seed of the saved world's forest.
+     *
+     * @return the seed of the trees and the leaves.
+     */
+    public int getForestSeed() {
+        return forestSeed;
+    }
+
+    /**
+     * Getter for the saved world's origin, which the resumed world starts from, so the saved positions
+     * keep their meaning.
+     *
+     * @return the index of the world's chunk at which the saved game's x = 0 lies.
+     */
+    public long getOriginChunk() {
+        return originChunk;
+    }
+
+    /**
+     * Getter for the point at which the avatar first appeared in the saved game, from which the avatar's
+     * location is counted and the camera keeps its offset.
+     *
+     * @return the avatar's initial top-left corner, in the saved game's coordinates.
+     */
+    public Vector2 getSpawnPosition() {
+        return new Vector2(spawnX, spawnY);
+    }
+
+    /**
+     * Getter for the position of the avatar when the world was saved.
+     *
+     * @return the saved top-left corner of the avatar, in the saved game's coordinates.
+     */
+    public Vector2 getAvatarPosition() {
+        return new Vector2(avatarX, avatarY);
+    }
+
+    /**
+     * Getter for the velocity of the avatar when the world was saved, so a jump or a fall goes on after
+     * resuming.
+     *
+     * @return the saved velocity of the avatar.
+     */
+    public Vector2 getAvatarVelocity() {
+        return new Vector2(velocityX, velocityY);
+    }
+
+    /**
+     * Getter for the flight power the avatar had left when the world was saved.
+     *
+     * @return the saved flight power.
+     */
+    public int getFlightPower() {
+        return flightPower;
+    }
+
+    /**
+     * Getter for the time of day when the world was saved.
+     *
+     * @return the time passed since the beginning of the saved day-night cycle, in seconds.
+     */
+    public float getTimeOfDay() {
+        return timeOfDay;
+    }
+
+    /**
+     * Getter for the season of the leaves when the world was saved.
+     *
+     * @return the step of the leaf palette's year, counted from the beginning of the summer.
+     */
+    public int getLeafStep() {
+        return leafStep;
+    }
+
+    /**
+     * Getter for the time the leaf palette had spent in its step when the world was saved.
+     *
+     * @return the time into the palette's step, in seconds.
+     */
+    public float getLeafStepTime() {
+        return leafStepTime;
+    }
+
+    /**
+     * Getter for the chunks of the landscape which were evicted under the memory budget when the world
+     * was saved.
+     *
+     * @return the chunks which were evicted and not restored yet.
+     */
+    public int[] getEvictedChunks() {
+        return evictedChunks;
+    }
+
+    /**
+     * Counts the ground columns saved in the snapshot, over all of its runs.
+     *
+     * @return the number of ground columns in the snapshot.
+     */
+    public int columnCount() {
+        int count = 0;
+        for (float[] heights : runHeights) {
+            count += heights.length;
+        }
+        return count;
+    }
+
+    /**
+     * Getter for the number of terrain edits saved in the snapshot, loaded or not.
+     *
+     * @return the number of edited columns of the terrain in the snapshot.
+     */
+    public int editCount() {
+        return editColumns.length;
+    }
+
+    /**
+     * Getter for the number of trees saved in the snapshot, each saved with all its leaves.
+     *
+     * @return the number of trees in the snapshot.
+     */
+    public int treeCount() {
+        return trees.length;
+    }
+}
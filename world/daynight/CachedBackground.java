@@ -0,0 +1,114 @@
+package pepse.world.daynight;
+
+import danogl.GameObject;
+import danogl.collisions.GameObjectCollection;
+import danogl.components.CoordinateSpace;
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+import pepse.world.Sky;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Renders the sky, the sun and the sun's halo into a single cached image, which is re-rendered only when
+ * the day-night phase has moved by a visible amount and is blitted unchanged otherwise. This replaces
+ * three camera-space objects (one of them alpha blended) with a single image copy per frame.
+ * <p>
+ * The cycle is divided into REDRAW_STEPS steps of a degree of the sun's orbit each, a few pixels of
+ * motion, and the image is re-rendered once per step. With a 30 seconds cycle at 60 frames per second,
+ * this is once every 5 frames.
+ */
+public class CachedBackground implements Renderable {
+
+    private static final String BACKGROUND_TAG = "background";
+    private static final int REDRAW_STEPS = 360;
+
+    private final DayNightClock clock;
+    private final Vector2 windowDimensions;
+    private final Color haloColor;
+    private final BufferedImage image;
+    private int sunX = 0;
+    private int sunY = 0;
+    private int phaseStep = -1;
+    private int redrawCount = 0;
+
+    /**
+     * Constructor for the CachedBackground.
+     *
+     * @param windowDimensions - The dimensions of the game window.
+     * @param clock            - The day-night clock which places the sun.
+     * @param haloColor        - The color of the sun's halo.
+     */
+    public CachedBackground(Vector2 windowDimensions, DayNightClock clock, Color haloColor) {
+        this.clock = clock;
+        this.windowDimensions = windowDimensions;
+        this.haloColor = haloColor;
+        this.image = new BufferedImage((int) windowDimensions.x(), (int) windowDimensions.y(),
+                BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Creates the background object and adds it to the game.
+     *
+     * @param gameObjects      - The collection to which the background is added.
+     * @param layer            - The layer to which the background is added.
+     * @param windowDimensions - The dimensions of the game window.
+     * @param clock            - The day-night clock which places the sun.
+     * @param haloColor        - The color of the sun's halo.
+     * @return - a pointer to the object that was created.
+     */
+    public static GameObject create(GameObjectCollection gameObjects, int layer, Vector2 windowDimensions,
+                                    DayNightClock clock, Color haloColor) {
+        GameObject background = new GameObject(Vector2.ZERO, windowDimensions,
+                new CachedBackground(windowDimensions, clock, haloColor));
+        background.setCoordinateSpace(CoordinateSpace.CAMERA_COORDINATES);
+        background.setTag(BACKGROUND_TAG);
+        gameObjects.addGameObject(background, layer);
+        return background;
+    }
+
+    @Override
+    public void render(Graphics2D g, Vector2 topLeftCorner, Vector2 dimensions,
+                       double degreesCounterClockwise, boolean isFlippedHorizontally,
+                       boolean isFlippedVertically, double opaqueness) {
+        int newPhaseStep = (int) (clock.getPhase() * REDRAW_STEPS);
+        if (newPhaseStep != phaseStep) {
+            phaseStep = newPhaseStep;
+            sunX = Math.round(Sun.centerX(clock, windowDimensions));
+            sunY = Math.round(Sun.centerY(clock, windowDimensions));
+            redraw();
+        }
+        g.drawImage(image, Math.round(topLeftCorner.x()), Math.round(topLeftCorner.y()),
+                Math.round(dimensions.x()), Math.round(dimensions.y()), null);
+    }
+
+    /**
+     * Getter for the number of times the cached image was re-rendered.
+     *
+     * @return the number of redraws.
+     */
+    public int getRedrawCount() {
+        return redrawCount;
+    }
+
+    /**
+     * Renders the sky, the halo and the sun into the cached image.
+     */
+    private void redraw() {
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(Sky.BASIC_SKY_COLOR);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        fillCircle(g, Color.YELLOW, Sun.SUN_SIZE);
+        fillCircle(g, haloColor, SunHalo.HALO_SIZE);
+        g.dispose();
+        redrawCount++;
+    }
+
+    private void fillCircle(Graphics2D g, Color color, float size) {
+        int radius = Math.round(size / 2);
+        g.setColor(color);
+        g.fillOval(sunX - radius, sunY - radius, 2 * radius, 2 * radius);
+    }
+}
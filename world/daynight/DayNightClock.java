@@ -0,0 +1,112 @@
+package pepse.world.daynight;
+
+/**
+ * The single clock of the day-night cycle. It advances one float per frame, and the sun, its halo and
+ * the night derive their state from it, so every system reads the same time of day.
+ */
+public class DayNightClock {
+
+    private static final float FULL_CIRCLE = (float) Math.PI * 2;
+    private static final float HALF_CYCLE = 0.5f;
+    private static final float DUSK_PHASE = 0.25f;
+    private static final float DAWN_PHASE = 0.75f;
+
+    private final float cycleLength;
+    private float time = 0;
+
+    /**
+     * Constructor for the DayNightClock. The clock starts at noon.
+     *
+     * @param cycleLength - The length of a single day-night cycle, in seconds.
+     */
+    public DayNightClock(float cycleLength) {
+        this.cycleLength = cycleLength;
+    }
+
+    /**
+     * Moves the clock forward.
+     *
+     * @param deltaTime - the time passed since the last frame, in seconds.
+     */
+    public void advance(float deltaTime) {
+        time += deltaTime;
+        if (time >= cycleLength) {
+            time %= cycleLength;
+        }
+    }
+
+    /**
+     * Sets the clock to the given phase of the cycle.
+     *
+     * @param phase - the phase, in [0, 1).
+     */
+    public void setPhase(float phase) {
+        time = (phase - (float) Math.floor(phase)) * cycleLength;
+    }
+
+    /**
+     * Sets the time passed since the beginning of the current cycle, as saved in a snapshot.
+     *
+     * @param timeOfDay - the time of day, in seconds.
+     */
+    public void setTimeOfDay(float timeOfDay) {
+        time = timeOfDay % cycleLength;
+    }
+
+    /**
+     * Getter for the length of a day-night cycle.
+     *
+     * @return the length of the cycle, in seconds.
+     */
+    public float getCycleLength() {
+        return cycleLength;
+    }
+
+    /**
+     * Getter for the time passed since the beginning of the current cycle.
+     *
+     * @return the time of day, in seconds.
+     */
+    public float getTimeOfDay() {
+        return time;
+    }
+
+    /**
+     * Returns the phase of the current cycle, where 0 is noon and 0.5 is midnight.
+     *
+     * @return the phase, in [0, 1).
+     */
+    public float getPhase() {
+        return time / cycleLength;
+    }
+
+    /**
+     * Returns the angle of the sun along its circle in the sky, where 0 is the top of the circle.
+     *
+     * @return the angle, in radians.
+     */
+    public float getSunAngle() {
+        return getPhase() * FULL_CIRCLE;
+    }
+
+    /**
+     * Returns how dark it is, rising smoothly from 0 at noon to 1 at midnight and back.
+     *
+     * @return the darkness, in [0, 1].
+     */
+    public float getDarkness() {
+        float phase = getPhase();
+        float t = phase < HALF_CYCLE ? phase / HALF_CYCLE : (1 - phase) / HALF_CYCLE;
+        return t * t * (3 - 2 * t);
+    }
+
+    /**
+     * Checks if the sun is currently below the horizon.
+     *
+     * @return true during the night; False during the day.
+     */
+    public boolean isNight() {
+        float phase = getPhase();
+        return phase >= DUSK_PHASE && phase < DAWN_PHASE;
+    }
+}
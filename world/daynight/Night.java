@@ -3,7 +3,6 @@ package pepse.world.daynight;
 import danogl.GameObject;
 import danogl.collisions.GameObjectCollection;
 import danogl.components.CoordinateSpace;
-import danogl.components.Transition;
 import danogl.gui.rendering.RectangleRenderable;
 import danogl.util.Vector2;
 
@@ -28,14 +27,14 @@ public class Night {
      * @param layer            - The rendering layer to which the
      *                        rectangle will be added.
      * @param windowDimensions - the dimension of the game window.
-     * @param cycleLength      - The length of a single day-night
-     *                         cycle, in seconds.
+     * @param clock            - The day-night clock which
+     *                         determines how dark it is.
      * @return - A pointer to the object that was created.
      */
     public static GameObject create(GameObjectCollection gameObjects,
                                     int layer,
                                     Vector2 windowDimensions,
-                                    float cycleLength) {
+                                    DayNightClock clock) {
 
         GameObject night = new GameObject(
                 Vector2.ZERO,
@@ -46,16 +45,19 @@ public class Night {
         night.setTag(NIGHT_TAG);
         gameObjects.addGameObject(night, layer);
 
-        new Transition<>(
-                night,
-                night.renderer()::setOpaqueness,
-                0f,
-                MIDNIGHT_OPACITY,
-                Transition.CUBIC_INTERPOLATOR_FLOAT,
-                cycleLength / 2,
-                Transition.TransitionType.TRANSITION_BACK_AND_FORTH,
-                null);
+        night.renderer().setOpaqueness(opacity(clock));
+        night.addComponent(deltaTime -> night.renderer().setOpaqueness(opacity(clock)));
 
         return night;
     }
+
+    /**
+     * Calculates the opacity of the night at the clock's current time.
+     *
+     * @param clock - The day-night clock.
+     * @return the opacity, between 0 at noon and MIDNIGHT_OPACITY at midnight.
+     */
+    public static float opacity(DayNightClock clock) {
+        return clock.getDarkness() * MIDNIGHT_OPACITY;
+    }
 }
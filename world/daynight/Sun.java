@@ -3,7 +3,6 @@ package pepse.world.daynight;
 import danogl.GameObject;
 import danogl.collisions.GameObjectCollection;
 import danogl.components.CoordinateSpace;
-import danogl.components.Transition;
 import danogl.gui.rendering.OvalRenderable;
 import danogl.util.Vector2;
 
@@ -16,9 +15,10 @@ import java.awt.*;
 public class Sun {
 
     private static final String SUN_TAG = "sun";
-    private static final float SUN_SIZE = 100;
-    private static final float INIT_ANGLE = 0f;
-    private static final float MAX_ANGLE = (float) Math.PI * 2;
+    public static final float SUN_SIZE = 100;
+    private static final float ORBIT_WIDTH_FACTOR = 0.35f;
+    private static final float ORBIT_HEIGHT_FACTOR = 0.7f;
+    private static final float ORBIT_OFFSET_Y = 200;
 
 
     /**
@@ -29,14 +29,14 @@ public class Sun {
      * @param layer            - The game-layer to which the sun
      *                         will be rendered in.
      * @param windowDimensions - The dimensions of the game-window.
-     * @param cycleLength      - The length of the sun's cycle in
-     *                         the sky (in seconds).
-     * @return
+     * @param clock            - The day-night clock which
+     *                         places the sun in the sky.
+     * @return - A pointer to the object that was created.
      */
     public static GameObject create(GameObjectCollection gameObjects,
                                     int layer,
                                     Vector2 windowDimensions,
-                                    float cycleLength) {
+                                    DayNightClock clock) {
 
         GameObject sun = new GameObject(
                 Vector2.ZERO,
@@ -44,31 +44,38 @@ public class Sun {
                 new OvalRenderable(Color.YELLOW)
         );
 
-        sun.setCenter(new Vector2(windowDimensions.x() / 2,
-                SUN_SIZE));
         sun.setCoordinateSpace(CoordinateSpace.CAMERA_COORDINATES);
         sun.setTag(SUN_TAG);
-        new Transition<>(
-                sun,
-                angle -> sun.setCenter(
-                        new Vector2(
-                                windowDimensions.mult(0.5f)).
-                                add(new Vector2((float)
-                                        Math.sin(angle) *
-                                        windowDimensions.x()
-                                        * (0.35f),
-                                        (float) Math.cos(angle) *
-                                                (-1) *
-                                                windowDimensions.y()
-                                                * (0.7f)+200))),
-                0f,
-                (float) Math.PI * 2,
-                Transition.LINEAR_INTERPOLATOR_FLOAT,
-                cycleLength,
-                Transition.TransitionType.TRANSITION_LOOP,
-                null);
+        sun.addComponent(deltaTime -> sun.transform().setCenter(
+                centerX(clock, windowDimensions), centerY(clock, windowDimensions)));
+        sun.transform().setCenter(centerX(clock, windowDimensions), centerY(clock, windowDimensions));
 
         gameObjects.addGameObject(sun, layer);
         return sun;
     }
+
+    /**
+     * Calculates the horizontal position of the sun's center.
+     *
+     * @param clock            - The day-night clock.
+     * @param windowDimensions - The dimensions of the game-window.
+     * @return the x-coordinate of the center, in camera coordinates.
+     */
+    public static float centerX(DayNightClock clock, Vector2 windowDimensions) {
+        return windowDimensions.x() * 0.5f +
+                (float) Math.sin(clock.getSunAngle()) * windowDimensions.x() * ORBIT_WIDTH_FACTOR;
+    }
+
+    /**
+     * Calculates the vertical position of the sun's center.
+     *
+     * @param clock            - The day-night clock.
+     * @param windowDimensions - The dimensions of the game-window.
+     * @return the y-coordinate of the center, in camera coordinates.
+     */
+    public static float centerY(DayNightClock clock, Vector2 windowDimensions) {
+        return windowDimensions.y() * 0.5f -
+                (float) Math.cos(clock.getSunAngle()) * windowDimensions.y() * ORBIT_HEIGHT_FACTOR +
+                ORBIT_OFFSET_Y;
+    }
 }
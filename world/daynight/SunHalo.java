@@ -9,29 +9,34 @@ import danogl.util.Vector2;
 import java.awt.*;
 
 /**
- *
+ * The glowing halo around the sun.
  */
 public class SunHalo {
 
+    public static final float HALO_SIZE = 200;
+
     /**
-     * Creates a new sunHalo.
+     * Creates a new sunHalo, which follows the sun along its path in the sky.
      *
-     * @param gameObjects - the gameObject collection of the game.
-     * @param layer - The layer to add the sunHalo.
-     * @param sun - the sun object.
-     * @param color - the color of the halo.
+     * @param gameObjects      - the gameObject collection of the game.
+     * @param layer            - The layer to add the sunHalo.
+     * @param windowDimensions - The dimensions of the game-window.
+     * @param clock            - the day-night clock which places the sun.
+     * @param color            - the color of the halo.
      * @return a pointer to the new object.
      */
-    public static GameObject create(GameObjectCollection gameObjects, int layer, GameObject sun,
-                                    Color color) {
+    public static GameObject create(GameObjectCollection gameObjects, int layer, Vector2 windowDimensions,
+                                    DayNightClock clock, Color color) {
 
-        GameObject sunHalo = new GameObject(Vector2.ZERO, new Vector2(200, 200),
+        GameObject sunHalo = new GameObject(Vector2.ZERO, new Vector2(HALO_SIZE, HALO_SIZE),
                 new OvalRenderable(color));
-        sunHalo.setCenter(sun.getCenter());
+        sunHalo.transform().setCenter(Sun.centerX(clock, windowDimensions),
+                Sun.centerY(clock, windowDimensions));
         sunHalo.setCoordinateSpace(CoordinateSpace.CAMERA_COORDINATES);
         sunHalo.setTag("sunHalo");
         gameObjects.addGameObject(sunHalo, layer);
-        sunHalo.addComponent(num -> sunHalo.setCenter(sun.getCenter()));
+        sunHalo.addComponent(deltaTime -> sunHalo.transform().setCenter(
+                Sun.centerX(clock, windowDimensions), Sun.centerY(clock, windowDimensions)));
         return sunHalo;
 
     }
@@ -0,0 +1,91 @@
+package pepse.world.trees;
+
+import danogl.GameObject;
+import danogl.components.Component;
+import danogl.components.Transition;
+
+/**
+ * A transition of a float attribute of a game object, which works like danogl's Transition&lt;Float&gt;
+ * but hands the value to its setter as a primitive. danogl's transition boxes the value on every update,
+ * a Float per animated leaf per frame, which made the leaves the largest source of per-frame garbage.
+ */
+final class FloatTransition implements Component {
+
+    /**
+     * Receives the value of the transition on every update.
+     */
+    interface Setter {
+        /**
+         * @param value - the current value of the transition.
+         */
+        void set(float value);
+    }
+
+    private final GameObject gameObject;
+    private final Setter setter;
+    private final float initialValue;
+    private final float finalValue;
+    private final boolean cubic;
+    private final float transitionTime;
+    private final Transition.TransitionType type;
+    private final Runnable onReached;
+    private float elapsed = 0;
+    private boolean forth = true;
+
+    /**
+     * Constructor for the FloatTransition. The transition adds itself to the game object's components.
+     *
+     * @param gameObject     - the game object whose attribute changes.
+     * @param setter         - sets the attribute to the transition's value.
+     * @param initialValue   - the value at the beginning of the transition.
+     * @param finalValue     - the value at the end of the transition.
+     * @param cubic          - whether the value is interpolated by a cubic curve, like danogl's
+     *                       CUBIC_INTERPOLATOR_FLOAT, rather than linearly.
+     * @param transitionTime - the time from the initial value to the final value, in seconds.
+     * @param type           - whether the transition runs once, loops, or goes back and forth.
+     * @param onReached      - run when a TRANSITION_ONCE transition reaches its final value; may be null.
+     */
+    FloatTransition(GameObject gameObject, Setter setter, float initialValue, float finalValue, boolean cubic,
+                    float transitionTime, Transition.TransitionType type, Runnable onReached) {
+        this.gameObject = gameObject;
+        this.setter = setter;
+        this.initialValue = initialValue;
+        this.finalValue = finalValue;
+        this.cubic = cubic;
+        this.transitionTime = transitionTime;
+        this.type = type;
+        this.onReached = onReached;
+        gameObject.addComponent(this);
+    }
+
+    @Override
+    public void update(float deltaTime) {
+        if (transitionTime <= 0) {
+            setter.set(initialValue);
+            return;
+        }
+        elapsed += deltaTime;
+        if (elapsed >= transitionTime) {
+            if (type == Transition.TransitionType.TRANSITION_ONCE) {
+                setter.set(finalValue);
+                gameObject.removeComponent(this);
+                if (onReached != null) {
+                    onReached.run();
+                }
+                return;
+            }
+            elapsed %= transitionTime;
+            if (type == Transition.TransitionType.TRANSITION_BACK_AND_FORTH) {
+                forth = !forth;
+            }
+        }
+        float t = elapsed / transitionTime;
+        if (!forth) {
+            t = 1 - t;
+        }
+        if (cubic) {
+            t = t * t * (3 - 2 * t);
+        }
+        setter.set(initialValue + (finalValue - initialValue) * t);
+    }
+}
@@ -4,9 +4,20 @@ import java.util.Random;
 
 /**
  * Determines where and how the trees should appear.
+ * <p>
+ * The draw at location x is the (|x| + 1)-th draw of a generator seeded by the forest's seed. The
+ * generator is a linear congruential generator, so instead of drawing the first |x| numbers one by one,
+ * its state after |x| draws is computed by composing its step with itself in O(log |x|) multiplications.
+ * A draw far from the spawn point then costs the same as a draw near it. A draw of Random.nextInt which
+ * the generator would have rejected and redrawn (with a probability of bound / 2^31) counts as a single
+ * step here, so past the first such rejection the draws differ from those of drawing one by one.
  */
 public class ForestManager {
 
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long STATE_MASK = (1L << 48) - 1;
+
     /**
      * Determines the seed to be used in the creation of the trees.
      *
@@ -14,46 +25,63 @@ public class ForestManager {
      * @param randomSeed - integer.
      * @return Random-type object.
      */
-    private static Random randomByDirection(int x, int randomSeed) {
+    private static Random randomByDirection(long x, int randomSeed) {
         Random rand;
-        if (x >= 0) rand = new Random(randomSeed);
+        if (x >= 0) rand = skipped(randomSeed, x);
         else {
-            rand = new Random(-1 * randomSeed);
+            rand = skipped(-1 * randomSeed, -x);
         }
         return rand;
     }
 
+    /**
+     * Creates a generator in the state which a generator of the given seed reaches after the given number
+     * of draws.
+     *
+     * @param randomSeed - the seed of the generator.
+     * @param draws      - the number of draws to skip.
+     * @return Random-type object.
+     */
+    private static Random skipped(long randomSeed, long draws) {
+        long state = (randomSeed ^ MULTIPLIER) & STATE_MASK;
+        long multiplier = MULTIPLIER;
+        long addend = ADDEND;
+        while (draws > 0) {
+            if ((draws & 1) != 0) {
+                state = (state * multiplier + addend) & STATE_MASK;
+            }
+//            The step applied twice: m * (m * s + a) + a = m^2 * s + (m + 1) * a.
+            addend = (addend * (multiplier + 1)) & STATE_MASK;
+            multiplier = (multiplier * multiplier) & STATE_MASK;
+            draws >>>= 1;
+        }
+//        Random scrambles its seed with the multiplier, so scrambling the state first cancels it.
+        return new Random(state ^ MULTIPLIER);
+    }
+
     /**
      * Returns a random boolean variable depended on a location.
      *
-     * @param x          - the vertical coordinate.
+     * @param x          - the vertical coordinate, in the world's coordinates.
      * @param randomSeed - seed to be used in the random number generator.
      * @param bound      - the range of number.
      * @return boolean.
      */
-    public static boolean nextBoolByX(int x, int randomSeed, int bound) {
+    public static boolean nextBoolByX(long x, int randomSeed, int bound) {
         Random rand = randomByDirection(x, randomSeed);
-        x = Math.abs(x);
-        for (int i = 0; i < x; i++) {
-            rand.nextInt(bound);
-        }
         return rand.nextInt(bound) % bound == 0;
     }
 
     /**
      * Returns a random integer variable depended on a location.
      *
-     * @param xLocation  - the vertical coordinate.
+     * @param xLocation  - the vertical coordinate, in the world's coordinates.
      * @param randomSeed - seed to be used in the random number generator.
      * @param bound      - the range of number.
      * @return boolean.
      */
-    public static int nextIntByX(int xLocation, int bound, int randomSeed) {
-        Random rand = new Random(randomSeed);
-        xLocation = Math.abs(xLocation);
-        for (int i = 0; i < xLocation; i++) {
-            rand.nextInt(bound);
-        }
+    public static int nextIntByX(long xLocation, int bound, int randomSeed) {
+        Random rand = skipped(randomSeed, Math.abs(xLocation));
         return rand.nextInt(bound);
     }
 
@@ -2,11 +2,13 @@ package pepse.world.trees;
 
 import danogl.GameObject;
 import danogl.collisions.Collision;
-import danogl.components.ScheduledTask;
 import danogl.components.Transition;
 import danogl.gui.rendering.Renderable;
 import danogl.util.Vector2;
+import pepse.jfr.LeafLifecycleEvent;
+import pepse.util.TimerWheel;
 import pepse.world.Block;
+import pepse.world.QualityGovernor;
 
 import java.util.Random;
 
@@ -14,55 +16,174 @@ import java.util.Random;
  * The class is responsible for instances of single leaves.
  */
 public class Leaf extends GameObject {
+    /**
+     * The phase of a leaf which hangs on its tree.
+     */
+    public static final byte ATTACHED = 0;
+    /**
+     * The phase of a leaf which falls from its tree.
+     */
+    public static final byte FALLING = 1;
+    /**
+     * The phase of a leaf which faded out and waits to grow again.
+     */
+    public static final byte DEAD = 2;
     private static final float SPEED_LEAF_FALL = 120;
     private static final float TRANSITION_TIME = 5;
     private static final float LEFT = -1;
     private static final float RIGHT = 1;
     private static final int LIFE_TIME = 60;
-    private static final Float INIT_MOVE_VALUE = 0f;
-    private static final Float FINAL_MOVE_VALUE = 12f;
+    private static final float INIT_MOVE_VALUE = 0f;
+    private static final float FINAL_MOVE_VALUE = 12f;
     private static final float LEAF_TRANS_TIME = 5;
     private static final int LEAF_FADE_IN_TIME = 2;
     private static final int RANDOM_WAIT_TIME = 150;
     private static final float WAIT_TIME_EXTENTION = 20f;
     private static final float WAIT_TIME_FACTOR = 100f;
-    private static final Float INIT_LEAF_SIZE = 25f;
-    private static final Float FINAL_LEAF_SIZE = 35f;
+    private static final float INIT_LEAF_SIZE = 25f;
+    private static final float FINAL_LEAF_SIZE = 35f;
     private static final float MAX_HORIZONTAL_VEL = 40f;
     private static final int HORIZONTAL_RANDOM_BOUND = 4;
     private static final float WAIT_FALL_TIME = 1;
-    private static final Float LEAF_TRANS_VAL = 1f;
+    private static final float LEAF_TRANS_VAL = 1f;
     private final int DEATH_TIME = 10;
+    private static final int PERCENT = 100;
 
-    private final Random random = new Random();
-
+    private final Random random;
+    private final TimerWheel timers;
+    private final QualityGovernor quality;
+    private float anchorX;
+    private Vector2 home;
+    private byte phase = ATTACHED;
+    private FloatTransition windTransition;
+    private long windTimer = TimerWheel.NO_TIMER;
+    private long sizeTimer = TimerWheel.NO_TIMER;
+    private long fallTimer = TimerWheel.NO_TIMER;
+    private long stopResizeTimer = TimerWheel.NO_TIMER;
+    private long rebornTimer = TimerWheel.NO_TIMER;
 
     /**
      * Construct a new Leaf GameObject instance.
      *
      * @param topLeftCorner Position of the object, in window coordinates (pixels).
-     *                      Note that (0,0) is the top-left corner of the window.
+     *                      Note that (0,0) is the top-left corner of the window. The leaf grows back
+     *                      at this position after every fall.
      * @param dimensions    Width and height in window coordinates.
      * @param renderable    The renderable representing the object. Can be null, in which case
+     * @param timers        The timer wheel on which the leaf schedules its life cycle.
+     * @param quality       The governor whose tier decides how much of the life cycle is animated.
+     * @param randomSeed    The seed of the leaf's random behavior.
+     * @param anchorX       The x-coordinate of the tree on which the leaf grows.
      */
-    public Leaf(Vector2 topLeftCorner, Vector2 dimensions, Renderable renderable) {
+    public Leaf(Vector2 topLeftCorner, Vector2 dimensions, Renderable renderable, TimerWheel timers,
+                QualityGovernor quality, long randomSeed, float anchorX) {
         super(topLeftCorner, dimensions, renderable);
+        this.timers = timers;
+        this.quality = quality;
+        this.anchorX = anchorX;
+        this.home = topLeftCorner;
+        this.random = new Random(randomSeed);
         leafTransition(this);
     }
 
     /**
-     * Assigns a chain of initial attributes to a leaf (falling, size, etc.)
+     * Getter for the x-coordinate of the tree on which the leaf grows. Unlike the leaf's own position,
+     * it does not change while the leaf falls.
+     *
+     * @return the x-coordinate of the leaf's tree.
+     */
+    public float getAnchorX() {
+        return anchorX;
+    }
+
+    /**
+     * Moves the leaf, the place where it grows and its tree's x-coordinate by the given distance, when the
+     * world's origin moves.
+     *
+     * @param dx - the distance to move.
+     */
+    public void shiftX(float dx) {
+        transform().setTopLeftCornerX(getTopLeftCorner().x() + dx);
+        home = new Vector2(home.x() + dx, home.y());
+        anchorX += dx;
+    }
+
+    /**
+     * Getter for the position at which the leaf grows on its tree.
+     *
+     * @return the top-left corner of the leaf on its tree.
+     */
+    public Vector2 getHome() {
+        return home;
+    }
+
+    /**
+     * Getter for the phase of the leaf's life cycle.
+     *
+     * @return ATTACHED, FALLING or DEAD.
+     */
+    public byte getPhase() {
+        return phase;
+    }
+
+    /**
+     * Puts a newly built leaf in the given phase of its life cycle, as saved in a snapshot. A falling
+     * leaf starts its fall again from the given position, and a dead leaf waits there, hidden, to grow
+     * again; an attached leaf keeps the life cycle it started with.
+     *
+     * @param savedPhase - the phase of the leaf.
+     * @param x          - the x-coordinate of the leaf's top-left corner.
+     * @param y          - the y-coordinate of the leaf's top-left corner.
+     */
+    public void restorePhase(byte savedPhase, float x, float y) {
+        if (savedPhase == ATTACHED) {
+            return;
+        }
+        cancelTimers();
+        setTopLeftCorner(new Vector2(x, y));
+        if (savedPhase == FALLING) {
+            leafFall(this, null);
+        } else {
+            renderer().setOpaqueness(0);
+            leafDied(this, null);
+        }
+    }
+
+    /**
+     * Cancels all the pending timers of the leaf. Must be called once the leaf is removed from the game,
+     * otherwise its life cycle keeps running on the timer wheel.
+     */
+    public void cancelTimers() {
+        timers.cancel(windTimer);
+        timers.cancel(sizeTimer);
+        timers.cancel(fallTimer);
+        timers.cancel(stopResizeTimer);
+        timers.cancel(rebornTimer);
+    }
+
+    /**
+     * Assigns a chain of initial attributes to a leaf (falling, size, etc.). A leaf which the current
+     * quality tier leaves unanimated stops swaying, and just falls once its life time is over.
      *
      * @param oakLeaf - Leaf object to be transitioned.
      */
     private void leafTransition(Leaf oakLeaf) {
-//        Leaf movement:
-        new ScheduledTask(oakLeaf,
-                (random.nextInt(RANDOM_WAIT_TIME) + WAIT_TIME_EXTENTION) / WAIT_TIME_FACTOR, false,
-                () -> leafWindMovement(oakLeaf));
+        if (!isAnimated()) {
+            if (windTransition != null) {
+                oakLeaf.removeComponent(windTransition);
+                windTransition = null;
+            }
+            fallTimer = timers.schedule(random.nextInt(LIFE_TIME), () -> leafFall(oakLeaf, null));
+            return;
+        }
+//        Leaf movement, which keeps going once started:
+        float windDelay = (random.nextInt(RANDOM_WAIT_TIME) + WAIT_TIME_EXTENTION) / WAIT_TIME_FACTOR;
+        if (windTransition == null) {
+            windTimer = timers.schedule(windDelay, () -> leafWindMovement(oakLeaf));
+        }
 //        change leaf size
-        new ScheduledTask(oakLeaf,
-                (random.nextInt(RANDOM_WAIT_TIME) + WAIT_TIME_EXTENTION) / WAIT_TIME_FACTOR, false,
+        sizeTimer = timers.schedule(
+                (random.nextInt(RANDOM_WAIT_TIME) + WAIT_TIME_EXTENTION) / WAIT_TIME_FACTOR,
                 () -> changeLeafSize(oakLeaf));
     }
 
@@ -72,9 +193,20 @@ public class Leaf extends GameObject {
      * @param oakLeaf - game object representing a leaf.
      */
     private void leafWindMovement(Leaf oakLeaf) {
-        new Transition<>(oakLeaf, oakLeaf.renderer()::setRenderableAngle, INIT_MOVE_VALUE, FINAL_MOVE_VALUE
-                , Transition.LINEAR_INTERPOLATOR_FLOAT, LEAF_TRANS_TIME,
-                Transition.TransitionType.TRANSITION_BACK_AND_FORTH, null);
+        windTransition = new FloatTransition(oakLeaf, oakLeaf.renderer()::setRenderableAngle, INIT_MOVE_VALUE,
+                FINAL_MOVE_VALUE, false, LEAF_TRANS_TIME, Transition.TransitionType.TRANSITION_BACK_AND_FORTH,
+                null);
+    }
+
+    /**
+     * Decides whether the leaf is animated in its next life cycle, by the share of animated leaves of the
+     * current quality tier.
+     *
+     * @return true if the leaf is animated; False otherwise.
+     */
+    private boolean isAnimated() {
+        int animatedPercent = quality.getTier().animatedLeafPercent();
+        return animatedPercent >= PERCENT || random.nextInt(PERCENT) < animatedPercent;
     }
 
     /**
@@ -83,11 +215,10 @@ public class Leaf extends GameObject {
      * @param oakLeaf - the given leaf to be stretched.
      */
     private void changeLeafSize(Leaf oakLeaf) {
-        Transition<Float> transition = new Transition<>(oakLeaf,
-                (Float width) -> oakLeaf.setDimensions(new Vector2(width, Block.SIZE)), INIT_LEAF_SIZE,
-                FINAL_LEAF_SIZE, Transition.CUBIC_INTERPOLATOR_FLOAT, TRANSITION_TIME,
+        FloatTransition transition = new FloatTransition(oakLeaf, oakLeaf.transform()::setDimensionsX,
+                INIT_LEAF_SIZE, FINAL_LEAF_SIZE, true, TRANSITION_TIME,
                 Transition.TransitionType.TRANSITION_BACK_AND_FORTH, null);
-        new ScheduledTask(oakLeaf, random.nextInt(LIFE_TIME), false, () -> leafFall(oakLeaf, transition));
+        fallTimer = timers.schedule(random.nextInt(LIFE_TIME), () -> leafFall(oakLeaf, transition));
     }
 
     /**
@@ -108,11 +239,14 @@ public class Leaf extends GameObject {
      * @param oakLeaf - the gameObject to be manipulated.
      * @return Transition values.
      */
-    private Transition<Float> HorizontalMovement(Leaf oakLeaf) {
+    private FloatTransition HorizontalMovement(Leaf oakLeaf) {
         float direction = leafDirection();
-        return new Transition<>(oakLeaf, (Float speed) -> oakLeaf.setVelocity(new Vector2(speed,
-                SPEED_LEAF_FALL)), direction * MAX_HORIZONTAL_VEL, -direction * MAX_HORIZONTAL_VEL,
-                Transition.CUBIC_INTERPOLATOR_FLOAT, (float) random.nextInt(HORIZONTAL_RANDOM_BOUND),
+        return new FloatTransition(oakLeaf, speed -> {
+                    oakLeaf.transform().setVelocityX(speed);
+                    oakLeaf.transform().setVelocityY(SPEED_LEAF_FALL);
+                },
+                direction * MAX_HORIZONTAL_VEL, -direction * MAX_HORIZONTAL_VEL,
+                true, (float) random.nextInt(HORIZONTAL_RANDOM_BOUND),
                 Transition.TransitionType.TRANSITION_BACK_AND_FORTH, null);
     }
 
@@ -120,30 +254,49 @@ public class Leaf extends GameObject {
      * Determines the changes which should hold while the leaf is falling.
      *
      * @param oakLeaf    - a leaf gameObject.
-     * @param transition - the transition which should take place while the leaf is falling.
+     * @param transition - the transition which should take place while the leaf is falling, or null if
+     *                   the leaf is not animated.
      */
-    private void leafFall(Leaf oakLeaf, Transition<Float> transition) {
-        Vector2 leafLocation = new Vector2(oakLeaf.getTopLeftCorner());
-        Transition<Float> moveSide = HorizontalMovement(oakLeaf);
-        new ScheduledTask(oakLeaf, WAIT_FALL_TIME, false, () -> oakLeaf.removeComponent(transition));
+    private void leafFall(Leaf oakLeaf, FloatTransition transition) {
+        LeafLifecycleEvent.leafFell();
+        phase = FALLING;
+        FloatTransition moveSide = HorizontalMovement(oakLeaf);
+        if (transition != null) {
+            stopResizeTimer = timers.schedule(WAIT_FALL_TIME, () -> oakLeaf.removeComponent(transition));
+        }
 
-        new Transition<>(oakLeaf, oakLeaf.renderer()::fadeOut, LEAF_TRANS_VAL, LEAF_TRANS_VAL,
-                Transition.CUBIC_INTERPOLATOR_FLOAT, TRANSITION_TIME,
-                Transition.TransitionType.TRANSITION_ONCE, () -> new ScheduledTask(oakLeaf,
-                random.nextInt(DEATH_TIME), false, () -> reBorn(oakLeaf, leafLocation, moveSide)));
+        new FloatTransition(oakLeaf, oakLeaf.renderer()::fadeOut, LEAF_TRANS_VAL, LEAF_TRANS_VAL,
+                true, TRANSITION_TIME,
+                Transition.TransitionType.TRANSITION_ONCE, () -> leafDied(oakLeaf, moveSide));
     }
 
     /**
-     * The method is responsible for regenerating a given leaf back on the tree.
+     * Waits a random time after the leaf faded out, and then regenerates it.
+     *
+     * @param oakLeaf  - the leaf which faded out.
+     * @param moveSide - the horizontal movement of the leaf's fall, or null if it has none.
+     */
+    private void leafDied(Leaf oakLeaf, FloatTransition moveSide) {
+        phase = DEAD;
+        rebornTimer = timers.schedule(random.nextInt(DEATH_TIME) * quality.getTier().rebirthDelayFactor(),
+                () -> reBorn(oakLeaf, moveSide));
+    }
+
+    /**
+     * The method is responsible for regenerating a given leaf back on the tree, at the position on which
+     * it first grew.
      *
      * @param leaf - the said leaf.
-     * @param leafLocation - the location which the leaf should reappear on.
-     * @param moveSide - Transition value for the leaf.
+     * @param moveSide - Transition value for the leaf, or null if it has none.
      */
-    private void reBorn(Leaf leaf, Vector2 leafLocation, Transition<Float> moveSide) {
-        leaf.removeComponent(moveSide);
+    private void reBorn(Leaf leaf, FloatTransition moveSide) {
+        LeafLifecycleEvent.leafReborn();
+        phase = ATTACHED;
+        if (moveSide != null) {
+            leaf.removeComponent(moveSide);
+        }
         leaf.setVelocity(Vector2.ZERO);
-        leaf.setTopLeftCorner(leafLocation);
+        leaf.setTopLeftCorner(home);
         leaf.renderer().fadeIn(LEAF_FADE_IN_TIME);
         leafTransition(leaf);
     }
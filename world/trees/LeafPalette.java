@@ -0,0 +1,162 @@
+package pepse.world.trees;
+
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+
+/**
+ * The colors of the leaves over the seasons. Every tree type has a single renderable, shared by all the
+ * leaves and canopy impostors of the type, which draws them with the palette's current color for the
+ * type. A season step changes one color per tree type, however many leaves are alive.
+ * <p>
+ * The seasons follow the day-night cycle: every season lasts SEASON_DAYS cycles, and the colors move from
+ * a season to the next in STEPS_PER_SEASON steps. The summer color of a type is its leaf color, and the
+ * other seasons blend it towards a tint of their own. The colors of all the steps are computed once, so a
+ * step allocates nothing.
+ */
+public class LeafPalette {
+
+    private static final int SEASON_DAYS = 2;
+    private static final int STEPS_PER_SEASON = 16;
+    private static final Color[] SEASON_TINTS = {Color.BLACK, new Color(214, 112, 28),
+            new Color(128, 108, 82), new Color(156, 226, 92)};
+    private static final float[] SEASON_BLENDS = {0, 0.75f, 0.6f, 0.35f};
+    private static final int YEAR_STEPS = SEASON_TINTS.length * STEPS_PER_SEASON;
+
+    private final Shared[] renderables = new Shared[TreeType.count()];
+    private final Color[][] colors = new Color[TreeType.count()][YEAR_STEPS];
+    private final float stepLength;
+    private float time = 0;
+    private int step = 0;
+
+    /**
+     * Constructor for the LeafPalette. The palette starts at the beginning of the summer.
+     *
+     * @param cycleLength - The length of a single day-night cycle, in seconds.
+     */
+    public LeafPalette(float cycleLength) {
+        this.stepLength = cycleLength * SEASON_DAYS / STEPS_PER_SEASON;
+        for (int type = 0; type < TreeType.count(); type++) {
+            Color leafColor = TreeType.byId(type).leafColor();
+            for (int season = 0; season < SEASON_TINTS.length; season++) {
+                Color from = blend(leafColor, SEASON_TINTS[season], SEASON_BLENDS[season]);
+                int next = (season + 1) % SEASON_TINTS.length;
+                Color to = blend(leafColor, SEASON_TINTS[next], SEASON_BLENDS[next]);
+                for (int i = 0; i < STEPS_PER_SEASON; i++) {
+                    colors[type][season * STEPS_PER_SEASON + i] = blend(from, to,
+                            (float) i / STEPS_PER_SEASON);
+                }
+            }
+            renderables[type] = new Shared(colors[type][0]);
+        }
+    }
+
+    /**
+     * Returns the renderable shared by the leaves of the given tree type.
+     *
+     * @param type - the type of the tree.
+     * @return the renderable of the type's leaves.
+     */
+    public Renderable renderableOf(TreeType type) {
+        return renderables[type.ordinal()];
+    }
+
+    /**
+     * Moves the seasons forward, and recolors the leaves once per step.
+     *
+     * @param deltaTime - the time passed since the last frame, in seconds.
+     */
+    public void advance(float deltaTime) {
+        time += deltaTime;
+        if (time < stepLength) {
+            return;
+        }
+        int steps = (int) (time / stepLength);
+        time -= steps * stepLength;
+        setStep(step + steps);
+    }
+
+    /**
+     * Moves the palette to the given step of the year, and recolors the leaves of every tree type.
+     *
+     * @param step - the step, counted from the beginning of the summer.
+     */
+    public void setStep(int step) {
+        this.step = Math.floorMod(step, YEAR_STEPS);
+        for (int type = 0; type < renderables.length; type++) {
+            renderables[type].color = colors[type][this.step];
+        }
+    }
+
+    /**
+     * Getter for the current step of the year.
+     *
+     * @return the step, counted from the beginning of the summer.
+     */
+    public int getStep() {
+        return step;
+    }
+
+    /**
+     * Getter for the time passed since the palette entered its current step.
+     *
+     * @return the time into the current step, in seconds.
+     */
+    public float getStepTime() {
+        return time;
+    }
+
+    /**
+     * Puts the palette back at the given step and the given time into it, as saved in a snapshot.
+     *
+     * @param savedStep - the step, counted from the beginning of the summer.
+     * @param stepTime  - the time into the step, in seconds.
+     */
+    public void restore(int savedStep, float stepTime) {
+        setStep(savedStep);
+        time = stepTime;
+    }
+
+    private static Color blend(Color from, Color to, float weight) {
+        return new Color(Math.round(from.getRed() + (to.getRed() - from.getRed()) * weight),
+                Math.round(from.getGreen() + (to.getGreen() - from.getGreen()) * weight),
+                Math.round(from.getBlue() + (to.getBlue() - from.getBlue()) * weight));
+    }
+
+    /**
+     * Draws a rectangle in the current color of its tree type, rotated and faded like the rectangle of a
+     * single leaf.
+     */
+    private static final class Shared implements Renderable {
+        private Color color;
+
+        private Shared(Color color) {
+            this.color = color;
+        }
+
+        @Override
+        public void render(Graphics2D g, Vector2 topLeftCorner, Vector2 dimensions,
+                           double degreesCounterClockwise, boolean isFlippedHorizontally,
+                           boolean isFlippedVertically, double opaqueness) {
+            if (opaqueness <= 0) {
+                return;
+            }
+            AffineTransform transform = g.getTransform();
+            Composite composite = g.getComposite();
+            if (opaqueness < 1) {
+                g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, (float) opaqueness));
+            }
+            if (degreesCounterClockwise != 0) {
+                g.rotate(-Math.toRadians(degreesCounterClockwise), topLeftCorner.x() + dimensions.x() / 2,
+                        topLeftCorner.y() + dimensions.y() / 2);
+            }
+            g.setColor(color);
+            g.fillRect(Math.round(topLeftCorner.x()), Math.round(topLeftCorner.y()),
+                    Math.round(dimensions.x()), Math.round(dimensions.y()));
+            g.setTransform(transform);
+            g.setComposite(composite);
+        }
+    }
+}
@@ -1,175 +1,94 @@
 package pepse.world.trees;
 
-import danogl.collisions.GameObjectCollection;
 import danogl.collisions.Layer;
-import danogl.gui.rendering.RectangleRenderable;
-import danogl.util.Vector2;
-import pepse.PepseGameManager;
-import pepse.world.Block;
-import pepse.world.Terrain;
-
-import java.awt.*;
-
-import static pepse.PepseGameManager.*;
-import static pepse.world.trees.OakTree.*;
 
 /**
- * This class is responsible for generating a random tree in a random location in a given range.
+ * A single tree in the world, stored as plain data: where it stands, its type, the height of its trunk
+ * and which cells of its canopy hold a leaf. The game objects of the tree are emitted by TreeBuilder.
  */
-public class Tree extends GameObjectCollection {
+public final class Tree {
 
-    private static final float DOUBLE_BLOCK_SIZE = Block.SIZE * 2;
     public static final int TREE_LAYER = Layer.STATIC_OBJECTS - 50;
     public static final int LEAF_LAYER = Layer.BACKGROUND + 60;
     public static final String TREE_TAG = "tree";
-    private static final float LEAF_HEIGHT_FACTOR = 1.3f;
-    private static final int FOREST_DENSITY_FACTOR = 15;
 
-    private static GameObjectCollection gameObjects;
-    private static Terrain terrain;
-    private final int seed = PepseGameManager.getSeed();
+    private final int x;
+    private final TreeType type;
+    private final int trunkHeight;
+    private final int leafMask;
 
     /**
      * Constructor for the Tree class.
      *
-     * @param gameObjects - a collection of game objects.
-     * @param terrain     - a game object which represents the ground in the game.
-     */
-    public Tree(GameObjectCollection gameObjects, Terrain terrain) {
-        Tree.gameObjects = gameObjects;
-        Tree.terrain = terrain;
-    }
-
-    /**
-     * Calculates The dimensions of the new tree.
-     *
-     * @param minHeight - the minimum height for which the tree can be created.
-     * @param maxHeight - the maximum extra-height that can bee added to the minHeight (i.e., a minimal
-     *                  height tree will be of size minHeight, while the maximal height can be
-     *                  minHeight+maxHeight).
-     * @param location  - the location of the tree inside the world.
-     * @return a vector with tree's dimensions.
+     * @param x           - the x-coordinate of the trunk's left edge.
+     * @param type        - the type of the tree.
+     * @param trunkHeight - the height of the trunk.
+     * @param leafMask    - bit (row - 1) * colNum + (col - 1) is set if the canopy has a leaf at
+     *                    (row, col).
      */
-    protected Vector2 trunkDimensions(int minHeight, int maxHeight, int location) {
-        int height = minHeight + ForestManager.nextIntByX(location, maxHeight, seed);
-        return new Vector2(Block.SIZE, height);
+    public Tree(int x, TreeType type, int trunkHeight, int leafMask) {
+        this.x = x;
+        this.type = type;
+        this.trunkHeight = trunkHeight;
+        this.leafMask = leafMask;
     }
 
     /**
-     * Calculates the tree coordinates inside the game.
+     * Returns the bit of the given canopy cell inside a leaf mask.
      *
-     * @param x           - the x-coordinate of the tree inside the world.
-     * @param trunkHeight - the height of the tree.
-     * @return vector of the top-left corner of the tree.
+     * @param type - the type of the tree.
+     * @param row  - the row of the leaf, starting at 1.
+     * @param col  - the column of the leaf, starting at 1.
+     * @return the bit of the cell.
      */
-    protected Vector2 trunkPosition(int x, float trunkHeight) {
-        float y = terrain.groundHeightAt(x) - trunkHeight;
-        return new Vector2(x, y);
+    public static int leafBit(TreeType type, int row, int col) {
+        return 1 << ((row - 1) * type.leavesColNum() + (col - 1));
     }
 
     /**
-     * This method is responsible for creating a different trees in its range.
+     * Getter for the position of the tree.
      *
-     * @param minX - the left-most point of the tree-range.
-     * @param maxX - the right-most point of the tree-range.
+     * @return the x-coordinate of the trunk's left edge.
      */
-    public static void createInRange(int minX, int maxX) {
-        TreeFactory treeFactory = new TreeFactory(gameObjects, terrain, PepseGameManager.getSeed());
-        int[] fixMinMax = Block.fixRange(minX, maxX);
-        minX = fixMinMax[FIRST_INDEX];
-        maxX = fixMinMax[SECOND_INDEX];
-        for (int x = minX; x < maxX; x += Block.SIZE) {
-            if (ForestManager.nextBoolByX(x, PepseGameManager.getSeed(), FOREST_DENSITY_FACTOR)) {
-                treeFactory.placeTree(x);
-                x += DOUBLE_BLOCK_SIZE;
-            }
-        }
+    public int getX() {
+        return x;
     }
 
     /**
-     * Generates a single tree.
+     * Getter for the type of the tree, which decides its colors and the shape of its canopy.
      *
-     * @param treePosition - The vector position of the tree's destination.
-     * @param heightParam  - Minimum and maximum expansion values for the tree's height.
-     * @param trunkColor   - The desired color for the tree's trunk.
+     * @return the type of the tree.
      */
-    protected void generateTree(Vector2 treePosition, Vector2 heightParam, Color trunkColor) {
-        Block treeBlock = new Block(Vector2.ZERO, new RectangleRenderable(trunkColor));
-        treeBlock.setDimensions(trunkDimensions((int) heightParam.x(), (int) heightParam.y(),
-                (int) treePosition.x()));
-        treeBlock.setTag(TREE_TAG);
-        treeBlock.setTopLeftCorner(treePosition);
-        gameObjects.addGameObject(treeBlock, Tree.TREE_LAYER);
+    public TreeType getType() {
+        return type;
     }
 
     /**
-     * Generates all the leaves of the given tree.
+     * Getter for the height of the trunk.
      *
-     * @param treePosition    - The position of the said tree.
-     * @param rowNum          - The number of leaves to appear in each column on the tree.
-     * @param colNum          - The number of leaves to appear in each row on the tree.
-     * @param leafColor       - The desired color of the tree's leaves.
-     * @param yPlacementBound - Bound parameter which insures a proper placement for the leaves.
-     * @param xPlacementBound - Bound parameter which insures a proper placement for the leaves.
+     * @return the height of the trunk, in pixels.
      */
-    protected void generateLeaves(Vector2 treePosition, int rowNum, int colNum, Color leafColor,
-                                  int yPlacementBound, int xPlacementBound) {
-        for (int yPlacement = 1; yPlacement <= rowNum; yPlacement++) {
-            for (int xPlacement = 1; xPlacement <= colNum; xPlacement++) {
-                initSingleLeaf(treePosition, xPlacement, yPlacement, xPlacementBound, yPlacementBound,
-                        leafColor);
-            }
-        }
+    public int getTrunkHeight() {
+        return trunkHeight;
     }
 
     /**
-     * Generates a single leaf.
+     * Getter for the cells of the canopy which hold a leaf.
      *
-     * @param treePosition    - The position of the said tree.
-     * @param xPlacement      - The horizontal Placement of the leaf relatively to the other leaves.
-     * @param yPlacement      - The vertical Placement of the leaf relatively to the other leaves.
-     * @param yPlacementBound - Bound parameter which insures a proper placement for the leaves.
-     * @param xPlacementBound - Bound parameter which insures a proper placement for the leaves.
+     * @return the leaf mask, with the bit of every cell as returned by leafBit.
      */
-    private void initSingleLeaf(Vector2 treePosition, int xPlacement, int yPlacement, int xPlacementBound,
-                                int yPlacementBound, Color color) {
-        float leavesX = treePosition.x() - alignToCenter();
-        float leavesY = treePosition.y() / LEAF_HEIGHT_FACTOR;
-        boolean alignment = yPlacement < yPlacementBound || xPlacement != xPlacementBound;
-        if (alignment && ForestManager.nextBoolByX((int) treePosition.x(), seed, FOREST_DENSITY_FACTOR)) {
-            leafAttributes(leavesX, leavesY, xPlacement, yPlacement, color);
-        }
+    public int getLeafMask() {
+        return leafMask;
     }
 
     /**
-     * Accumulates the attributes needed for creating a single leaf: creating the leaf, adding it to game,
-     * and physics issues.
+     * Checks if the canopy holds a leaf at the given cell.
      *
-     * @param leavesX    - The horizontal location of the leaf.
-     * @param leavesY    - The vertical location of the leaf.
-     * @param xPlacement - The horizontal location of the tree.
-     * @param yPlacement - The vertical location of the tree.
+     * @param row - the row of the leaf, starting at 1.
+     * @param col - the column of the leaf, starting at 1.
+     * @return true if there is a leaf in the cell; False otherwise.
      */
-    private void leafAttributes(float leavesX, float leavesY, float xPlacement, float yPlacement,
-                                Color color) {
-        Leaf oakLeaf = new Leaf(Vector2.ZERO, Vector2.ONES.mult(Block.SIZE),
-                new RectangleRenderable(color));
-        oakLeaf.physics().preventIntersectionsFromDirection(Vector2.ZERO);
-        oakLeaf.setTopLeftCorner(new Vector2(leavesX + (Block.SIZE * xPlacement),
-                leavesY + (Block.SIZE * yPlacement)));
-        oakLeaf.physics().preventIntersectionsFromDirection(Vector2.ZERO);
-        gameObjects.addGameObject(oakLeaf, Tree.LEAF_LAYER);
+    public boolean hasLeaf(int row, int col) {
+        return (leafMask & leafBit(type, row, col)) != 0;
     }
-
-    /**
-     * Aligns the entire set of leafs relatively to the tree's trunk.
-     *
-     * @return integer noting the correction needed to the horizontal placement of the leaves.
-     */
-    private int alignToCenter() {
-        return (int) Math.ceil((float) LEAVES_COL_NUM / 2f) * Block.SIZE;
-    }
-
-
 }
-
@@ -0,0 +1,172 @@
+package pepse.world.trees;
+
+import danogl.collisions.GameObjectCollection;
+import danogl.gui.rendering.RectangleRenderable;
+import danogl.util.Vector2;
+import pepse.util.TimerWheel;
+import pepse.world.Block;
+import pepse.world.QualityGovernor;
+import pepse.world.Terrain;
+import pepse.world.WorldOrigin;
+
+/**
+ * Emits the game objects (trunk and leaves) of a tree into the game's collection.
+ */
+public class TreeBuilder {
+
+    private static final float LEAF_HEIGHT_FACTOR = 1.3f;
+    private static final int CANOPY_ALIGNMENT_COLUMNS = 3;
+    private static final long LEAF_SEED_FACTOR = 0x9E3779B97F4A7C15L;
+
+    private final GameObjectCollection gameObjects;
+    private final Terrain terrain;
+    private final TimerWheel timers;
+    private final QualityGovernor quality;
+    private final int seed;
+    private final WorldOrigin origin;
+    private final LeafPalette palette;
+
+    /**
+     * Constructor for the TreeBuilder.
+     *
+     * @param gameObjects - The collection to which the trees are added.
+     * @param terrain     - The game's terrain, on which the trees stand.
+     * @param timers      - The timer wheel which drives the life cycle of the leaves.
+     * @param quality     - The governor whose tier decides how the canopies and leaves are built.
+     * @param seed        - The seed of the forest, from which every leaf derives its own seed.
+     * @param palette     - The palette whose shared renderables draw the leaves.
+     */
+    public TreeBuilder(GameObjectCollection gameObjects, Terrain terrain, TimerWheel timers,
+                       QualityGovernor quality, int seed, LeafPalette palette) {
+        this.gameObjects = gameObjects;
+        this.terrain = terrain;
+        this.timers = timers;
+        this.quality = quality;
+        this.seed = seed;
+        this.origin = terrain.getOrigin();
+        this.palette = palette;
+    }
+
+    /**
+     * Adds the trunk and the leaves of the given tree to the game. When the quality tier calls for
+     * canopy impostors, the canopy is added as a single block instead of its leaves.
+     *
+     * @param tree - the tree to build.
+     */
+    public void build(Tree tree) {
+        Vector2 treePosition = trunkPosition(tree.getX(), tree.getTrunkHeight());
+        generateTrunk(tree, treePosition);
+        if (quality.getTier().canopyImpostors()) {
+            generateCanopyImpostor(tree, treePosition);
+        } else {
+            generateLeaves(tree, treePosition);
+        }
+    }
+
+    /**
+     * Calculates the tree coordinates inside the game.
+     *
+     * @param x           - the x-coordinate of the tree inside the world.
+     * @param trunkHeight - the height of the tree.
+     * @return vector of the top-left corner of the tree.
+     */
+    private Vector2 trunkPosition(int x, float trunkHeight) {
+        float y = terrain.groundHeightAt(x) - trunkHeight;
+        return new Vector2(x, y);
+    }
+
+    /**
+     * Generates the trunk of the tree.
+     *
+     * @param tree         - The tree to which the trunk belongs.
+     * @param treePosition - The vector position of the tree's destination.
+     */
+    private void generateTrunk(Tree tree, Vector2 treePosition) {
+        Block treeBlock = new Block(Vector2.ZERO, new RectangleRenderable(tree.getType().trunkColor()));
+        treeBlock.setDimensions(new Vector2(Block.SIZE, tree.getTrunkHeight()));
+        treeBlock.setTag(Tree.TREE_TAG);
+        treeBlock.setTopLeftCorner(treePosition);
+        gameObjects.addGameObject(treeBlock, Tree.TREE_LAYER);
+    }
+
+    /**
+     * Generates all the leaves of the given tree.
+     *
+     * @param tree         - The tree to which the leaves belong.
+     * @param treePosition - The position of the said tree.
+     */
+    private void generateLeaves(Tree tree, Vector2 treePosition) {
+        TreeType type = tree.getType();
+        float leavesX = treePosition.x() - alignToCenter();
+        float leavesY = treePosition.y() / LEAF_HEIGHT_FACTOR;
+        for (int yPlacement = 1; yPlacement <= type.leavesRowNum(); yPlacement++) {
+            for (int xPlacement = 1; xPlacement <= type.leavesColNum(); xPlacement++) {
+                if (tree.hasLeaf(yPlacement, xPlacement)) {
+                    leafAttributes(leavesX, leavesY, xPlacement, yPlacement, type, treePosition.x());
+                }
+            }
+        }
+    }
+
+    /**
+     * Generates a single static block centered over the trunk of the given tree, which stands in for its
+     * leaves: it costs one object instead of a dozen animated ones.
+     *
+     * @param tree         - The tree to which the canopy belongs.
+     * @param treePosition - The position of the said tree.
+     */
+    private void generateCanopyImpostor(Tree tree, Vector2 treePosition) {
+        TreeType type = tree.getType();
+        float canopyX = treePosition.x() + (Block.SIZE - type.leavesColNum() * Block.SIZE) / 2f;
+        float canopyY = treePosition.y() / LEAF_HEIGHT_FACTOR + Block.SIZE;
+        Block canopy = new Block(Vector2.ZERO, palette.renderableOf(type));
+        canopy.setDimensions(new Vector2(type.leavesColNum() * Block.SIZE, type.leavesRowNum() * Block.SIZE));
+        canopy.setTopLeftCorner(new Vector2(canopyX, canopyY));
+        gameObjects.addGameObject(canopy, Tree.LEAF_LAYER);
+    }
+
+    /**
+     * Accumulates the attributes needed for creating a single leaf: creating the leaf, adding it to game,
+     * and physics issues. The leaf is drawn by the renderable its tree type shares in the palette.
+     *
+     * @param leavesX    - The horizontal location of the leaf.
+     * @param leavesY    - The vertical location of the leaf.
+     * @param xPlacement - The horizontal location of the tree.
+     * @param yPlacement - The vertical location of the tree.
+     * @param type       - The type of the tree.
+     * @param treeX      - The horizontal location of the tree's trunk.
+     */
+    private void leafAttributes(float leavesX, float leavesY, float xPlacement, float yPlacement,
+                                TreeType type, float treeX) {
+        float leafX = leavesX + (Block.SIZE * xPlacement);
+        float leafY = leavesY + (Block.SIZE * yPlacement);
+        Leaf leaf = new Leaf(new Vector2(leafX, leafY), Vector2.ONES.mult(Block.SIZE),
+                palette.renderableOf(type), timers, quality, leafSeed(leafX, leafY),
+                treeX);
+        leaf.physics().preventIntersectionsFromDirection(Vector2.ZERO);
+        gameObjects.addGameObject(leaf, Tree.LEAF_LAYER);
+    }
+
+    /**
+     * Derives the seed of a leaf from the forest's seed and the leaf's position in the world, so a leaf
+     * behaves the same every time its tree is generated, wherever the world's origin is.
+     *
+     * @param leafX - The horizontal location of the leaf.
+     * @param leafY - The vertical location of the leaf.
+     * @return the seed of the leaf.
+     */
+    private long leafSeed(float leafX, float leafY) {
+        long position = (origin.toWorld((int) leafX) << Integer.SIZE) ^
+                (Float.floatToIntBits(leafY) & 0xFFFFFFFFL);
+        return (position ^ seed) * LEAF_SEED_FACTOR;
+    }
+
+    /**
+     * Aligns the entire set of leafs relatively to the tree's trunk.
+     *
+     * @return integer noting the correction needed to the horizontal placement of the leaves.
+     */
+    private int alignToCenter() {
+        return (int) Math.ceil((float) CANOPY_ALIGNMENT_COLUMNS / 2f) * Block.SIZE;
+    }
+}
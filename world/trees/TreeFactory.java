@@ -1,17 +1,30 @@
 package pepse.world.trees;
 
 import danogl.collisions.GameObjectCollection;
+import pepse.util.TimerWheel;
+import pepse.world.Block;
+import pepse.world.QualityGovernor;
 import pepse.world.Terrain;
+import pepse.world.WorldOrigin;
+
+import java.util.stream.IntStream;
+
+import static pepse.PepseGameManager.FIRST_INDEX;
+import static pepse.PepseGameManager.SECOND_INDEX;
 
 /**
- * Responsible for generating and adding new trees to the simulation.
+ * Responsible for generating and adding new trees to the simulation. The trees are placed in the game's
+ * coordinates, while their random draws are taken at their place in the world, so the forest does not
+ * depend on where the world's origin is.
  */
 public class TreeFactory {
 
-    private static final int TYPE_OPTIONS_NUM = 2;
-    private final GameObjectCollection gameObjects;
-    private final Terrain terrain;
+    private static final int FOREST_DENSITY_FACTOR = 15;
+    private static final int TREE_SPACING_COLUMNS = 3;
+    private final TreeBuilder treeBuilder;
     private final int seed;
+    private final TrunkIndex trunkIndex;
+    private final WorldOrigin origin;
 
     /**
      * Constructor for the TreeFactory.
@@ -20,31 +33,109 @@ public class TreeFactory {
      * @param gameTerrain - The game's terrain.
      * @param randomSeed  - The seed (generated randomly) which used to create all the pseudo-random
      *                    generations in the game.
+     * @param trunkIndex  - The spatial index to which the trunk of every placed tree is added.
+     * @param timers      - The timer wheel which drives the life cycle of the leaves.
+     * @param quality     - The governor whose tier decides how the canopies and leaves are built.
+     * @param palette     - The palette whose shared renderables draw the leaves.
      */
-    public TreeFactory(GameObjectCollection collection, Terrain gameTerrain, int randomSeed) {
-        gameObjects = collection;
-        terrain = gameTerrain;
+    public TreeFactory(GameObjectCollection collection, Terrain gameTerrain, int randomSeed,
+                       TrunkIndex trunkIndex, TimerWheel timers, QualityGovernor quality,
+                       LeafPalette palette) {
+        treeBuilder = new TreeBuilder(collection, gameTerrain, timers, quality, randomSeed, palette);
         seed = randomSeed;
+        this.trunkIndex = trunkIndex;
+        this.origin = gameTerrain.getOrigin();
+    }
+
+    /**
+     * This method is responsible for creating a different trees in its range.
+     *
+     * @param minX - the left-most point of the tree-range.
+     * @param maxX - the right-most point of the tree-range.
+     */
+    public void createInRange(int minX, int maxX) {
+        build(planInRange(minX, maxX, false));
+    }
+
+    /**
+     * Plans the trees of the given range without creating any game object, so it may be called from any
+     * thread. For the initial world, the per-column random draws, which dominate the cost, are evaluated
+     * in parallel; a chunk loaded during play is planned on the calling thread.
+     *
+     * @param minX     - the left-most point of the tree-range.
+     * @param maxX     - the right-most point of the tree-range.
+     * @param parallel - whether the draws are evaluated in parallel.
+     * @return the trees of the range, ordered by x.
+     */
+    public Tree[] planInRange(int minX, int maxX, boolean parallel) {
+        int[] fixMinMax = Block.fixRange(minX, maxX);
+        int fixedMinX = fixMinMax[FIRST_INDEX];
+        int columns = (fixMinMax[SECOND_INDEX] - fixedMinX + Block.SIZE - 1) / Block.SIZE;
+        long worldMinX = origin.toWorld(fixedMinX);
+        boolean[] candidates = new boolean[Math.max(columns, 0)];
+        IntStream draws = IntStream.range(0, candidates.length);
+        (parallel ? draws.parallel() : draws).forEach(column -> candidates[column] =
+                ForestManager.nextBoolByX(worldMinX + (long) column * Block.SIZE, seed,
+                        FOREST_DENSITY_FACTOR));
+        int[] treeColumns = new int[candidates.length];
+        int treeCount = 0;
+        for (int column = 0; column < candidates.length; column++) {
+            if (candidates[column]) {
+                treeColumns[treeCount++] = column;
+                column += TREE_SPACING_COLUMNS - 1;
+            }
+        }
+        IntStream trees = IntStream.of(treeColumns).limit(treeCount);
+        return (parallel ? trees.parallel() : trees)
+                .mapToObj(column -> planTree(fixedMinX + column * Block.SIZE)).toArray(Tree[]::new);
     }
 
     /**
-     * The method randomly selects between predetermined number of tree types and returns one Tree object
-     * which is a Tree decorated by one of the decorator strategies, or decorated by two randomly
-     * selected strategies, or decorated by one of the decorator strategies and a pair of additional two
-     * decorator strategies.
+     * Builds the game objects of the given trees and indexes their trunks. Must be called from the game's
+     * thread.
+     *
+     * @param trees - the trees to build.
+     */
+    public void build(Tree[] trees) {
+        for (Tree tree : trees) {
+            treeBuilder.build(tree);
+            trunkIndex.add(tree.getX(), tree.getType().ordinal(), tree.getTrunkHeight());
+        }
+    }
+
+    /**
+     * The method randomly selects between the tree types, and places a tree of the selected type at the
+     * given location.
+     *
+     * @param locationX - the x-coordinate of the new tree.
      */
     public void placeTree(float locationX) {
-        int coordinate = (int) Math.floor(locationX);
-        int option = ForestManager.nextIntByX(coordinate, TYPE_OPTIONS_NUM, seed);
-        switch (option) {
-            case 0:
-                new OakTree(gameObjects, coordinate, terrain);
-                return;
-            case 1:
-                new EucalyptusTree(gameObjects, coordinate, terrain);
-                return;
-            default:
+        Tree tree = planTree((int) Math.floor(locationX));
+        treeBuilder.build(tree);
+        trunkIndex.add(tree.getX(), tree.getType().ordinal(), tree.getTrunkHeight());
+    }
+
+    /**
+     * Determines the type, trunk height and leaves of the tree at the given location. The result depends
+     * only on the location and the seed.
+     *
+     * @param x - the x-coordinate of the tree.
+     * @return the tree's data.
+     */
+    public Tree planTree(int x) {
+        long worldX = origin.toWorld(x);
+        TreeType type = TreeType.byId(ForestManager.nextIntByX(worldX, TreeType.count(), seed));
+        int trunkHeight = type.minHeight() + ForestManager.nextIntByX(worldX, type.maxHeight(), seed);
+        int leafMask = 0;
+        if (ForestManager.nextBoolByX(worldX, seed, FOREST_DENSITY_FACTOR)) {
+            for (int row = 1; row <= type.leavesRowNum(); row++) {
+                for (int col = 1; col <= type.leavesColNum(); col++) {
+                    if (type.isLeafAligned(row, col)) {
+                        leafMask |= Tree.leafBit(type, row, col);
+                    }
+                }
+            }
         }
+        return new Tree(x, type, trunkHeight, leafMask);
     }
 }
-
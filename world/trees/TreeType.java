@@ -0,0 +1,96 @@
+package pepse.world.trees;
+
+import java.awt.*;
+
+/**
+ * The kinds of trees that can grow in the world, and the parameters which shape each one of them.
+ */
+public enum TreeType {
+    OAK(new Color(81, 52, 27), new Color(33, 194, 79), 150, 120, 6, 3, 5, 2),
+    EUCALYPTUS(new Color(173, 94, 3), new Color(43, 90, 30), 240, 90, 3, 4, 3, 3);
+
+    private static final TreeType[] TYPES = values();
+
+    private final Color trunkColor;
+    private final Color leafColor;
+    private final int minHeight;
+    private final int maxHeight;
+    private final int leavesRowNum;
+    private final int leavesColNum;
+    private final int yPlacementBound;
+    private final int xPlacementBound;
+
+    /**
+     * @param trunkColor      - the color of the trunk.
+     * @param leafColor       - the color of the leaves.
+     * @param minHeight       - the minimal height of the trunk.
+     * @param maxHeight       - the maximal extra-height that can be added to minHeight.
+     * @param leavesRowNum    - the number of leaf rows in the canopy.
+     * @param leavesColNum    - the number of leaf columns in the canopy.
+     * @param yPlacementBound - bound parameter which insures a proper placement for the leaves.
+     * @param xPlacementBound - bound parameter which insures a proper placement for the leaves.
+     */
+    TreeType(Color trunkColor, Color leafColor, int minHeight, int maxHeight, int leavesRowNum,
+             int leavesColNum, int yPlacementBound, int xPlacementBound) {
+        this.trunkColor = trunkColor;
+        this.leafColor = leafColor;
+        this.minHeight = minHeight;
+        this.maxHeight = maxHeight;
+        this.leavesRowNum = leavesRowNum;
+        this.leavesColNum = leavesColNum;
+        this.yPlacementBound = yPlacementBound;
+        this.xPlacementBound = xPlacementBound;
+    }
+
+    /**
+     * Returns the type with the given id (its ordinal), as stored in the trunk index.
+     *
+     * @param id - the id of the type.
+     * @return the matching type.
+     */
+    public static TreeType byId(int id) {
+        return TYPES[id];
+    }
+
+    /**
+     * @return the number of tree types.
+     */
+    public static int count() {
+        return TYPES.length;
+    }
+
+    public Color trunkColor() {
+        return trunkColor;
+    }
+
+    public Color leafColor() {
+        return leafColor;
+    }
+
+    public int minHeight() {
+        return minHeight;
+    }
+
+    public int maxHeight() {
+        return maxHeight;
+    }
+
+    public int leavesRowNum() {
+        return leavesRowNum;
+    }
+
+    public int leavesColNum() {
+        return leavesColNum;
+    }
+
+    /**
+     * Checks if a leaf may grow in the given cell of the canopy.
+     *
+     * @param row - the row of the leaf, starting at 1.
+     * @param col - the column of the leaf, starting at 1.
+     * @return true if the cell is part of the canopy's shape; False otherwise.
+     */
+    public boolean isLeafAligned(int row, int col) {
+        return row < yPlacementBound || col != xPlacementBound;
+    }
+}
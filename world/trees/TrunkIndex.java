@@ -0,0 +1,318 @@
+package pepse.world.trees;
+
+import pepse.world.Block;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Spatial index of the tree trunks currently loaded in the world. A trunk is a 1D interval
+ * [x, x + Block.SIZE) along the x-axis, so the trunks are kept per chunk in sorted primitive arrays,
+ * and every range query costs a binary search instead of a scan over the whole game-objects collection.
+ */
+public class TrunkIndex {
+
+    /**
+     * The width (in pixels) covered by a single chunk of the index.
+     */
+    public static final int CHUNK_WIDTH = Block.SIZE * 32;
+    /**
+     * Returned by the queries when no trunk matches.
+     */
+    public static final int NOT_FOUND = Integer.MIN_VALUE;
+    private static final int INIT_CAPACITY = 8;
+    private static final int HALF_TRUNK = Block.SIZE / 2;
+
+    private final TreeMap<Integer, Chunk> chunks = new TreeMap<>();
+    private int size = 0;
+
+    /**
+     * Callback used to visit the trunks returned by a range query.
+     */
+    public interface TrunkVisitor {
+        /**
+         * Called once for every trunk in the queried range, ordered by x.
+         *
+         * @param x      - the left edge of the trunk.
+         * @param type   - the id of the tree's TreeType.
+         * @param height - the height of the trunk.
+         */
+        void visit(int x, int type, float height);
+    }
+
+    /**
+     * Adds a trunk to the index. A trunk which is already indexed at the same x is ignored, so
+     * regenerating a range twice keeps the index consistent with the world.
+     *
+     * @param x      - the left edge of the trunk.
+     * @param type   - the id of the tree's TreeType.
+     * @param height - the height of the trunk.
+     */
+    public void add(int x, int type, float height) {
+        Chunk chunk = chunks.computeIfAbsent(chunkOf(x), key -> new Chunk());
+        if (chunk.insert(x, type, height)) {
+            size++;
+        }
+    }
+
+    /**
+     * Drops every trunk whose center lies outside the given range, mirroring the way the landscape
+     * manager removes objects which went out of sight.
+     *
+     * @param minX - the left edge of the range to keep.
+     * @param maxX - the right edge of the range to keep.
+     */
+    public void removeOutside(int minX, int maxX) {
+        int keepFrom = minX - HALF_TRUNK;
+        int keepTo = maxX - HALF_TRUNK;
+        Iterator<Map.Entry<Integer, Chunk>> iterator = chunks.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Chunk chunk = iterator.next().getValue();
+            size -= chunk.retain(keepFrom, keepTo);
+            if (chunk.count == 0) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops every trunk whose left edge lies inside the given range, used when a whole chunk of the
+     * landscape is evicted.
+     *
+     * @param minX - the left edge of the range to drop.
+     * @param maxX - the right edge of the range to drop.
+     */
+    public void removeInRange(int minX, int maxX) {
+        Iterator<Chunk> iterator = chunksInRange(minX, maxX).values().iterator();
+        while (iterator.hasNext()) {
+            Chunk chunk = iterator.next();
+            size -= chunk.cut(minX, maxX);
+            if (chunk.count == 0) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Moves every trunk by the given distance, when the world's origin moves.
+     *
+     * @param dx - the distance to move, a multiple of CHUNK_WIDTH.
+     */
+    public void shift(int dx) {
+        int chunkDelta = dx / CHUNK_WIDTH;
+        TreeMap<Integer, Chunk> shifted = new TreeMap<>();
+        for (Map.Entry<Integer, Chunk> entry : chunks.entrySet()) {
+            Chunk chunk = entry.getValue();
+            for (int i = 0; i < chunk.count; i++) {
+                chunk.xs[i] += dx;
+            }
+            shifted.put(entry.getKey() + chunkDelta, chunk);
+        }
+        chunks.clear();
+        chunks.putAll(shifted);
+    }
+
+    /**
+     * Counts the trunks intersecting the given range.
+     *
+     * @param minX - the left edge of the range.
+     * @param maxX - the right edge of the range.
+     * @return the number of trunks in the range.
+     */
+    public int countInRange(int minX, int maxX) {
+        int count = 0;
+        int fromX = minX - Block.SIZE + 1;
+        for (Chunk chunk : chunksInRange(fromX, maxX).values()) {
+            count += chunk.upperBound(maxX) - chunk.lowerBound(fromX);
+        }
+        return count;
+    }
+
+    /**
+     * Visits all the trunks intersecting the given range, ordered by x.
+     *
+     * @param minX    - the left edge of the range.
+     * @param maxX    - the right edge of the range.
+     * @param visitor - the callback to apply to every trunk.
+     */
+    public void forEachInRange(int minX, int maxX, TrunkVisitor visitor) {
+        int fromX = minX - Block.SIZE + 1;
+        for (Chunk chunk : chunksInRange(fromX, maxX).values()) {
+            int end = chunk.upperBound(maxX);
+            for (int i = chunk.lowerBound(fromX); i < end; i++) {
+                visitor.visit(chunk.xs[i], chunk.types[i], chunk.heights[i]);
+            }
+        }
+    }
+
+    /**
+     * Checks if any trunk intersects the given range.
+     *
+     * @param minX - the left edge of the range.
+     * @param maxX - the right edge of the range.
+     * @return true if a trunk intersects the range; False otherwise.
+     */
+    public boolean intersects(int minX, int maxX) {
+        int fromX = minX - Block.SIZE + 1;
+        for (Chunk chunk : chunksInRange(fromX, maxX).values()) {
+            if (chunk.upperBound(maxX) > chunk.lowerBound(fromX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the trunk closest to the given point, looking at most maxDistance pixels away.
+     *
+     * @param x           - the point to search around.
+     * @param maxDistance - the maximal distance from the point.
+     * @return the left edge of the nearest trunk, or NOT_FOUND if there is no trunk in the distance.
+     */
+    public int nearest(int x, int maxDistance) {
+        int best = NOT_FOUND;
+        long bestDistance = Long.MAX_VALUE;
+        for (Chunk chunk : chunksInRange(x - maxDistance, x + maxDistance).values()) {
+            int index = chunk.lowerBound(x);
+            for (int i = Math.max(index - 1, 0); i <= index && i < chunk.count; i++) {
+                long distance = Math.abs((long) chunk.xs[i] - x);
+                if (distance <= maxDistance && distance < bestDistance) {
+                    bestDistance = distance;
+                    best = chunk.xs[i];
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Getter for the number of trunks in the index.
+     *
+     * @return the number of indexed trunks.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Getter for the number of non-empty chunks in the index.
+     *
+     * @return the number of chunks.
+     */
+    public int chunkCount() {
+        return chunks.size();
+    }
+
+    /**
+     * Returns the chunks which may hold trunks starting inside the given range.
+     */
+    private NavigableMap<Integer, Chunk> chunksInRange(int fromX, int toX) {
+        if (fromX > toX) {
+            return chunks.subMap(0, false, 0, false);
+        }
+        return chunks.subMap(chunkOf(fromX), true, chunkOf(toX), true);
+    }
+
+    private static int chunkOf(int x) {
+        return Math.floorDiv(x, CHUNK_WIDTH);
+    }
+
+    /**
+     * The trunks of a single chunk, sorted by x.
+     */
+    private static class Chunk {
+        private int[] xs = new int[INIT_CAPACITY];
+        private int[] types = new int[INIT_CAPACITY];
+        private float[] heights = new float[INIT_CAPACITY];
+        private int count = 0;
+
+        private boolean insert(int x, int type, float height) {
+            int index = Arrays.binarySearch(xs, 0, count, x);
+            if (index >= 0) {
+                return false;
+            }
+            index = -index - 1;
+            if (count == xs.length) {
+                xs = Arrays.copyOf(xs, count * 2);
+                types = Arrays.copyOf(types, count * 2);
+                heights = Arrays.copyOf(heights, count * 2);
+            }
+            System.arraycopy(xs, index, xs, index + 1, count - index);
+            System.arraycopy(types, index, types, index + 1, count - index);
+            System.arraycopy(heights, index, heights, index + 1, count - index);
+            xs[index] = x;
+            types[index] = type;
+            heights[index] = height;
+            count++;
+            return true;
+        }
+
+        /**
+         * Keeps only the trunks in [fromX, toX].
+         *
+         * @return the number of removed trunks.
+         */
+        private int retain(int fromX, int toX) {
+            int start = lowerBound(fromX);
+            int end = upperBound(toX);
+            int kept = Math.max(end - start, 0);
+            int removed = count - kept;
+            if (removed > 0 && kept > 0 && start > 0) {
+                System.arraycopy(xs, start, xs, 0, kept);
+                System.arraycopy(types, start, types, 0, kept);
+                System.arraycopy(heights, start, heights, 0, kept);
+            }
+            count = kept;
+            return removed;
+        }
+
+        /**
+         * Drops the trunks in [fromX, toX].
+         *
+         * @return the number of removed trunks.
+         */
+        private int cut(int fromX, int toX) {
+            int start = lowerBound(fromX);
+            int end = upperBound(toX);
+            int removed = Math.max(end - start, 0);
+            if (removed > 0) {
+                System.arraycopy(xs, end, xs, start, count - end);
+                System.arraycopy(types, end, types, start, count - end);
+                System.arraycopy(heights, end, heights, start, count - end);
+                count -= removed;
+            }
+            return removed;
+        }
+
+        /**
+         * @return the index of the first trunk with x >= the given value.
+         */
+        private int lowerBound(int x) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (xs[mid] < x) low = mid + 1;
+                else high = mid;
+            }
+            return low;
+        }
+
+        /**
+         * @return the index of the first trunk with x > the given value.
+         */
+        private int upperBound(int x) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (xs[mid] <= x) low = mid + 1;
+                else high = mid;
+            }
+            return low;
+        }
+    }
+}